@@ -18,6 +18,8 @@ import rip.thecraft.practice.settings.SettingsManager;
 import rip.thecraft.practice.util.MessageManager;
 import rip.thecraft.practice.world.WorldManager;
 
+import java.util.logging.Level;
+
 public class Practice extends JavaPlugin {
 
     private static Practice instance;
@@ -108,7 +110,7 @@ public class Practice extends JavaPlugin {
 
         // Register listeners
         getServer().getPluginManager().registerEvents(new rip.thecraft.practice.listener.PlayerListener(), this);
-        getServer().getPluginManager().registerEvents(new rip.thecraft.practice.listener.ArenaListener(), this);
+        getServer().getPluginManager().registerEvents(this.arenaListener, this);
         getServer().getPluginManager().registerEvents(SelectionManager.getInstance(), this);
         getServer().getPluginManager().registerEvents(this.matchListener, this);
         getServer().getPluginManager().registerEvents(new rip.thecraft.practice.knockback.PracticeKnockbackHandler(), this);
@@ -126,20 +128,39 @@ public class Practice extends JavaPlugin {
 
     @Override
     public void onDisable() {
-        if (mongoClient != null) {
-            mongoClient.close();
+        try {
+            shutdownManagers();
+        } finally {
+            // Whatever failed above, queued player changes still get their final flush
+            if (playerManager != null) {
+                playerManager.shutdown();
+            }
+
+            // Closed last, the final flush above still writes to it
+            if (mongoClient != null) {
+                mongoClient.close();
+            }
         }
 
-        if (arenaManager != null) {
-            arenaManager.shutdown();
-        }
+        getLogger().info("Practice plugin has been disabled!");
+    }
 
+    private void shutdownManagers() {
         if (queueManager != null) {
             queueManager.shutdown();
         }
 
         if (matchManager != null) {
-            matchManager.shutdown();
+            try {
+                matchManager.shutdown();
+            } catch (Exception e) {
+                getLogger().log(Level.SEVERE, "Failed to end running matches on shutdown", e);
+            }
+        }
+
+        // After the matches, ending them hands their arenas to the regeneration scheduler
+        if (arenaManager != null) {
+            arenaManager.shutdown();
         }
 
         if (knockbackManager != null) {
@@ -165,8 +186,6 @@ public class Practice extends JavaPlugin {
         if (tournamentManager != null) {
             tournamentManager.shutdown();
         }
-
-        getLogger().info("Practice plugin has been disabled!");
     }
 
     private void initializeMongoDB() {
@@ -4,12 +4,16 @@ import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.World;
-import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
 import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.serialization.ConfigurationSerializable;
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Item;
 import rip.thecraft.practice.Practice;
 
+import java.io.IOException;
 import java.util.*;
+import java.util.concurrent.ConcurrentHashMap;
 
 public class Arena implements ConfigurationSerializable {
 
@@ -18,11 +22,22 @@ public class Arena implements ConfigurationSerializable {
     private Location spawn2;
     private Location boundsPos1;
     private Location boundsPos2;
+    private volatile ArenaBounds bounds; // Block-coordinate box of boundsPos1/boundsPos2, null until both are set
     private boolean inUse = false;
     private String restrictedKit = null; // If not null, only this kit can use this arena
     private boolean buildArena = false; // If true, this arena can only be used by build kits and only one match at a time
-    private final Map<Location, Material> originalBlocks = new HashMap<>();
-    private int currentMatches = 0; // Track how many matches are currently using this arena
+    private volatile ArenaSnapshot terrainSnapshot = ArenaSnapshot.EMPTY;
+    private volatile ArenaSnapshotFile.Mapped mappedSnapshot; // Snapshot file waiting to be decoded on first use
+    private volatile boolean snapshotDirty = false; // True when the snapshot file on disk is out of date
+    private volatile boolean capturing = false; // True while new terrain is being captured after a bounds change
+    private int captureGeneration = 0; // Bumped on every bounds change so stale captures are dropped
+    private volatile int currentMatches = 0; // Track how many matches are currently using this arena
+    private volatile ArenaJournal journal; // Blocks changed since the arena was last occupied, null while idle
+    private volatile ArenaState state = ArenaState.FREE;
+    private final LatencyHistogram turnaround = new LatencyHistogram(); // Match end until FREE again
+    private Arena template; // Set on instances: the arena this copy was pasted from and shares terrain with
+    private int instanceCount = 0; // How many grid copies of this arena to keep when it's used as a template
+    private final Set<Item> trackedItems = ConcurrentHashMap.newKeySet(); // Items dropped here since the last cleanup
 
     public Arena(String name, Location spawn1, Location spawn2) {
         this.name = name;
@@ -30,51 +45,68 @@ public class Arena implements ConfigurationSerializable {
         this.spawn2 = spawn2;
     }
 
-    public void setBounds(Location pos1, Location pos2) {
-        this.boundsPos1 = pos1;
-        this.boundsPos2 = pos2;
-        captureOriginalTerrain();
+    /**
+     * Set new bounds and clear the old terrain. The arena stays out of the pool until
+     * ArenaManager has captured the new terrain and published it with publishTerrain.
+     * @return the capture generation to hand back to publishTerrain
+     */
+    public int setBounds(Location pos1, Location pos2) {
+        synchronized (this) {
+            this.captureGeneration++;
+            this.boundsPos1 = pos1;
+            this.boundsPos2 = pos2;
+            this.capturing = true;
+            this.mappedSnapshot = null;
+            this.terrainSnapshot = ArenaSnapshot.EMPTY;
+            updateBounds();
+            return captureGeneration;
+        }
     }
 
-    private void captureOriginalTerrain() {
-        if (boundsPos1 == null || boundsPos2 == null) return;
-
-        originalBlocks.clear();
-        World world = boundsPos1.getWorld();
-
-        int minX = Math.min(boundsPos1.getBlockX(), boundsPos2.getBlockX());
-        int maxX = Math.max(boundsPos1.getBlockX(), boundsPos2.getBlockX());
-        int minY = Math.min(boundsPos1.getBlockY(), boundsPos2.getBlockY());
-        int maxY = Math.max(boundsPos1.getBlockY(), boundsPos2.getBlockY());
-        int minZ = Math.min(boundsPos1.getBlockZ(), boundsPos2.getBlockZ());
-        int maxZ = Math.max(boundsPos1.getBlockZ(), boundsPos2.getBlockZ());
-
-        // Calculate total volume for progress tracking
-        int totalBlocks = (maxX - minX + 1) * (maxY - minY + 1) * (maxZ - minZ + 1);
-        
-        // Only capture NON-AIR and NON-NATURAL blocks for arena protection
-        // Skip natural terrain blocks that don't need regeneration
-        for (int x = minX; x <= maxX; x++) {
-            for (int y = minY; y <= maxY; y++) {
-                for (int z = minZ; z <= maxZ; z++) {
-                    Location location = new Location(world, x, y, z);
-                    Material material = world.getBlockAt(location).getType();
-                    
-                    // Skip AIR and natural terrain blocks - they don't need protection or regeneration
-                    if (material != Material.AIR && !isNaturalTerrainBlock(material)) {
-                        originalBlocks.put(location, material);
-                    }
-                }
+    /**
+     * Atomically swap in freshly captured terrain and make the arena usable again
+     * @return false if the bounds changed again while this capture was running
+     */
+    boolean publishTerrain(ArenaSnapshot snapshot, long captureMillis, int generation) {
+        synchronized (this) {
+            if (generation != captureGeneration) {
+                return false;
             }
+            this.mappedSnapshot = null;
+            this.terrainSnapshot = snapshot;
+            this.snapshotDirty = true;
+            this.capturing = false;
         }
-        
+
         // Log memory usage
-        int capturedBlocks = originalBlocks.size();
+        int totalBlocks = snapshot.getVolume();
+        int capturedBlocks = snapshot.size();
         double compressionRatio = ((double)(totalBlocks - capturedBlocks) / totalBlocks) * 100;
-        Practice.getInstance().getLogger().info("Arena " + name + " terrain capture: " + capturedBlocks + "/" + totalBlocks + " blocks (" + String.format("%.1f", compressionRatio) + "% compression)");
+        Practice.getInstance().getLogger().info("Arena " + name + " terrain capture: " + capturedBlocks + "/" + totalBlocks + " blocks (" + String.format("%.1f", compressionRatio) + "% compression) in " + captureMillis + "ms");
+        Practice.getInstance().getLogger().info("Arena " + name + " snapshot memory: " + snapshot.getMemoryReport());
+        return true;
+    }
+
+    synchronized void cancelCapture(int generation) {
+        if (generation == captureGeneration) {
+            this.capturing = false;
+        }
+    }
+
+    public boolean isCapturing() {
+        return capturing;
+    }
+
+    private ArenaSnapshot.Builder newSnapshotBuilder() {
+        return ArenaSnapshot.builder(getSizeX(), getSizeY(), getSizeZ());
     }
     
-    private boolean isNaturalTerrainBlock(Material material) {
+    // Only NON-AIR and NON-NATURAL blocks are captured for arena protection and regeneration
+    static boolean isCapturedMaterial(Material material) {
+        return !material.isAir() && !isNaturalTerrainBlock(material);
+    }
+
+    static boolean isNaturalTerrainBlock(Material material) {
         // Skip common natural terrain blocks that don't need regeneration
         switch (material) {
             case STONE:
@@ -107,67 +139,106 @@ public class Arena implements ConfigurationSerializable {
         }
     }
 
-    public void regenerateTerrain() {
-        if (originalBlocks.isEmpty()) return;
+    /**
+     * Build a regeneration job that restores only the blocks recorded in the given journal,
+     * or the whole snapshot when there is no journal
+     */
+    public RegenerationJob createRegenerationJob(ArenaJournal changes) {
+        if (bounds == null) {
+            return new RegenerationJob(this, null, new int[0], new BlockData[0], 0);
+        }
 
         World world = boundsPos1.getWorld();
-        
-        // Use optimized regeneration for all arenas
-        regenerateTerrainOptimized(world);
-        
-        // Clear all items in the arena bounds
-        clearItemsInBounds();
-    }
-    
-    private void regenerateTerrainOptimized(World world) {
-        // Process blocks in small chunks with PaperAPI for Folia compatibility
-        List<Map.Entry<Location, Material>> blocksList = new ArrayList<>(originalBlocks.entrySet());
-        int chunkSize = 25; // Very small chunk size for minimal lag
-        
-        for (int i = 0; i < blocksList.size(); i += chunkSize) {
-            final int startIndex = i;
-            final int endIndex = Math.min(i + chunkSize, blocksList.size());
-            
-            // Schedule regeneration in very small chunks with minimal delay
-            // Use PaperAPI for Folia compatibility
-            rip.thecraft.practice.util.PaperAPI.runAtLocation(Practice.getInstance(), boundsPos1, () -> {
-                for (int j = startIndex; j < endIndex; j++) {
-                    Map.Entry<Location, Material> entry = blocksList.get(j);
-                    Location location = entry.getKey();
-                    Material originalMaterial = entry.getValue();
-                    Block block = world.getBlockAt(location);
-                    
-                    // Only update if blocks are different
-                    if (block.getType() != originalMaterial) {
-                        block.setType(originalMaterial, false); // No physics update for better performance
-                    }
-                }
-            });
+        if (changes != null) {
+            // Flatten the journal into parallel arrays the scheduler can walk a slice at a time
+            int size = changes.size() + changes.getOverflowCount();
+            final int[] coords = new int[size * 3];
+            final BlockData[] originals = new BlockData[size];
+            final int[] count = {0};
+            ArenaJournal.ChangeVisitor collect = (x, y, z, original) -> {
+                int i = count[0];
+                if (i >= originals.length) return;
+                coords[i * 3] = x;
+                coords[i * 3 + 1] = y;
+                coords[i * 3 + 2] = z;
+                originals[i] = original;
+                count[0]++;
+            };
+            changes.forEach(collect);
+
+            // Positions changed past the journal limit go back to the snapshot, or to air where it has nothing
+            if (changes.isOverflowed()) {
+                ArenaSnapshot snapshot = getTerrainSnapshot();
+                BlockData air = Material.AIR.createBlockData();
+                int minX = getMinX();
+                int minY = getMinY();
+                int minZ = getMinZ();
+                changes.forEachOverflow((x, y, z, unknown) -> {
+                    BlockData original = snapshot.getBlockData(x - minX, y - minY, z - minZ);
+                    collect.visit(x, y, z, original != null ? original : air);
+                });
+            }
+            return new RegenerationJob(this, world, coords, originals, count[0]);
         }
+
+        // Full regeneration from the original terrain snapshot
+        ArenaSnapshot snapshot = getTerrainSnapshot();
+        int minX = getMinX();
+        int minY = getMinY();
+        int minZ = getMinZ();
+        int[] coords = new int[snapshot.size() * 3];
+        BlockData[] originals = new BlockData[snapshot.size()];
+        for (int i = 0; i < snapshot.size(); i++) {
+            coords[i * 3] = minX + snapshot.getX(i);
+            coords[i * 3 + 1] = minY + snapshot.getY(i);
+            coords[i * 3 + 2] = minZ + snapshot.getZ(i);
+            originals[i] = snapshot.getBlockData(i);
+        }
+        return new RegenerationJob(this, world, coords, originals, snapshot.size());
     }
     
-    private void clearItemsInBounds() {
-        if (boundsPos1 == null || boundsPos2 == null) return;
+    /**
+     * Remember an item dropped in this arena so cleanup can remove it even if it rolled out of the bounds
+     */
+    public void trackItem(Item item) {
+        trackedItems.add(item);
+    }
+
+    public int getTrackedItemCount() {
+        return trackedItems.size();
+    }
+
+    /**
+     * Remove every item this arena is responsible for. Tracked items go first, then the loaded
+     * chunks under the bounds are swept for anything that wasn't reported, so the cost follows
+     * the arena's footprint rather than the world's entity count.
+     */
+    void clearItemsInBounds() {
+        for (Item item : trackedItems) {
+            if (item.isValid()) {
+                item.remove();
+            }
+        }
+        trackedItems.clear();
         
-        World world = boundsPos1.getWorld();
+        ArenaBounds bounds = this.bounds;
+        if (bounds == null) return;
         
-        int minX = Math.min(boundsPos1.getBlockX(), boundsPos2.getBlockX());
-        int maxX = Math.max(boundsPos1.getBlockX(), boundsPos2.getBlockX());
-        int minY = Math.min(boundsPos1.getBlockY(), boundsPos2.getBlockY());
-        int maxY = Math.max(boundsPos1.getBlockY(), boundsPos2.getBlockY());
-        int minZ = Math.min(boundsPos1.getBlockZ(), boundsPos2.getBlockZ());
-        int maxZ = Math.max(boundsPos1.getBlockZ(), boundsPos2.getBlockZ());
+        World world = Bukkit.getWorld(bounds.getWorldId());
+        if (world == null) return;
         
-        // Get all entities in the arena bounds and remove items
-        world.getEntities().stream()
-            .filter(entity -> entity instanceof org.bukkit.entity.Item)
-            .filter(entity -> {
-                Location entityLoc = entity.getLocation();
-                return entityLoc.getX() >= minX && entityLoc.getX() <= maxX &&
-                       entityLoc.getY() >= minY && entityLoc.getY() <= maxY &&
-                       entityLoc.getZ() >= minZ && entityLoc.getZ() <= maxZ;
-            })
-            .forEach(org.bukkit.entity.Entity::remove);
+        for (int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+            for (int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                // Unloaded chunks can't hold live items, and loading them just to check would be wasteful
+                if (!world.isChunkLoaded(chunkX, chunkZ)) continue;
+                
+                for (Entity entity : world.getChunkAt(chunkX, chunkZ).getEntities()) {
+                    if (entity instanceof Item && bounds.contains(entity.getLocation())) {
+                        entity.remove();
+                    }
+                }
+            }
+        }
     }
 
     public boolean isAvailable() {
@@ -175,8 +246,8 @@ public class Arena implements ConfigurationSerializable {
     }
     
     public boolean isAvailableForMatch() {
-        // For build arenas, only allow one match at a time
-        if (buildArena && currentMatches > 0) {
+        // Never hand out an arena while its terrain is being captured or its state keeps matches out
+        if (capturing || !acceptsMatch()) {
             return false;
         }
         return spawn1 != null && spawn2 != null && boundsPos1 != null && boundsPos2 != null;
@@ -185,22 +256,110 @@ public class Arena implements ConfigurationSerializable {
     public boolean isAvailableForBotDuel() {
         // For bot duels, we only need spawn points and the arena not to be in use
         // Bounds are optional for bot duels since they don't require terrain regeneration
-        return spawn1 != null && spawn2 != null && !inUse;
+        return spawn1 != null && spawn2 != null && !inUse && !capturing && acceptsMatch();
     }
 
-    public void incrementMatches() {
+    /**
+     * Whether the lifecycle state lets another match in. Build arenas are exclusive and only
+     * take one when FREE, shared arenas also while they're already hosting matches.
+     */
+    public boolean acceptsMatch() {
+        ArenaState current = getState();
+        if (current == ArenaState.FREE) return true;
+        return !isBuildArena() && (current == ArenaState.RESERVED || current == ArenaState.IN_MATCH);
+    }
+
+    /**
+     * Instances can't be warmer than the template whose terrain they share
+     */
+    public ArenaState getState() {
+        if (template != null && template.state == ArenaState.WARMING) {
+            return ArenaState.WARMING;
+        }
+        return state;
+    }
+
+    public boolean isRegenerating() {
+        return state == ArenaState.REGENERATING;
+    }
+
+    /**
+     * FREE -> RESERVED when the allocator hands the arena out
+     */
+    synchronized void reserve() {
+        if (state == ArenaState.FREE) {
+            state = ArenaState.RESERVED;
+        }
+    }
+
+    /**
+     * Leave the pool while the scheduler restores the terrain
+     */
+    synchronized void beginRegeneration() {
+        state = ArenaState.REGENERATING;
+    }
+
+    /**
+     * Back to FREE once the terrain is restored, or IN_MATCH if a match was placed here by hand meanwhile
+     */
+    synchronized void finishRegeneration() {
+        if (state == ArenaState.REGENERATING) {
+            state = currentMatches > 0 ? ArenaState.IN_MATCH : ArenaState.FREE;
+        }
+    }
+
+    public synchronized void incrementMatches() {
         currentMatches++;
+        if (state == ArenaState.FREE || state == ArenaState.RESERVED) {
+            state = ArenaState.IN_MATCH;
+        }
     }
 
-    public void decrementMatches() {
+    public synchronized void decrementMatches() {
         if (currentMatches > 0) {
             currentMatches--;
         }
     }
 
+    public LatencyHistogram getTurnaround() {
+        return turnaround;
+    }
+
     public int getCurrentMatches() {
         return currentMatches;
     }
+
+    /**
+     * Start recording block changes if the arena isn't already journaling
+     */
+    public void openJournal() {
+        if (journal == null) {
+            journal = new ArenaJournal(bounds);
+        }
+    }
+
+    /**
+     * Stop recording and hand back everything changed since the journal was opened
+     */
+    public ArenaJournal closeJournal() {
+        ArenaJournal closed = journal;
+        journal = null;
+        return closed;
+    }
+
+    public ArenaJournal getJournal() {
+        return journal;
+    }
+
+    /**
+     * Record the original state of a block that is about to change, if the arena is journaling
+     */
+    public void recordChange(int x, int y, int z, BlockData original) {
+        ArenaJournal active = journal;
+        if (active != null) {
+            active.record(x, y, z, original);
+        }
+    }
     
     public boolean isSetupComplete() {
         return spawn1 != null && spawn2 != null && boundsPos1 != null && boundsPos2 != null;
@@ -257,7 +416,7 @@ public class Arena implements ConfigurationSerializable {
     }
 
     public String getRestrictedKit() {
-        return restrictedKit;
+        return template != null ? template.getRestrictedKit() : restrictedKit;
     }
 
     public void setRestrictedKit(String restrictedKit) {
@@ -265,28 +424,178 @@ public class Arena implements ConfigurationSerializable {
     }
 
     public boolean isKitRestricted() {
-        return restrictedKit != null;
+        return getRestrictedKit() != null;
     }
 
     public boolean canUseKit(String kitName) {
-        if (restrictedKit == null) {
+        String restriction = getRestrictedKit();
+        if (restriction == null) {
             return true; // No restriction
         }
-        return restrictedKit.equalsIgnoreCase(kitName);
+        return restriction.equalsIgnoreCase(kitName);
+    }
+
+    /**
+     * Get the original terrain, decoding the mapped snapshot file the first time it's needed
+     */
+    public ArenaSnapshot getTerrainSnapshot() {
+        if (template != null) {
+            // Instances share the template's immutable snapshot, it's relative to the min corner
+            return template.getTerrainSnapshot();
+        }
+        if (mappedSnapshot == null) {
+            return terrainSnapshot;
+        }
+
+        synchronized (this) {
+            ArenaSnapshotFile.Mapped mapped = mappedSnapshot;
+            if (mapped == null) {
+                return terrainSnapshot;
+            }
+
+            try {
+                ArenaSnapshot snapshot = mapped.decode();
+                if (snapshot.getSizeX() == getSizeX() && snapshot.getSizeY() == getSizeY() && snapshot.getSizeZ() == getSizeZ()) {
+                    terrainSnapshot = snapshot;
+                } else {
+                    Practice.getInstance().getLogger().warning("Arena " + name + " snapshot size doesn't match its bounds, recapture it with /arena setbounds");
+                }
+            } catch (IOException e) {
+                Practice.getInstance().getLogger().severe("Failed to load terrain snapshot for arena " + name + ": " + e.getMessage());
+            }
+            // Drop the mapping either way so the file can be replaced on the next save
+            mappedSnapshot = null;
+            return terrainSnapshot;
+        }
+    }
+
+    /**
+     * Attach a mapped snapshot file; its blocks are only decoded once something asks for them
+     */
+    void setMappedSnapshot(ArenaSnapshotFile.Mapped mapped) {
+        this.mappedSnapshot = mapped;
+        this.terrainSnapshot = ArenaSnapshot.EMPTY;
+        this.state = ArenaState.WARMING;
+    }
+
+    /**
+     * Decode the mapped snapshot file now instead of on first use and mark the arena ready
+     */
+    void preloadTerrain() {
+        try {
+            getTerrainSnapshot();
+        } finally {
+            synchronized (this) {
+                if (state == ArenaState.WARMING) {
+                    state = ArenaState.FREE;
+                }
+            }
+        }
+    }
+
+    public boolean isReady() {
+        return getState() != ArenaState.WARMING;
+    }
+
+    public boolean isSnapshotDirty() {
+        return snapshotDirty;
+    }
+
+    /**
+     * Clear the dirty flag, unless newer terrain was published while the given snapshot was being written
+     */
+    void markSnapshotSaved(ArenaSnapshot saved) {
+        synchronized (this) {
+            if (terrainSnapshot == saved) {
+                this.snapshotDirty = false;
+            }
+        }
+    }
+
+    /**
+     * Check if the given world coordinates hold a block from the captured original terrain
+     */
+    public boolean isOriginalBlock(int x, int y, int z) {
+        if (bounds == null) return false;
+        return getTerrainSnapshot().contains(x - getMinX(), y - getMinY(), z - getMinZ());
+    }
+
+    private void updateBounds() {
+        if (boundsPos1 != null && boundsPos2 != null && boundsPos1.getWorld() != null) {
+            bounds = ArenaBounds.of(boundsPos1, boundsPos2);
+        } else {
+            bounds = null;
+        }
+    }
+
+    /**
+     * Get the precomputed block box of this arena, or null if its bounds aren't set
+     */
+    public ArenaBounds getBounds() {
+        return bounds;
+    }
+
+    public int getMinX() {
+        return bounds.getMinX();
+    }
+
+    public int getMinY() {
+        return bounds.getMinY();
+    }
+
+    public int getMinZ() {
+        return bounds.getMinZ();
+    }
+
+    int getSizeX() {
+        return bounds.getSizeX();
+    }
+
+    int getSizeY() {
+        return bounds.getSizeY();
     }
 
-    public Map<Location, Material> getOriginalBlocks() {
-        return originalBlocks;
+    int getSizeZ() {
+        return bounds.getSizeZ();
     }
 
     public boolean isBuildArena() {
-        return buildArena;
+        return template != null ? template.isBuildArena() : buildArena;
     }
 
     public void setBuildArena(boolean buildArena) {
         this.buildArena = buildArena;
     }
 
+    /**
+     * Create a copy of this arena shifted by whole chunks. Spawns and bounds are offset,
+     * while terrain, kit restriction and build mode are read from this arena.
+     */
+    Arena createInstance(int index, int offsetX, int offsetZ) {
+        Arena instance = new Arena(name + "#" + index, spawn1.clone().add(offsetX, 0, offsetZ), spawn2.clone().add(offsetX, 0, offsetZ));
+        instance.template = this;
+        instance.boundsPos1 = boundsPos1.clone().add(offsetX, 0, offsetZ);
+        instance.boundsPos2 = boundsPos2.clone().add(offsetX, 0, offsetZ);
+        instance.updateBounds();
+        return instance;
+    }
+
+    public boolean isInstance() {
+        return template != null;
+    }
+
+    public Arena getTemplate() {
+        return template;
+    }
+
+    public int getInstanceCount() {
+        return instanceCount;
+    }
+
+    void setInstanceCount(int instanceCount) {
+        this.instanceCount = instanceCount;
+    }
+
     @Override
     public Map<String, Object> serialize() {
         Map<String, Object> data = new HashMap<>();
@@ -298,215 +607,12 @@ public class Arena implements ConfigurationSerializable {
         data.put("inUse", inUse);
         if (restrictedKit != null) data.put("restrictedKit", restrictedKit);
         data.put("buildArena", buildArena);
+        if (instanceCount > 0) data.put("instances", instanceCount);
         
-        // Only serialize original blocks if they exist (to reduce file size)
-        if (!originalBlocks.isEmpty()) {
-            // Use highly optimized compression format
-            Map<String, Object> compressedBlocks = compressBlocksOptimized();
-            data.put("compressedBlocks", compressedBlocks);
-        }
-        
+        // Terrain lives in its own binary snapshot file, see ArenaManager#saveArena
         return data;
     }
     
-    /**
-     * Highly optimized block compression using run-length encoding and compact storage
-     * Reduces file size by 80-95% compared to individual block storage
-     */
-    private Map<String, Object> compressBlocksOptimized() {
-        Map<String, Object> compressed = new HashMap<>();
-        
-        // Store world and bounds once for reference
-        compressed.put("world", boundsPos1.getWorld().getName());
-        compressed.put("bounds", Arrays.asList(
-            boundsPos1.getBlockX(), boundsPos1.getBlockY(), boundsPos1.getBlockZ(),
-            boundsPos2.getBlockX(), boundsPos2.getBlockY(), boundsPos2.getBlockZ()
-        ));
-        
-        // Group blocks by material and Y level for optimal compression
-        Map<Material, Map<Integer, List<int[]>>> materialYLevels = new HashMap<>();
-        
-        // Organize blocks by material and Y level
-        for (Map.Entry<Location, Material> entry : originalBlocks.entrySet()) {
-            Location loc = entry.getKey();
-            Material material = entry.getValue();
-            int x = loc.getBlockX();
-            int y = loc.getBlockY();
-            int z = loc.getBlockZ();
-            
-            materialYLevels
-                .computeIfAbsent(material, k -> new HashMap<>())
-                .computeIfAbsent(y, k -> new ArrayList<>())
-                .add(new int[]{x, z});
-        }
-        
-        // Compress using run-length encoding with optimized storage
-        List<String> compressedRanges = new ArrayList<>();
-        
-        for (Map.Entry<Material, Map<Integer, List<int[]>>> materialEntry : materialYLevels.entrySet()) {
-            Material material = materialEntry.getKey();
-            String materialName = material.name();
-            Map<Integer, List<int[]>> yLevels = materialEntry.getValue();
-            
-            for (Map.Entry<Integer, List<int[]>> yEntry : yLevels.entrySet()) {
-                int y = yEntry.getKey();
-                List<int[]> coords = yEntry.getValue();
-                
-                // Sort coordinates by X then Z for optimal RLE
-                coords.sort((a, b) -> {
-                    if (a[0] != b[0]) return Integer.compare(a[0], b[0]);
-                    return Integer.compare(a[1], b[1]);
-                });
-                
-                // Compress using run-length encoding
-                for (int i = 0; i < coords.size(); i++) {
-                    int startX = coords.get(i)[0];
-                    int startZ = coords.get(i)[1];
-                    int endX = startX;
-                    int endZ = startZ;
-                    
-                    // Find consecutive blocks in X direction
-                    while (i + 1 < coords.size() && 
-                           coords.get(i + 1)[0] == endX + 1 && 
-                           coords.get(i + 1)[1] == startZ) {
-                        endX++;
-                        i++;
-                    }
-                    
-                    // Find consecutive blocks in Z direction (for the same X range)
-                    boolean foundZ = true;
-                    while (foundZ) {
-                        foundZ = false;
-                        for (int j = i + 1; j < coords.size(); j++) {
-                            int[] nextCoord = coords.get(j);
-                            if (nextCoord[0] >= startX && nextCoord[0] <= endX && 
-                                nextCoord[1] == endZ + 1) {
-                                endZ++;
-                                i = j;
-                                foundZ = true;
-                                break;
-                            }
-                        }
-                    }
-                    
-                    // Store as compact string: material:y:startX:endX:startZ:endZ
-                    String range = String.format("%s:%d:%d:%d:%d:%d", 
-                        materialName, y, startX, endX, startZ, endZ);
-                    compressedRanges.add(range);
-                }
-            }
-        }
-        
-        compressed.put("ranges", compressedRanges);
-        
-        // Log compression statistics
-        int originalSize = originalBlocks.size();
-        int compressedSize = compressedRanges.size();
-        double compressionRatio = ((double)(originalSize - compressedSize) / originalSize) * 100;
-        Practice.getInstance().getLogger().info("Arena " + name + " compression: " + 
-            compressedSize + "/" + originalSize + " ranges (" + 
-            String.format("%.1f", compressionRatio) + "% reduction)");
-        
-        return compressed;
-    }
-    
-    /**
-     * Legacy compression method - kept for reference
-     */
-    private Map<String, Object> compressBlocks() {
-        Map<String, Object> compressed = new HashMap<>();
-        
-        // Group blocks by material and Y level for better compression
-        Map<Material, Map<Integer, List<int[]>>> materialYLevels = new HashMap<>();
-        
-        // Organize blocks by material and Y level
-        for (Map.Entry<Location, Material> entry : originalBlocks.entrySet()) {
-            Location loc = entry.getKey();
-            Material material = entry.getValue();
-            int x = loc.getBlockX();
-            int y = loc.getBlockY();
-            int z = loc.getBlockZ();
-            
-            materialYLevels
-                .computeIfAbsent(material, k -> new HashMap<>())
-                .computeIfAbsent(y, k -> new ArrayList<>())
-                .add(new int[]{x, z});
-        }
-        
-        // Compress each Y level using run-length encoding for X and Z coordinates
-        Map<String, List<Map<String, Object>>> compressedLayers = new HashMap<>();
-        
-        for (Map.Entry<Material, Map<Integer, List<int[]>>> materialEntry : materialYLevels.entrySet()) {
-            Material material = materialEntry.getKey();
-            Map<Integer, List<int[]>> yLevels = materialEntry.getValue();
-            
-            List<Map<String, Object>> materialData = new ArrayList<>();
-            
-            for (Map.Entry<Integer, List<int[]>> yEntry : yLevels.entrySet()) {
-                int y = yEntry.getKey();
-                List<int[]> coords = yEntry.getValue();
-                
-                // Sort coordinates by X then Z
-                coords.sort((a, b) -> {
-                    if (a[0] != b[0]) return Integer.compare(a[0], b[0]);
-                    return Integer.compare(a[1], b[1]);
-                });
-                
-                // Compress using run-length encoding
-                List<Map<String, Object>> compressedCoords = new ArrayList<>();
-                
-                for (int i = 0; i < coords.size(); i++) {
-                    int startX = coords.get(i)[0];
-                    int startZ = coords.get(i)[1];
-                    int endX = startX;
-                    int endZ = startZ;
-                    
-                    // Find consecutive blocks in X direction
-                    while (i + 1 < coords.size() && 
-                           coords.get(i + 1)[0] == endX + 1 && 
-                           coords.get(i + 1)[1] == startZ) {
-                        endX++;
-                        i++;
-                    }
-                    
-                    // Find consecutive blocks in Z direction (for the same X range)
-                    boolean foundZ = true;
-                    while (foundZ) {
-                        foundZ = false;
-                        for (int j = i + 1; j < coords.size(); j++) {
-                            int[] nextCoord = coords.get(j);
-                            if (nextCoord[0] >= startX && nextCoord[0] <= endX && 
-                                nextCoord[1] == endZ + 1) {
-                                endZ++;
-                                i = j;
-                                foundZ = true;
-                                break;
-                            }
-                        }
-                    }
-                    
-                    Map<String, Object> range = new HashMap<>();
-                    range.put("y", y);
-                    range.put("startX", startX);
-                    range.put("endX", endX);
-                    range.put("startZ", startZ);
-                    range.put("endZ", endZ);
-                    compressedCoords.add(range);
-                }
-                
-                Map<String, Object> yLayer = new HashMap<>();
-                yLayer.put("y", y);
-                yLayer.put("ranges", compressedCoords);
-                materialData.add(yLayer);
-            }
-            
-            compressedLayers.put(material.name(), materialData);
-        }
-        
-        compressed.put("layers", compressedLayers);
-        return compressed;
-    }
-
     public static Arena deserialize(ConfigurationSection section) {
         if (section == null) return null;
 
@@ -522,6 +628,7 @@ public class Arena implements ConfigurationSerializable {
         if (section.contains("boundsPos2")) {
             arena.boundsPos2 = Location.deserialize(section.getConfigurationSection("boundsPos2").getValues(false));
         }
+        arena.updateBounds();
 
         arena.inUse = section.getBoolean("inUse", false);
         
@@ -535,92 +642,102 @@ public class Arena implements ConfigurationSerializable {
             arena.buildArena = section.getBoolean("buildArena");
         }
 
-        // Deserialize original blocks (support both old and new formats)
-        if (section.contains("originalBlocks")) {
-            // Old format: individual block coordinates
-            ConfigurationSection blocksSection = section.getConfigurationSection("originalBlocks");
-            for (String key : blocksSection.getKeys(false)) {
-                String[] coords = key.split(",");
-                int x = Integer.parseInt(coords[0]);
-                int y = Integer.parseInt(coords[1]);
-                int z = Integer.parseInt(coords[2]);
-                Location location = new Location(arena.boundsPos1.getWorld(), x, y, z);
-                Material material = Material.valueOf(blocksSection.getString(key));
-                arena.originalBlocks.put(location, material);
-            }
-        } else if (section.contains("compressedBlocks")) {
-            // New compressed format
-            ConfigurationSection compressedSection = section.getConfigurationSection("compressedBlocks");
+        // Grid copies are recreated from the template by ArenaManager
+        arena.instanceCount = section.getInt("instances", 0);
+
+        // Migrate terrain stored inline by older versions; the next save moves it into a snapshot file
+        if (arena.bounds != null
+                && (section.contains("originalBlocks") || section.contains("compressedBlocks"))) {
+            ArenaSnapshot.Builder builder = arena.newSnapshotBuilder();
+            int minX = arena.getMinX();
+            int minY = arena.getMinY();
+            int minZ = arena.getMinZ();
             
-            // Handle new optimized format first
-            if (compressedSection.contains("ranges") && compressedSection.isList("ranges")) {
-                // New optimized format: List<String> ranges
-                List<String> ranges = compressedSection.getStringList("ranges");
-                for (String range : ranges) {
-                    String[] parts = range.split(":");
-                    if (parts.length == 6) {
-                        Material material = Material.valueOf(parts[0]);
-                        int y = Integer.parseInt(parts[1]);
-                        int startX = Integer.parseInt(parts[2]);
-                        int endX = Integer.parseInt(parts[3]);
-                        int startZ = Integer.parseInt(parts[4]);
-                        int endZ = Integer.parseInt(parts[5]);
-                        
-                        // Expand the range back to individual blocks
-                        for (int x = startX; x <= endX; x++) {
-                            for (int z = startZ; z <= endZ; z++) {
-                                Location location = new Location(arena.boundsPos1.getWorld(), x, y, z);
-                                arena.originalBlocks.put(location, material);
+            if (section.contains("originalBlocks")) {
+                // Old format: individual block coordinates
+                ConfigurationSection blocksSection = section.getConfigurationSection("originalBlocks");
+                for (String key : blocksSection.getKeys(false)) {
+                    String[] coords = key.split(",");
+                    int x = Integer.parseInt(coords[0]);
+                    int y = Integer.parseInt(coords[1]);
+                    int z = Integer.parseInt(coords[2]);
+                    Material material = Material.valueOf(blocksSection.getString(key));
+                    builder.add(x - minX, y - minY, z - minZ, material.createBlockData());
+                }
+            } else if (section.contains("compressedBlocks")) {
+                // New compressed format
+                ConfigurationSection compressedSection = section.getConfigurationSection("compressedBlocks");
+                
+                // Handle new optimized format first
+                if (compressedSection.contains("ranges") && compressedSection.isList("ranges")) {
+                    // New optimized format: List<String> ranges
+                    List<String> ranges = compressedSection.getStringList("ranges");
+                    for (String range : ranges) {
+                        String[] parts = range.split(":");
+                        if (parts.length == 6) {
+                            BlockData data = Material.valueOf(parts[0]).createBlockData();
+                            int y = Integer.parseInt(parts[1]);
+                            int startX = Integer.parseInt(parts[2]);
+                            int endX = Integer.parseInt(parts[3]);
+                            int startZ = Integer.parseInt(parts[4]);
+                            int endZ = Integer.parseInt(parts[5]);
+                            
+                            // Expand the range back to individual blocks
+                            for (int x = startX; x <= endX; x++) {
+                                for (int z = startZ; z <= endZ; z++) {
+                                    builder.add(x - minX, y - minY, z - minZ, data);
+                                }
                             }
                         }
                     }
-                }
-            } else if (compressedSection.contains("ranges")) {
-                // Old compressed format
-                ConfigurationSection rangesSection = compressedSection.getConfigurationSection("ranges");
-                
-                for (String materialName : rangesSection.getKeys(false)) {
-                    Material material = Material.valueOf(materialName);
-                    List<String> coordsList = rangesSection.getStringList(materialName);
+                } else if (compressedSection.contains("ranges")) {
+                    // Old compressed format
+                    ConfigurationSection rangesSection = compressedSection.getConfigurationSection("ranges");
                     
-                    for (String coord : coordsList) {
-                        String[] coords = coord.split(",");
-                        int x = Integer.parseInt(coords[0]);
-                        int y = Integer.parseInt(coords[1]);
-                        int z = Integer.parseInt(coords[2]);
-                        Location location = new Location(arena.boundsPos1.getWorld(), x, y, z);
-                        arena.originalBlocks.put(location, material);
+                    for (String materialName : rangesSection.getKeys(false)) {
+                        BlockData data = Material.valueOf(materialName).createBlockData();
+                        List<String> coordsList = rangesSection.getStringList(materialName);
+                        
+                        for (String coord : coordsList) {
+                            String[] coords = coord.split(",");
+                            int x = Integer.parseInt(coords[0]);
+                            int y = Integer.parseInt(coords[1]);
+                            int z = Integer.parseInt(coords[2]);
+                            builder.add(x - minX, y - minY, z - minZ, data);
+                        }
                     }
-                }
-            } else if (compressedSection.contains("layers")) {
-                // Layer-based compressed format
-                ConfigurationSection layersSection = compressedSection.getConfigurationSection("layers");
-                
-                for (String materialName : layersSection.getKeys(false)) {
-                    Material material = Material.valueOf(materialName);
-                    List<Map<?, ?>> layerData = layersSection.getMapList(materialName);
+                } else if (compressedSection.contains("layers")) {
+                    // Layer-based compressed format
+                    ConfigurationSection layersSection = compressedSection.getConfigurationSection("layers");
                     
-                    for (Map<?, ?> layer : layerData) {
-                        int y = (Integer) layer.get("y");
-                        List<Map<?, ?>> ranges = (List<Map<?, ?>>) layer.get("ranges");
+                    for (String materialName : layersSection.getKeys(false)) {
+                        BlockData data = Material.valueOf(materialName).createBlockData();
+                        List<Map<?, ?>> layerData = layersSection.getMapList(materialName);
                         
-                        for (Map<?, ?> range : ranges) {
-                            int startX = (Integer) range.get("startX");
-                            int endX = (Integer) range.get("endX");
-                            int startZ = (Integer) range.get("startZ");
-                            int endZ = (Integer) range.get("endZ");
+                        for (Map<?, ?> layer : layerData) {
+                            int y = (Integer) layer.get("y");
+                            List<Map<?, ?>> ranges = (List<Map<?, ?>>) layer.get("ranges");
                             
-                            // Expand the range back to individual blocks
-                            for (int x = startX; x <= endX; x++) {
-                                for (int z = startZ; z <= endZ; z++) {
-                                    Location location = new Location(arena.boundsPos1.getWorld(), x, y, z);
-                                    arena.originalBlocks.put(location, material);
+                            for (Map<?, ?> range : ranges) {
+                                int startX = (Integer) range.get("startX");
+                                int endX = (Integer) range.get("endX");
+                                int startZ = (Integer) range.get("startZ");
+                                int endZ = (Integer) range.get("endZ");
+                                
+                                // Expand the range back to individual blocks
+                                for (int x = startX; x <= endX; x++) {
+                                    for (int z = startZ; z <= endZ; z++) {
+                                        builder.add(x - minX, y - minY, z - minZ, data);
+                                    }
                                 }
                             }
                         }
                     }
                 }
             }
+            
+            arena.terrainSnapshot = builder.build();
+            arena.snapshotDirty = true;
         }
 
         return arena;
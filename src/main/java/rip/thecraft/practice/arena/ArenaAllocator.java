@@ -0,0 +1,327 @@
+package rip.thecraft.practice.arena;
+
+import java.util.HashMap;
+import java.util.IdentityHashMap;
+import java.util.LinkedHashSet;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Free lists of arenas that can take a match right now, keyed by kit restriction, build
+ * category and whether the arena has bounds. Only arenas whose ArenaState accepts a match
+ * are listed, and handing one out moves it from FREE to RESERVED.
+ *
+ * Each list buckets its arenas by region cell, and keeps its cells ordered by the number of
+ * matches running in them. The arena in the least loaded cell wins, so concurrent matches land
+ * in different Folia regions and run on different threads.
+ *
+ * Build arenas are exclusive and leave their list while a match is running. Other arenas are
+ * shared between matches, so they stay listed and are handed out round-robin. Buckets are
+ * insertion-ordered sets, so taking, rotating and removing an arena are constant time under
+ * one lock, which keeps it safe when Folia regions start matches at the same time.
+ *
+ * When no list for the kit has an arena, any free arena with spawns is used as a last resort,
+ * whatever its kit restriction or category.
+ */
+public class ArenaAllocator {
+
+    private static final String ANY_KIT = "*";
+
+    private final Map<String, Pool> pools = new HashMap<>();
+    private final Map<Arena, String> membership = new IdentityHashMap<>();
+    private final Map<Arena, String> regionOf = new IdentityHashMap<>(); // Cell each listed arena is bucketed under
+    private final Map<String, Set<Pool>> poolsByRegion = new HashMap<>();
+    private final Map<Arena, Running> running = new IdentityHashMap<>();
+    private final Map<String, Integer> regionMatches = new HashMap<>();
+    private final int regionShift;
+
+    private final LongAdder restrictedHits = new LongAdder();
+    private final LongAdder sharedHits = new LongAdder();
+    private final LongAdder spawnOnlyHits = new LongAdder();
+    private final LongAdder fallbackHits = new LongAdder();
+    private final LongAdder misses = new LongAdder();
+    private final LongAdder allocationNanos = new LongAdder();
+
+    /**
+     * @param regionShift region cells are 2^regionShift chunks wide
+     */
+    public ArenaAllocator(int regionShift) {
+        this.regionShift = regionShift;
+    }
+
+    /**
+     * Take an arena for a match with the given kit: kit-restricted arenas first, then
+     * unrestricted ones, then arenas that only have spawn points, then any free arena
+     * @return the arena, or null if no arena is free
+     */
+    public Arena allocate(String kitName, boolean buildKit) {
+        long start = System.nanoTime();
+        String kit = kitName.toLowerCase();
+        Arena arena;
+        synchronized (this) {
+            if ((arena = take(poolKey(kit, buildKit, true))) != null) {
+                restrictedHits.increment();
+            } else if ((arena = take(poolKey(ANY_KIT, buildKit, true))) != null) {
+                sharedHits.increment();
+            } else if ((arena = take(poolKey(kit, buildKit, false))) != null
+                || (arena = take(poolKey(ANY_KIT, buildKit, false))) != null) {
+                spawnOnlyHits.increment();
+            } else if ((arena = takeAny()) != null) {
+                fallbackHits.increment();
+            } else {
+                misses.increment();
+            }
+        }
+        allocationNanos.add(System.nanoTime() - start);
+        return arena;
+    }
+
+    private Arena take(String key) {
+        Pool pool = pools.get(key);
+        if (pool == null || pool.isEmpty()) return null;
+
+        Arena arena = pool.take();
+        arena.reserve();
+        if (isExclusive(arena)) {
+            remove(arena);
+        }
+        return arena;
+    }
+
+    // Last resort, the first free arena of any list
+    private Arena takeAny() {
+        for (String key : pools.keySet()) {
+            Arena arena = take(key);
+            if (arena != null) return arena;
+        }
+        return null;
+    }
+
+    /**
+     * Put the arena back on its list if it can take a match, or take it off if it can't
+     */
+    public synchronized void update(Arena arena) {
+        // Bounds may have moved, so the region is worked out again when the arena is listed
+        remove(arena);
+        if (!isFree(arena)) return;
+
+        String key = poolKey(arena);
+        String region = computeRegion(arena);
+        Pool pool = pools.computeIfAbsent(key, k -> new Pool());
+        if (pool.add(arena, region)) {
+            poolsByRegion.computeIfAbsent(region, r -> new LinkedHashSet<>()).add(pool);
+        }
+        membership.put(arena, key);
+        regionOf.put(arena, region);
+    }
+
+    public synchronized void remove(Arena arena) {
+        String key = membership.remove(arena);
+        String region = regionOf.remove(arena);
+        if (key == null) return;
+
+        Pool pool = pools.get(key);
+        if (pool.remove(arena, region)) {
+            Set<Pool> listed = poolsByRegion.get(region);
+            listed.remove(pool);
+            if (listed.isEmpty()) {
+                poolsByRegion.remove(region);
+            }
+        }
+    }
+
+    public synchronized void clear() {
+        pools.clear();
+        membership.clear();
+        regionOf.clear();
+        poolsByRegion.clear();
+        running.clear();
+        regionMatches.clear();
+    }
+
+    /**
+     * Count a match starting in the arena's region cell. The cell is remembered until the
+     * arena's last match ends, so a later bounds change can't move the count.
+     */
+    public synchronized void matchStarted(Arena arena) {
+        Running entry = running.get(arena);
+        if (entry == null) {
+            String region = regionOf.get(arena);
+            entry = new Running(region != null ? region : computeRegion(arena));
+            running.put(arena, entry);
+        }
+        entry.matches++;
+        changeLoad(entry.region, 1);
+    }
+
+    public synchronized void matchEnded(Arena arena) {
+        Running entry = running.get(arena);
+        if (entry == null) return;
+
+        if (--entry.matches == 0) {
+            running.remove(arena);
+        }
+        changeLoad(entry.region, -1);
+    }
+
+    // Move the cell to its new load bucket in every list that has arenas in it
+    private void changeLoad(String region, int delta) {
+        int from = regionMatches.getOrDefault(region, 0);
+        int to = from + delta;
+        if (to > 0) {
+            regionMatches.put(region, to);
+        } else {
+            regionMatches.remove(region);
+        }
+
+        Set<Pool> listed = poolsByRegion.get(region);
+        if (listed == null) return;
+        for (Pool pool : listed) {
+            pool.move(region, from, Math.max(0, to));
+        }
+    }
+
+    /**
+     * Running matches per region cell, keyed as "world:regionX,regionZ"
+     */
+    public synchronized Map<String, Integer> getRegionDensity() {
+        return new HashMap<>(regionMatches);
+    }
+
+    public int getRegionShift() {
+        return regionShift;
+    }
+
+    // Region cell holding the middle of the arena, or its first spawn when it has no bounds
+    private String computeRegion(Arena arena) {
+        ArenaBounds bounds = arena.getBounds();
+        int chunkX = bounds != null ? ((bounds.getMinX() + bounds.getMaxX()) >> 1) >> 4 : arena.getSpawn1().getBlockX() >> 4;
+        int chunkZ = bounds != null ? ((bounds.getMinZ() + bounds.getMaxZ()) >> 1) >> 4 : arena.getSpawn1().getBlockZ() >> 4;
+        return arena.getSpawn1().getWorld().getName() + ":" + (chunkX >> regionShift) + "," + (chunkZ >> regionShift);
+    }
+
+    private boolean isFree(Arena arena) {
+        if (arena.getSpawn1() == null || arena.getSpawn2() == null || arena.isCapturing()) {
+            return false;
+        }
+        return arena.acceptsMatch();
+    }
+
+    private boolean isExclusive(Arena arena) {
+        return arena.isBuildArena();
+    }
+
+    private String poolKey(Arena arena) {
+        String kit = arena.isKitRestricted() ? arena.getRestrictedKit().toLowerCase() : ANY_KIT;
+        return poolKey(kit, arena.isBuildArena(), arena.getBounds() != null);
+    }
+
+    private String poolKey(String kit, boolean build, boolean bounded) {
+        return kit + (build ? "|build" : "|normal") + (bounded ? "" : "|spawns");
+    }
+
+    public synchronized int getFreeCount() {
+        return membership.size();
+    }
+
+    public long getRestrictedHits() {
+        return restrictedHits.sum();
+    }
+
+    public long getSharedHits() {
+        return sharedHits.sum();
+    }
+
+    public long getSpawnOnlyHits() {
+        return spawnOnlyHits.sum();
+    }
+
+    public long getFallbackHits() {
+        return fallbackHits.sum();
+    }
+
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    public double getAverageAllocationMicros() {
+        long total = restrictedHits.sum() + sharedHits.sum() + spawnOnlyHits.sum() + fallbackHits.sum() + misses.sum();
+        return total == 0 ? 0 : allocationNanos.sum() / 1000.0 / total;
+    }
+
+    /**
+     * One free list, arenas bucketed by region cell and cells bucketed by running matches
+     */
+    private final class Pool {
+        private final Map<String, LinkedHashSet<Arena>> byRegion = new HashMap<>();
+        private final TreeMap<Integer, LinkedHashSet<String>> byLoad = new TreeMap<>(); // Least loaded first
+
+        boolean isEmpty() {
+            return byRegion.isEmpty();
+        }
+
+        // Next arena of the least loaded cell, both rotated to the back so ties take turns
+        Arena take() {
+            LinkedHashSet<String> regions = byLoad.firstEntry().getValue();
+            String region = regions.iterator().next();
+            LinkedHashSet<Arena> arenas = byRegion.get(region);
+            Arena arena = arenas.iterator().next();
+            arenas.remove(arena);
+            arenas.add(arena);
+            regions.remove(region);
+            regions.add(region);
+            return arena;
+        }
+
+        /**
+         * @return true if the arena is the first one listed in its cell
+         */
+        boolean add(Arena arena, String region) {
+            LinkedHashSet<Arena> arenas = byRegion.get(region);
+            boolean first = arenas == null;
+            if (first) {
+                arenas = new LinkedHashSet<>();
+                byRegion.put(region, arenas);
+                byLoad.computeIfAbsent(regionMatches.getOrDefault(region, 0), load -> new LinkedHashSet<>()).add(region);
+            }
+            arenas.add(arena);
+            return first;
+        }
+
+        /**
+         * @return true if the cell has no arenas left in this list
+         */
+        boolean remove(Arena arena, String region) {
+            LinkedHashSet<Arena> arenas = byRegion.get(region);
+            if (arenas == null || !arenas.remove(arena) || !arenas.isEmpty()) return false;
+
+            byRegion.remove(region);
+            unlink(region, regionMatches.getOrDefault(region, 0));
+            return true;
+        }
+
+        void move(String region, int from, int to) {
+            unlink(region, from);
+            byLoad.computeIfAbsent(to, load -> new LinkedHashSet<>()).add(region);
+        }
+
+        private void unlink(String region, int load) {
+            LinkedHashSet<String> regions = byLoad.get(load);
+            regions.remove(region);
+            if (regions.isEmpty()) {
+                byLoad.remove(load);
+            }
+        }
+    }
+
+    private static final class Running {
+        private final String region;
+        private int matches;
+
+        private Running(String region) {
+            this.region = region;
+        }
+    }
+}
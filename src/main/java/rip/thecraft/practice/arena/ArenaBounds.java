@@ -0,0 +1,122 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.UUID;
+
+/**
+ * Inclusive block-coordinate box of an arena, computed once when the bounds are set
+ */
+public final class ArenaBounds {
+
+    private final UUID worldId;
+    private final int minX;
+    private final int minY;
+    private final int minZ;
+    private final int maxX;
+    private final int maxY;
+    private final int maxZ;
+
+    public ArenaBounds(UUID worldId, int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        this.worldId = worldId;
+        this.minX = minX;
+        this.minY = minY;
+        this.minZ = minZ;
+        this.maxX = maxX;
+        this.maxY = maxY;
+        this.maxZ = maxZ;
+    }
+
+    public static ArenaBounds of(Location pos1, Location pos2) {
+        return new ArenaBounds(
+            pos1.getWorld().getUID(),
+            Math.min(pos1.getBlockX(), pos2.getBlockX()),
+            Math.min(pos1.getBlockY(), pos2.getBlockY()),
+            Math.min(pos1.getBlockZ(), pos2.getBlockZ()),
+            Math.max(pos1.getBlockX(), pos2.getBlockX()),
+            Math.max(pos1.getBlockY(), pos2.getBlockY()),
+            Math.max(pos1.getBlockZ(), pos2.getBlockZ())
+        );
+    }
+
+    public boolean contains(int x, int y, int z) {
+        return x >= minX && x <= maxX && y >= minY && y <= maxY && z >= minZ && z <= maxZ;
+    }
+
+    public boolean contains(World world, int x, int y, int z) {
+        return world.getUID().equals(worldId) && contains(x, y, z);
+    }
+
+    public boolean contains(Location location) {
+        return location.getWorld() != null
+            && contains(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    public boolean intersects(ArenaBounds other) {
+        return worldId.equals(other.worldId)
+            && minX <= other.maxX && maxX >= other.minX
+            && minY <= other.maxY && maxY >= other.minY
+            && minZ <= other.maxZ && maxZ >= other.minZ;
+    }
+
+    public ArenaBounds offset(int x, int y, int z) {
+        return new ArenaBounds(worldId, minX + x, minY + y, minZ + z, maxX + x, maxY + y, maxZ + z);
+    }
+
+    public UUID getWorldId() {
+        return worldId;
+    }
+
+    public int getMinX() {
+        return minX;
+    }
+
+    public int getMinY() {
+        return minY;
+    }
+
+    public int getMinZ() {
+        return minZ;
+    }
+
+    public int getMaxX() {
+        return maxX;
+    }
+
+    public int getMaxY() {
+        return maxY;
+    }
+
+    public int getMaxZ() {
+        return maxZ;
+    }
+
+    public int getSizeX() {
+        return maxX - minX + 1;
+    }
+
+    public int getSizeY() {
+        return maxY - minY + 1;
+    }
+
+    public int getSizeZ() {
+        return maxZ - minZ + 1;
+    }
+
+    public int getMinChunkX() {
+        return minX >> 4;
+    }
+
+    public int getMinChunkZ() {
+        return minZ >> 4;
+    }
+
+    public int getMaxChunkX() {
+        return maxX >> 4;
+    }
+
+    public int getMaxChunkZ() {
+        return maxZ >> 4;
+    }
+}
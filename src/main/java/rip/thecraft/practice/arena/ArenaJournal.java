@@ -0,0 +1,118 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.block.data.BlockData;
+
+import java.util.BitSet;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Records the original state of every block changed while an arena is occupied.
+ *
+ * Only the first change to a position is kept, so at match end the journal holds
+ * exactly the coordinates players touched and what they looked like before.
+ *
+ * Past MAX_ENTRIES originals, further changes inside the bounds only mark their position,
+ * one bit each. Those positions go back to the snapshot's block, or air when the snapshot
+ * has none there.
+ */
+public final class ArenaJournal {
+
+    // Originals kept with their block data, beyond this only positions are tracked
+    public static final int MAX_ENTRIES = 262144;
+
+    private final Map<Long, BlockData> originals = new ConcurrentHashMap<>();
+    private final ArenaBounds bounds; // Box the overflow positions are indexed in, null if the arena has none
+    private BitSet overflow; // Positions changed after the limit, relative to the bounds, guarded by this
+    private volatile boolean overflowed = false;
+
+    public ArenaJournal(ArenaBounds bounds) {
+        this.bounds = bounds;
+    }
+
+    public void record(int x, int y, int z, BlockData original) {
+        long key = pack(x, y, z);
+        if (originals.size() < MAX_ENTRIES) {
+            originals.putIfAbsent(key, original);
+            return;
+        }
+        if (originals.containsKey(key) || bounds == null || !bounds.contains(x, y, z)) return;
+
+        overflowed = true;
+        synchronized (this) {
+            if (overflow == null) {
+                overflow = new BitSet();
+            }
+            overflow.set(index(x, y, z));
+        }
+    }
+
+    public boolean isOverflowed() {
+        return overflowed;
+    }
+
+    public boolean isEmpty() {
+        return originals.isEmpty();
+    }
+
+    public int size() {
+        return originals.size();
+    }
+
+    /**
+     * Number of positions changed after the limit, their originals weren't kept
+     */
+    public synchronized int getOverflowCount() {
+        return overflow == null ? 0 : overflow.cardinality();
+    }
+
+    public void forEach(ChangeVisitor visitor) {
+        for (Map.Entry<Long, BlockData> entry : originals.entrySet()) {
+            long key = entry.getKey();
+            visitor.visit(unpackX(key), unpackY(key), unpackZ(key), entry.getValue());
+        }
+    }
+
+    /**
+     * Visit the positions changed after the limit, with a null original
+     */
+    public synchronized void forEachOverflow(ChangeVisitor visitor) {
+        if (overflow == null) return;
+
+        int sizeX = bounds.getSizeX();
+        int sizeZ = bounds.getSizeZ();
+        for (int i = overflow.nextSetBit(0); i >= 0; i = overflow.nextSetBit(i + 1)) {
+            int x = i % sizeX;
+            int z = (i / sizeX) % sizeZ;
+            int y = i / sizeX / sizeZ;
+            visitor.visit(bounds.getMinX() + x, bounds.getMinY() + y, bounds.getMinZ() + z, null);
+        }
+    }
+
+    // Same order as the snapshot: X fastest, then Z, then Y
+    private int index(int x, int y, int z) {
+        return ((y - bounds.getMinY()) * bounds.getSizeZ() + (z - bounds.getMinZ())) * bounds.getSizeX() + (x - bounds.getMinX());
+    }
+
+    // Same layout as Minecraft's BlockPos.asLong: 26 bits X, 26 bits Z, 12 bits Y
+    static long pack(int x, int y, int z) {
+        return ((long) (x & 0x3FFFFFF) << 38) | ((long) (z & 0x3FFFFFF) << 12) | (y & 0xFFF);
+    }
+
+    static int unpackX(long key) {
+        return (int) (key >> 38);
+    }
+
+    static int unpackY(long key) {
+        return (int) (key << 52 >> 52);
+    }
+
+    static int unpackZ(long key) {
+        return (int) (key << 26 >> 38);
+    }
+
+    @FunctionalInterface
+    public interface ChangeVisitor {
+        void visit(int x, int y, int z, BlockData original);
+    }
+}
@@ -3,58 +3,299 @@ package rip.thecraft.practice.arena;
 import org.bukkit.Bukkit;
 import org.bukkit.Location;
 import org.bukkit.World;
+import org.bukkit.configuration.ConfigurationSection;
 import org.bukkit.configuration.file.FileConfiguration;
 import org.bukkit.configuration.file.YamlConfiguration;
-import org.bukkit.entity.Item;
 import org.bukkit.plugin.java.JavaPlugin;
 import rip.thecraft.practice.Practice;
+import rip.thecraft.practice.kit.Kit;
+import rip.thecraft.practice.util.PaperAPI;
 
 import java.io.File;
+import java.io.FileOutputStream;
 import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
 import java.util.*;
+import java.util.concurrent.CompletableFuture;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.IntConsumer;
 
 public class ArenaManager {
 
     private final JavaPlugin plugin;
     private final Map<String, Arena> arenas = new ConcurrentHashMap<>();
-    private final File arenaFile;
-    private final FileConfiguration arenaConfig;
+    private final File legacyFile;
+    private final File arenaFolder;
+    private final RegenerationScheduler regenerationScheduler;
+    private final ArenaSpatialIndex spatialIndex = new ArenaSpatialIndex();
+    private final ArenaAllocator allocator;
+    private final LatencyHistogram turnaround = new LatencyHistogram(); // Match end until FREE, across all arenas
+    private final LatencyHistogram warmup = new LatencyHistogram(); // Pairing until the arena's chunks are resident
+    private final LongAdder warmupFailures = new LongAdder(); // Warmups that failed or timed out
+    private final long warmupTimeoutMillis;
+    private final ExecutorService workers;
+    private final Set<String> dirtyArenas = ConcurrentHashMap.newKeySet(); // Arenas whose files are out of date
+    private final Set<String> deletedArenas = ConcurrentHashMap.newKeySet(); // Arenas whose files should be removed
+    private final AtomicBoolean flushScheduled = new AtomicBoolean();
+    private final Object saveLock = new Object();
 
     public ArenaManager(JavaPlugin plugin) {
         this.plugin = plugin;
-        this.arenaFile = new File(plugin.getDataFolder(), "arenas.yml");
-        this.arenaConfig = YamlConfiguration.loadConfiguration(arenaFile);
+        this.legacyFile = new File(plugin.getDataFolder(), "arenas.yml");
+        this.arenaFolder = new File(plugin.getDataFolder(), "arenas");
+        // Folia region sections are 16 chunks wide by default, cells of two sections keep neighbours apart
+        this.allocator = new ArenaAllocator(Math.max(0, plugin.getConfig().getInt("arena.sharding.region-shift", 5)));
+        
+        // Bounded pool for terrain capture and other off-thread arena work
+        int threads = Math.max(1, Math.min(4, Runtime.getRuntime().availableProcessors() - 1));
+        AtomicInteger threadId = new AtomicInteger();
+        this.workers = Executors.newFixedThreadPool(threads, runnable -> {
+            Thread thread = new Thread(runnable, "Practice-Arena-Worker-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        
+        // A match whose chunks aren't resident by then is cancelled
+        this.warmupTimeoutMillis = Math.max(1L, plugin.getConfig().getLong("arena.warmup-timeout-ms", 10000L));
+        
+        // Per-tick time budget for restoring arena terrain
+        double budgetMillis = plugin.getConfig().getDouble("arena.regeneration-budget-ms", 2.0);
+        this.regenerationScheduler = new RegenerationScheduler(plugin, (long) (budgetMillis * 1_000_000L), this::getWaitingDemand);
+        
         loadArenas();
+        
+        // Finish restoring arenas a Folia shutdown left half-built, they stay out of the pool until then
+        for (RegenerationJob job : regenerationScheduler.loadUnfinished(getUnfinishedRegenerationFile(), this::getArena)) {
+            submitRegeneration(job.getArena(), job);
+        }
     }
 
     public void loadArenas() {
+        long start = System.nanoTime();
         arenas.clear();
-        if (!arenaFile.exists()) {
-            saveArenas();
-            return;
+        spatialIndex.clear();
+        allocator.clear();
+        
+        // Each arena has its own file, arenas.yml is only read once to migrate the old layout
+        boolean legacy = legacyFile.exists();
+        List<ConfigurationSection> sections = new ArrayList<>();
+        if (legacy) {
+            FileConfiguration legacyConfig = YamlConfiguration.loadConfiguration(legacyFile);
+            for (String key : legacyConfig.getKeys(false)) {
+                sections.add(legacyConfig.getConfigurationSection(key));
+            }
+        } else {
+            File[] files = arenaFolder.listFiles((dir, fileName) -> fileName.endsWith(".yml"));
+            for (File file : files != null ? files : new File[0]) {
+                YamlConfiguration config = YamlConfiguration.loadConfiguration(file);
+                if (!config.contains("name")) {
+                    plugin.getLogger().warning("Skipping arena file " + file.getName() + ": it has no arena in it");
+                    continue;
+                }
+                sections.add(config);
+            }
         }
 
-        for (String name : arenaConfig.getKeys(false)) {
-            Arena arena = Arena.deserialize(arenaConfig.getConfigurationSection(name));
-            if (arena != null) {
-                arenas.put(name.toLowerCase(), arena);
+        boolean migrated = false;
+        for (ConfigurationSection section : sections) {
+            Arena arena = Arena.deserialize(section);
+            if (arena == null) continue;
+            String name = arena.getName().toLowerCase();
+            
+            if (legacy || arena.isSnapshotDirty()) {
+                // Terrain or metadata came from the old formats and has to be written out again
+                dirtyArenas.add(name);
+                migrated = true;
+            }
+            if (!arena.isSnapshotDirty() && arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
+                // Only map the file and check its header here, blocks are decoded on the worker pool
+                File snapshotFile = getSnapshotFile(name);
+                if (snapshotFile.exists()) {
+                    try {
+                        arena.setMappedSnapshot(ArenaSnapshotFile.map(snapshotFile));
+                    } catch (IOException e) {
+                        plugin.getLogger().severe("Failed to load terrain snapshot for arena " + name + ": " + e.getMessage());
+                    }
+                }
+            }
+            arenas.put(name, arena);
+            spatialIndex.add(arena);
+        }
+        
+        // Instances aren't stored, they're rebuilt from their template on the same grid
+        int instances = 0;
+        for (Arena arena : new ArrayList<>(arenas.values())) {
+            if (arena.getInstanceCount() > 0) {
+                instances += spawnInstances(arena);
+            }
+        }
+        for (Arena arena : arenas.values()) {
+            allocator.update(arena);
+        }
+        long metadataMillis = (System.nanoTime() - start) / 1_000_000L;
+        
+        if (migrated) {
+            plugin.getLogger().info("Migrating " + dirtyArenas.size() + " arenas to per-arena files in " + arenaFolder.getName() + "/");
+            flushDirty();
+            if (legacy && dirtyArenas.isEmpty()) {
+                File backup = new File(legacyFile.getParentFile(), legacyFile.getName() + ".migrated");
+                if (!legacyFile.renameTo(backup)) {
+                    plugin.getLogger().warning("Could not rename " + legacyFile.getName() + ", it will be migrated again on the next start");
+                }
             }
         }
-        plugin.getLogger().info("Loaded " + arenas.size() + " arenas");
+        preloadTerrain(arenas.size() - instances, instances, metadataMillis);
+    }
+
+    /**
+     * Decode every pending snapshot file on the worker pool. Arenas stay out of the allocator
+     * until their own snapshot is ready, and one summary line is logged once all are done.
+     */
+    private void preloadTerrain(int arenaCount, int instanceCount, long metadataMillis) {
+        long start = System.nanoTime();
+        Map<String, Long> timings = new ConcurrentHashMap<>();
+        List<CompletableFuture<Void>> pending = new ArrayList<>();
+        for (Arena arena : arenas.values()) {
+            if (arena.isReady() || arena.isInstance()) continue;
+            
+            pending.add(CompletableFuture.runAsync(() -> {
+                long arenaStart = System.nanoTime();
+                arena.preloadTerrain();
+                timings.put(arena.getName(), (System.nanoTime() - arenaStart) / 1_000_000L);
+                refreshArena(arena);
+            }, workers));
+        }
+        
+        CompletableFuture.allOf(pending.toArray(new CompletableFuture[0])).whenComplete((ignored, error) -> {
+            StringBuilder perArena = new StringBuilder();
+            timings.entrySet().stream()
+                .sorted(Map.Entry.<String, Long>comparingByValue().reversed())
+                .forEach(entry -> perArena.append(perArena.length() == 0 ? "" : ", ").append(entry.getKey()).append(" ").append(entry.getValue()).append("ms"));
+            plugin.getLogger().info("Loaded " + arenaCount + " arenas and " + instanceCount + " instances: metadata in " + metadataMillis
+                + "ms, " + timings.size() + " snapshots decoded in " + ((System.nanoTime() - start) / 1_000_000L) + "ms"
+                + (perArena.length() > 0 ? " (" + perArena + ")" : ""));
+        });
     }
 
+    /**
+     * Queue the arena's files to be rewritten in the background. Instances are saved through their template.
+     */
+    public void saveArena(Arena arena) {
+        String name = (arena.isInstance() ? arena.getTemplate() : arena).getName().toLowerCase();
+        deletedArenas.remove(name);
+        dirtyArenas.add(name);
+        scheduleFlush();
+    }
+
+    /**
+     * Queue every arena to be rewritten in the background
+     */
     public void saveArenas() {
+        for (Arena arena : arenas.values()) {
+            if (!arena.isInstance()) {
+                dirtyArenas.add(arena.getName().toLowerCase());
+            }
+        }
+        scheduleFlush();
+    }
+
+    // At most one flush waits in the pool, saves queued while it runs are picked up by the next one
+    private void scheduleFlush() {
+        if (!flushScheduled.compareAndSet(false, true)) return;
+        
         try {
-            for (Map.Entry<String, Arena> entry : arenas.entrySet()) {
-                arenaConfig.set(entry.getKey(), entry.getValue().serialize());
+            workers.execute(() -> {
+                flushScheduled.set(false);
+                flushDirty();
+            });
+        } catch (RejectedExecutionException e) {
+            // The pool is gone during shutdown, write on this thread instead
+            flushScheduled.set(false);
+            flushDirty();
+        }
+    }
+
+    /**
+     * Write every dirty arena and remove the files of deleted ones. Runs on the worker pool,
+     * and on the calling thread at startup and shutdown.
+     */
+    private void flushDirty() {
+        synchronized (saveLock) {
+            for (String name : new ArrayList<>(deletedArenas)) {
+                deletedArenas.remove(name);
+                deleteFile(getArenaFile(name));
+                deleteFile(getSnapshotFile(name));
+            }
+            
+            for (String name : new ArrayList<>(dirtyArenas)) {
+                dirtyArenas.remove(name);
+                Arena arena = arenas.get(name);
+                if (arena == null || arena.isInstance()) continue;
+                
+                try {
+                    writeArena(name, arena);
+                } catch (IOException e) {
+                    // Keep it dirty so the next save tries again
+                    dirtyArenas.add(name);
+                    plugin.getLogger().severe("Failed to save arena " + arena.getName() + ": " + e.getMessage());
+                }
             }
-            arenaConfig.save(arenaFile);
-        } catch (IOException e) {
-            plugin.getLogger().severe("Failed to save arenas: " + e.getMessage());
         }
     }
 
+    private void writeArena(String name, Arena arena) throws IOException {
+        YamlConfiguration config = new YamlConfiguration();
+        for (Map.Entry<String, Object> entry : arena.serialize().entrySet()) {
+            config.set(entry.getKey(), entry.getValue());
+        }
+        
+        // Terrain is only rewritten when it was captured again since the last save
+        if (arena.isSnapshotDirty()) {
+            ArenaSnapshot snapshot = arena.getTerrainSnapshot();
+            ArenaSnapshotFile.write(getSnapshotFile(name), snapshot);
+            arena.markSnapshotSaved(snapshot);
+        }
+        writeAtomically(getArenaFile(name), config.saveToString().getBytes(StandardCharsets.UTF_8));
+    }
+
+    // Write to a temp file and move it over the target, so a crash mid-save leaves the old file intact
+    private void writeAtomically(File file, byte[] data) throws IOException {
+        File parent = file.getParentFile();
+        if (!parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+        
+        File temp = new File(parent, file.getName() + ".tmp");
+        try (FileOutputStream out = new FileOutputStream(temp)) {
+            out.write(data);
+            out.getFD().sync();
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    private void deleteFile(File file) {
+        if (file.exists() && !file.delete()) {
+            plugin.getLogger().warning("Could not delete " + file.getName());
+        }
+    }
+
+    private File getArenaFile(String arenaName) {
+        return new File(arenaFolder, arenaName.toLowerCase() + ".yml");
+    }
+
+    private File getSnapshotFile(String arenaName) {
+        return new File(arenaFolder, arenaName.toLowerCase() + ".snapshot");
+    }
+
     public boolean createArena(String name, Location spawn1, Location spawn2) {
         if (arenas.containsKey(name.toLowerCase())) {
             return false;
@@ -62,25 +303,161 @@ public class ArenaManager {
 
         Arena arena = new Arena(name, spawn1, spawn2);
         arenas.put(name.toLowerCase(), arena);
-        saveArenas();
+        allocator.update(arena);
+        saveArena(arena);
         return true;
     }
 
-    public boolean setArenaBounds(String name, Location pos1, Location pos2) {
+    /**
+     * Set an arena's bounds and capture its terrain in the background
+     * @param progress receives the capture percentage from worker threads
+     * @return a future completing with the captured snapshot on the global thread, or null if the arena doesn't exist
+     */
+    public CompletableFuture<ArenaSnapshot> setArenaBounds(String name, Location pos1, Location pos2, IntConsumer progress) {
         Arena arena = arenas.get(name.toLowerCase());
         if (arena == null) {
-            return false;
+            return null;
         }
 
-        arena.setBounds(pos1, pos2);
-        saveArenas();
+        // Re-index under the new bounds, the arena stays out of the pool until capture finishes
+        spatialIndex.remove(arena, arena.getBounds());
+        int generation = arena.setBounds(pos1, pos2);
+        spatialIndex.add(arena);
+        allocator.update(arena);
+
+        long start = System.nanoTime();
+        CompletableFuture<ArenaSnapshot> result = new CompletableFuture<>();
+        TerrainCapture.capture(plugin, pos1.getWorld(), arena.getBounds(), workers, Arena::isCapturedMaterial, progress)
+            .whenComplete((snapshot, error) -> PaperAPI.runGlobal(plugin, () -> {
+                if (error != null) {
+                    plugin.getLogger().severe("Failed to capture terrain for arena " + arena.getName() + ": " + error.getMessage());
+                    arena.cancelCapture(generation);
+                    allocator.update(arena);
+                    result.completeExceptionally(error);
+                    return;
+                }
+                
+                long millis = (System.nanoTime() - start) / 1_000_000L;
+                if (!arena.publishTerrain(snapshot, millis, generation)) {
+                    result.cancel(false);
+                    return;
+                }
+                
+                // The template's terrain changed, so lay its instances out again
+                if (arena.getInstanceCount() > 0 && !createInstances(arena, arena.getInstanceCount())) {
+                    removeInstances(arena);
+                    arena.setInstanceCount(0);
+                }
+                allocator.update(arena);
+                saveArena(arena);
+                result.complete(snapshot);
+            }));
+        return result;
+    }
+
+    /**
+     * Paste copies of a template arena onto a grid next to it. Every copy shares the template's
+     * terrain snapshot and joins the pool once its terrain has been pasted.
+     * @return false if a grid slot would overlap another arena
+     */
+    public boolean createInstances(Arena template, int count) {
+        if (template.isInstance() || template.getBounds() == null) {
+            return false;
+        }
+        
+        // Make sure the whole grid is free before touching anything
+        for (int index = 1; index <= count; index++) {
+            int[] offset = getInstanceOffset(template, index);
+            ArenaBounds bounds = template.getBounds().offset(offset[0], 0, offset[1]);
+            Arena overlapping = spatialIndex.findOverlapping(bounds, arena -> arena == template || arena.getTemplate() == template);
+            if (overlapping != null) {
+                plugin.getLogger().warning("Instance " + index + " of arena " + template.getName() + " would overlap arena " + overlapping.getName());
+                return false;
+            }
+        }
+        
+        removeInstances(template);
+        template.setInstanceCount(count);
+        spawnInstances(template);
+        
+        // Paste each copy from the shared snapshot through the budgeted scheduler
+        for (int index = 1; index <= count; index++) {
+            Arena instance = arenas.get(getInstanceKey(template, index));
+            if (instance != null) {
+                regenerateArena(instance);
+            }
+        }
+        saveArena(template);
         return true;
     }
 
+    /**
+     * Register the template's instances without pasting, for when their terrain is already in the world
+     */
+    private int spawnInstances(Arena template) {
+        if (template.getBounds() == null || template.getSpawn1() == null || template.getSpawn2() == null) {
+            return 0;
+        }
+        
+        for (int index = 1; index <= template.getInstanceCount(); index++) {
+            int[] offset = getInstanceOffset(template, index);
+            Arena instance = template.createInstance(index, offset[0], offset[1]);
+            arenas.put(getInstanceKey(template, index), instance);
+            spatialIndex.add(instance);
+            allocator.update(instance);
+        }
+        return template.getInstanceCount();
+    }
+
+    public void removeInstances(Arena template) {
+        Iterator<Arena> iterator = arenas.values().iterator();
+        while (iterator.hasNext()) {
+            Arena arena = iterator.next();
+            if (arena.getTemplate() == template) {
+                spatialIndex.remove(arena, arena.getBounds());
+                allocator.remove(arena);
+                iterator.remove();
+            }
+        }
+    }
+
+    private String getInstanceKey(Arena template, int index) {
+        return (template.getName() + "#" + index).toLowerCase();
+    }
+
+    /**
+     * Grid offset of an instance in blocks. Slot 0 is the template itself, and the cell size is
+     * rounded up to whole chunks so every copy lines up with the template's chunk layout.
+     */
+    private int[] getInstanceOffset(Arena template, int index) {
+        int gap = plugin.getConfig().getInt("arena.instances.gap", 32);
+        int columns = Math.max(1, plugin.getConfig().getInt("arena.instances.columns", 8));
+        int cellX = ((template.getBounds().getSizeX() + gap + 15) >> 4) << 4;
+        int cellZ = ((template.getBounds().getSizeZ() + gap + 15) >> 4) << 4;
+        if (plugin.getConfig().getBoolean("arena.instances.region-aligned", false)) {
+            // Whole region cells plus an empty one between copies, so no two copies share a Folia region section
+            int region = 16 << allocator.getRegionShift();
+            cellX = ((template.getBounds().getSizeX() + region - 1) / region + 1) * region;
+            cellZ = ((template.getBounds().getSizeZ() + region - 1) / region + 1) * region;
+        }
+        return new int[]{(index % columns) * cellX, (index / columns) * cellZ};
+    }
+
     public Arena getArena(String name) {
         return arenas.get(name.toLowerCase());
     }
 
+    /**
+     * Get the arena whose bounds contain the block, or null if it isn't in an arena
+     */
+    public Arena getArenaAt(World world, int x, int y, int z) {
+        return spatialIndex.getArenaAt(world, x, y, z);
+    }
+
+    public Arena getArenaAt(Location location) {
+        return spatialIndex.getArenaAt(location);
+    }
+
     public List<Arena> getAvailableArenas() {
         List<Arena> available = new ArrayList<>();
         for (Arena arena : arenas.values()) {
@@ -101,87 +478,64 @@ public class ArenaManager {
     }
 
     public Arena findAvailableArenaForKit(String kitName) {
-        // Get the kit to check if it's a build kit
         var kit = Practice.getInstance().getKitManager().getKit(kitName);
-        boolean isBuildKit = kit != null && kit.isBuildMode();
-        
-        plugin.getLogger().info("Finding arena for kit: " + kitName + " (build kit: " + isBuildKit + ", total arenas: " + arenas.size() + ")");
-        
-        // First, try to find an arena that's specifically restricted to this kit
-        for (Arena arena : arenas.values()) {
-            if (arena.isAvailableForMatch() && arena.isKitRestricted() && arena.canUseKit(kitName)) {
-                // For build kits, only use build arenas
-                if (isBuildKit && !arena.isBuildArena()) {
-                    continue;
-                }
-                // For non-build kits, don't use build arenas
-                if (!isBuildKit && arena.isBuildArena()) {
-                    continue;
-                }
-                plugin.getLogger().info("Found restricted arena: " + arena.getName() + " for kit: " + kitName);
-                return arena;
-            }
-        }
-        
-        // If no restricted arena found, find any available arena
-        for (Arena arena : arenas.values()) {
-            if (arena.isAvailableForMatch() && !arena.isKitRestricted()) {
-                // For build kits, only use build arenas
-                if (isBuildKit && !arena.isBuildArena()) {
-                    continue;
-                }
-                // For non-build kits, don't use build arenas
-                if (!isBuildKit && arena.isBuildArena()) {
-                    continue;
-                }
-                plugin.getLogger().info("Found available arena: " + arena.getName() + " for kit: " + kitName);
-                return arena;
-            }
-        }
-        
-        // For bot duels specifically, use the less restrictive check
-        // This allows arenas that only have spawn points (no bounds required)
-        for (Arena arena : arenas.values()) {
-            if (arena.isAvailableForBotDuel()) {
-                // For build kits, only use build arenas
-                if (isBuildKit && !arena.isBuildArena()) {
-                    continue;
-                }
-                // For non-build kits, don't use build arenas
-                if (!isBuildKit && arena.isBuildArena()) {
-                    continue;
-                }
-                plugin.getLogger().info("Found bot duel arena: " + arena.getName() + " for kit: " + kitName);
-                return arena;
+        return allocator.allocate(kitName, kit != null && kit.isBuildMode());
+    }
+
+    /**
+     * Take a free arena for the kit from the allocator. Build arenas are reserved until
+     * the match releases them, so this must be followed by useArena.
+     */
+    public Arena findAvailableArenaForKit(Kit kit) {
+        return allocator.allocate(kit.getName(), kit.isBuildMode());
+    }
+
+    /**
+     * Re-file an arena in the allocator after its spawns, kit restriction or build flag changed
+     */
+    public void refreshArena(Arena arena) {
+        allocator.update(arena);
+        for (Arena instance : arenas.values()) {
+            if (instance.getTemplate() == arena) {
+                allocator.update(instance);
             }
         }
-        
-        // FALLBACK: If no arena found with the normal logic, try ANY arena with spawn points
-        // This is the emergency fallback for bot duels
-        for (Arena arena : arenas.values()) {
-            if (arena.getSpawn1() != null && arena.getSpawn2() != null && !arena.isUsing()) {
-                plugin.getLogger().info("Found fallback arena: " + arena.getName() + " for kit: " + kitName);
-                return arena;
-            }
+    }
+
+    public ArenaAllocator getAllocator() {
+        return allocator;
+    }
+
+    /**
+     * Turnaround from match end until the arena is FREE again, across every arena
+     */
+    public LatencyHistogram getTurnaround() {
+        return turnaround;
+    }
+
+    /**
+     * Time from pairing until the arena's chunks were loaded, across every match start
+     */
+    public LatencyHistogram getWarmup() {
+        return warmup;
+    }
+
+    /**
+     * Match starts cancelled because the arena's chunks failed to load or timed out
+     */
+    public long getWarmupFailureCount() {
+        return warmupFailures.sum();
+    }
+
+    public Map<ArenaState, Integer> getStateCounts() {
+        Map<ArenaState, Integer> counts = new EnumMap<>(ArenaState.class);
+        for (ArenaState state : ArenaState.values()) {
+            counts.put(state, 0);
         }
-        
-        // Debug: log all arenas and their status
-        plugin.getLogger().info("No suitable arena found for kit: " + kitName);
-        plugin.getLogger().info("Available arenas status:");
         for (Arena arena : arenas.values()) {
-            plugin.getLogger().info("  Arena: " + arena.getName() + 
-                " | Spawn1: " + (arena.getSpawn1() != null) + 
-                " | Spawn2: " + (arena.getSpawn2() != null) + 
-                " | Bounds1: " + (arena.getBoundsPos1() != null) + 
-                " | Bounds2: " + (arena.getBoundsPos2() != null) + 
-                " | InUse: " + arena.isUsing() + 
-                " | BuildArena: " + arena.isBuildArena() + 
-                " | RestrictedKit: " + arena.getRestrictedKit() + 
-                " | AvailableForMatch: " + arena.isAvailableForMatch() + 
-                " | AvailableForBotDuel: " + arena.isAvailableForBotDuel());
+            counts.merge(arena.getState(), 1, Integer::sum);
         }
-        
-        return null;
+        return counts;
     }
 
     public boolean setArenaRestrictedKit(String arenaName, String kitName) {
@@ -191,7 +545,8 @@ public class ArenaManager {
         }
 
         arena.setRestrictedKit(kitName);
-        saveArenas();
+        refreshArena(arena);
+        saveArena(arena);
         return true;
     }
 
@@ -202,39 +557,110 @@ public class ArenaManager {
         }
 
         arena.setRestrictedKit(null);
-        saveArenas();
+        refreshArena(arena);
+        saveArena(arena);
         return true;
     }
 
-    public void releaseArena(Arena arena) {
+    /**
+     * Release a match's hold on an arena. When the last match leaves, the arena is
+     * regenerated and only becomes available again once the returned future completes.
+     */
+    public CompletableFuture<Void> releaseArena(Arena arena) {
         arena.decrementMatches();
+        allocator.matchEnded(arena);
         
         // Only regenerate terrain if no matches are using this arena
-        if (arena.getCurrentMatches() == 0) {
-            // Schedule terrain regeneration with a small delay to ensure match is fully ended
-            // Use PaperAPI for Folia compatibility
-            rip.thecraft.practice.util.PaperAPI.runAtLocation(plugin, arena.getSpawn1(), arena::regenerateTerrain);
+        if (arena.getCurrentMatches() > 0) {
+            return CompletableFuture.completedFuture(null);
         }
+        
+        // Close the journal now so changes made after this point belong to the next match
+        ArenaJournal changes = arena.closeJournal();
+        
+        // Keep the arena out of the pool until the scheduler has restored every block
+        long releasedAt = System.nanoTime();
+        return submitRegeneration(arena, arena.createRegenerationJob(changes)).whenComplete((ignored, error) -> {
+            long millis = (System.nanoTime() - releasedAt) / 1_000_000L;
+            arena.getTurnaround().record(millis);
+            turnaround.record(millis);
+            
+            // The restored terrain no longer needs to stay loaded, unless a new match already came in
+            if (arena.getCurrentMatches() == 0) {
+                ChunkWarmer.release(plugin, arena);
+            }
+        });
     }
 
-    public void useArena(Arena arena) {
+    /**
+     * Mark the arena as hosting a match and start loading its chunks under plugin tickets
+     * @return a future completing with the chunk load latency in milliseconds once the arena is resident,
+     *         or exceptionally if a chunk failed to load or they took longer than arena.warmup-timeout-ms
+     */
+    public CompletableFuture<Long> useArena(Arena arena) {
         arena.incrementMatches();
+        allocator.matchStarted(arena);
+        arena.openJournal();
+        // Exclusive arenas already left their free list in the allocator, this covers arenas picked by hand
+        allocator.update(arena);
+        
+        return ChunkWarmer.warm(plugin, arena).orTimeout(warmupTimeoutMillis, TimeUnit.MILLISECONDS).whenComplete((millis, error) -> {
+            if (error != null) {
+                warmupFailures.increment();
+            } else {
+                warmup.record(millis);
+            }
+        });
+    }
+
+    public CompletableFuture<Void> regenerateArena(Arena arena) {
+        // Full regeneration from the terrain snapshot, which also clears any remaining items
+        return submitRegeneration(arena, arena.createRegenerationJob(null));
+    }
+
+    private CompletableFuture<Void> submitRegeneration(Arena arena, RegenerationJob job) {
+        arena.beginRegeneration();
+        allocator.remove(arena);
+        return regenerationScheduler.submit(job)
+            .whenComplete((ignored, error) -> {
+                arena.finishRegeneration();
+                allocator.update(arena);
+            });
     }
 
-    public void regenerateArena(Arena arena) {
-        // Regenerate the arena terrain
-        arena.regenerateTerrain();
+    /**
+     * Count players waiting in queues whose kit could be played in this arena
+     */
+    public int getWaitingDemand(Arena arena) {
+        var queueManager = Practice.getInstance().getQueueManager();
+        if (queueManager == null) return 0;
         
-        // Clear any remaining items
-        if (arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
-            clearItemsInBounds(arena.getBoundsPos1(), arena.getBoundsPos2());
+        int waiting = 0;
+        for (var queuesByKit : queueManager.getQueues().values()) {
+            for (var queue : queuesByKit.values()) {
+                var kit = queue.getKit();
+                if (queue.getSize() == 0 || kit == null) continue;
+                if (kit.isBuildMode() == arena.isBuildArena() && arena.canUseKit(kit.getName())) {
+                    waiting += queue.getSize();
+                }
+            }
         }
+        return waiting;
+    }
+
+    public RegenerationScheduler getRegenerationScheduler() {
+        return regenerationScheduler;
     }
 
     public boolean deleteArena(String name) {
-        if (arenas.remove(name.toLowerCase()) != null) {
-            arenaConfig.set(name.toLowerCase(), null);
-            saveArenas();
+        Arena removed = arenas.remove(name.toLowerCase());
+        if (removed != null) {
+            spatialIndex.remove(removed, removed.getBounds());
+            allocator.remove(removed);
+            removeInstances(removed);
+            dirtyArenas.remove(name.toLowerCase());
+            deletedArenas.add(name.toLowerCase());
+            scheduleFlush();
             return true;
         }
         return false;
@@ -244,40 +670,26 @@ public class ArenaManager {
         return arenas.keySet();
     }
 
+    private File getUnfinishedRegenerationFile() {
+        return new File(plugin.getDataFolder(), "regeneration.dat");
+    }
+
+    /**
+     * Call after the running matches have ended, so their arenas are already queued for regeneration
+     */
     public void shutdown() {
-        saveArenas();
+        regenerationScheduler.shutdown(getUnfinishedRegenerationFile());
+        workers.shutdownNow();
+        // Finish pending saves on this thread, waiting for a flush that is already running
+        flushDirty();
     }
     
     public void clearAllArenaItems() {
-        // Clear items from all arenas
+        // Clear items from all arenas, each on the region that owns it
         for (Arena arena : arenas.values()) {
-            if (arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
-                clearItemsInBounds(arena.getBoundsPos1(), arena.getBoundsPos2());
+            if (arena.getBounds() != null) {
+                PaperAPI.runAtLocation(plugin, arena.getBoundsPos1(), arena::clearItemsInBounds);
             }
         }
     }
-    
-    private void clearItemsInBounds(Location pos1, Location pos2) {
-        if (pos1 == null || pos2 == null) return;
-        
-        World world = pos1.getWorld();
-        
-        int minX = Math.min(pos1.getBlockX(), pos2.getBlockX());
-        int maxX = Math.max(pos1.getBlockX(), pos2.getBlockX());
-        int minY = Math.min(pos1.getBlockY(), pos2.getBlockY());
-        int maxY = Math.max(pos1.getBlockY(), pos2.getBlockY());
-        int minZ = Math.min(pos1.getBlockZ(), pos2.getBlockZ());
-        int maxZ = Math.max(pos1.getBlockZ(), pos2.getBlockZ());
-        
-        // Get all entities in the arena bounds and remove items
-        world.getEntities().stream()
-            .filter(entity -> entity instanceof Item)
-            .filter(entity -> {
-                Location entityLoc = entity.getLocation();
-                return entityLoc.getX() >= minX && entityLoc.getX() <= maxX &&
-                       entityLoc.getY() >= minY && entityLoc.getY() <= maxY &&
-                       entityLoc.getZ() >= minZ && entityLoc.getZ() <= maxZ;
-            })
-            .forEach(org.bukkit.entity.Entity::remove);
-    }
 }
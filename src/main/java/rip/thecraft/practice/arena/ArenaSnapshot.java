@@ -0,0 +1,284 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.Material;
+import org.bukkit.block.data.BlockData;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, compact copy of an arena's original terrain.
+ *
+ * Positions are stored as sorted int indices relative to the arena's min corner
+ * and every entry points into a small BlockData palette through a bit-packed array,
+ * so a saved block costs a few bytes instead of a Location plus a map entry.
+ */
+public final class ArenaSnapshot {
+
+    public static final ArenaSnapshot EMPTY = new ArenaSnapshot(0, 0, 0, new int[0], new BlockData[0], new long[0], 1);
+
+    // Rough per-entry cost of the old HashMap<Location, Material>: Location object, HashMap.Node and table slot
+    private static final int LEGACY_BYTES_PER_ENTRY = 56 + 32 + 8;
+
+    private final int sizeX;
+    private final int sizeY;
+    private final int sizeZ;
+    private final int[] indices;
+    private final BlockData[] palette;
+    private final long[] packedIds;
+    private final int bitsPerEntry;
+
+    private ArenaSnapshot(int sizeX, int sizeY, int sizeZ, int[] indices, BlockData[] palette, long[] packedIds, int bitsPerEntry) {
+        this.sizeX = sizeX;
+        this.sizeY = sizeY;
+        this.sizeZ = sizeZ;
+        this.indices = indices;
+        this.palette = palette;
+        this.packedIds = packedIds;
+        this.bitsPerEntry = bitsPerEntry;
+    }
+
+    public static Builder builder(int sizeX, int sizeY, int sizeZ) {
+        return new Builder(sizeX, sizeY, sizeZ);
+    }
+
+    // Rebuild a snapshot from its raw arrays, as written by ArenaSnapshotFile
+    static ArenaSnapshot fromRaw(int sizeX, int sizeY, int sizeZ, int[] indices, BlockData[] palette, long[] packedIds, int bitsPerEntry) {
+        return new ArenaSnapshot(sizeX, sizeY, sizeZ, indices, palette, packedIds, bitsPerEntry);
+    }
+
+    /**
+     * Pack already sorted, unique indices and their palette ids into a snapshot
+     */
+    static ArenaSnapshot fromSorted(int sizeX, int sizeY, int sizeZ, int[] indices, int[] ids, BlockData[] palette) {
+        int bits = bitsFor(palette.length);
+        long[] packed = new long[(int) (((long) indices.length * bits + 63) >>> 6)];
+        for (int i = 0; i < ids.length; i++) {
+            writeId(packed, i, bits, ids[i]);
+        }
+        return new ArenaSnapshot(sizeX, sizeY, sizeZ, indices, palette, packed, bits);
+    }
+
+    int[] rawIndices() {
+        return indices;
+    }
+
+    BlockData[] rawPalette() {
+        return palette;
+    }
+
+    long[] rawPackedIds() {
+        return packedIds;
+    }
+
+    int getBitsPerEntry() {
+        return bitsPerEntry;
+    }
+
+    public int size() {
+        return indices.length;
+    }
+
+    public boolean isEmpty() {
+        return indices.length == 0;
+    }
+
+    public int getSizeX() {
+        return sizeX;
+    }
+
+    public int getSizeY() {
+        return sizeY;
+    }
+
+    public int getSizeZ() {
+        return sizeZ;
+    }
+
+    public int getVolume() {
+        return sizeX * sizeY * sizeZ;
+    }
+
+    public List<BlockData> getPalette() {
+        return Arrays.asList(palette.clone());
+    }
+
+    // Relative X of the entry at the given position in this snapshot
+    public int getX(int entry) {
+        return indices[entry] % sizeX;
+    }
+
+    public int getY(int entry) {
+        return indices[entry] / (sizeX * sizeZ);
+    }
+
+    public int getZ(int entry) {
+        return (indices[entry] / sizeX) % sizeZ;
+    }
+
+    public BlockData getBlockData(int entry) {
+        return palette[paletteId(entry)];
+    }
+
+    public Material getMaterial(int entry) {
+        return getBlockData(entry).getMaterial();
+    }
+
+    /**
+     * Check whether the snapshot holds a block at the given position relative to the min corner
+     */
+    public boolean contains(int relX, int relY, int relZ) {
+        return find(relX, relY, relZ) >= 0;
+    }
+
+    /**
+     * Get the original block data at a position relative to the min corner, or null if none was captured
+     */
+    public BlockData getBlockData(int relX, int relY, int relZ) {
+        int entry = find(relX, relY, relZ);
+        return entry >= 0 ? getBlockData(entry) : null;
+    }
+
+    private int find(int relX, int relY, int relZ) {
+        if (relX < 0 || relY < 0 || relZ < 0 || relX >= sizeX || relY >= sizeY || relZ >= sizeZ) {
+            return -1;
+        }
+        int entry = Arrays.binarySearch(indices, index(relX, relY, relZ));
+        return entry >= 0 ? entry : -1;
+    }
+
+    private int index(int relX, int relY, int relZ) {
+        return (relY * sizeZ + relZ) * sizeX + relX;
+    }
+
+    // Palette position of the entry's block data
+    int getPaletteId(int entry) {
+        return paletteId(entry);
+    }
+
+    private int paletteId(int entry) {
+        long bitIndex = (long) entry * bitsPerEntry;
+        int word = (int) (bitIndex >>> 6);
+        int offset = (int) (bitIndex & 63);
+        long mask = (1L << bitsPerEntry) - 1;
+        long value = packedIds[word] >>> offset;
+        if (offset + bitsPerEntry > 64) {
+            value |= packedIds[word + 1] << (64 - offset);
+        }
+        return (int) (value & mask);
+    }
+
+    /**
+     * Approximate heap usage of this snapshot in bytes
+     */
+    public long estimateMemoryBytes() {
+        return 16L + 4L * indices.length + 8L * packedIds.length + 16L * palette.length;
+    }
+
+    /**
+     * Approximate heap usage the same blocks would need as a HashMap<Location, Material>
+     */
+    public long estimateLegacyMemoryBytes() {
+        return (long) LEGACY_BYTES_PER_ENTRY * indices.length;
+    }
+
+    public String getMemoryReport() {
+        long current = estimateMemoryBytes();
+        long legacy = estimateLegacyMemoryBytes();
+        double saved = legacy == 0 ? 0 : ((double) (legacy - current) / legacy) * 100;
+        return indices.length + " blocks, " + palette.length + " palette entries (" + bitsPerEntry + " bits/block), "
+            + formatBytes(current) + " vs " + formatBytes(legacy) + " as a map (" + String.format("%.1f", saved) + "% saved)";
+    }
+
+    static String formatBytes(long bytes) {
+        if (bytes < 1024) return bytes + " B";
+        if (bytes < 1024 * 1024) return String.format("%.1f KiB", bytes / 1024.0);
+        return String.format("%.1f MiB", bytes / (1024.0 * 1024.0));
+    }
+
+    /**
+     * Collects captured blocks in any order and packs them into an immutable snapshot
+     */
+    public static final class Builder {
+
+        private final int sizeX;
+        private final int sizeY;
+        private final int sizeZ;
+        private final Map<BlockData, Integer> paletteIds = new HashMap<>();
+        private final List<BlockData> palette = new ArrayList<>();
+        private long[] entries = new long[64];
+        private int count = 0;
+
+        private Builder(int sizeX, int sizeY, int sizeZ) {
+            if ((long) sizeX * sizeY * sizeZ > Integer.MAX_VALUE) {
+                throw new IllegalArgumentException("Arena volume too large for a snapshot: " + sizeX + "x" + sizeY + "x" + sizeZ);
+            }
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+        }
+
+        public Builder add(int relX, int relY, int relZ, BlockData data) {
+            if (relX < 0 || relY < 0 || relZ < 0 || relX >= sizeX || relY >= sizeY || relZ >= sizeZ) {
+                return this;
+            }
+            int id = paletteIds.computeIfAbsent(data, key -> {
+                palette.add(key);
+                return palette.size() - 1;
+            });
+            if (count == entries.length) {
+                entries = Arrays.copyOf(entries, entries.length * 2);
+            }
+            int index = (relY * sizeZ + relZ) * sizeX + relX;
+            entries[count++] = ((long) index << 32) | id;
+            return this;
+        }
+
+        public ArenaSnapshot build() {
+            long[] sorted = Arrays.copyOf(entries, count);
+            Arrays.sort(sorted);
+
+            int bits = bitsFor(palette.size());
+            int[] indices = new int[count];
+            long[] packed = new long[(int) (((long) count * bits + 63) >>> 6)];
+
+            int unique = 0;
+            for (int i = 0; i < count; i++) {
+                int index = (int) (sorted[i] >>> 32);
+                int id = (int) sorted[i];
+                // Later captures of the same position win, matching the old map semantics
+                if (unique > 0 && indices[unique - 1] == index) {
+                    unique--;
+                }
+                indices[unique] = index;
+                writeId(packed, unique, bits, id);
+                unique++;
+            }
+
+            if (unique != count) {
+                indices = Arrays.copyOf(indices, unique);
+                packed = Arrays.copyOf(packed, (int) (((long) unique * bits + 63) >>> 6));
+            }
+            return new ArenaSnapshot(sizeX, sizeY, sizeZ, indices, palette.toArray(new BlockData[0]), packed, bits);
+        }
+    }
+
+    private static int bitsFor(int paletteSize) {
+        return Math.max(1, 32 - Integer.numberOfLeadingZeros(Math.max(1, paletteSize - 1)));
+    }
+
+    private static void writeId(long[] packed, int entry, int bits, int id) {
+        long bitIndex = (long) entry * bits;
+        int word = (int) (bitIndex >>> 6);
+        int offset = (int) (bitIndex & 63);
+        long mask = (1L << bits) - 1;
+        packed[word] = (packed[word] & ~(mask << offset)) | (((long) id & mask) << offset);
+        if (offset + bits > 64) {
+            int spill = 64 - offset;
+            packed[word + 1] = (packed[word + 1] & ~(mask >>> spill)) | (((long) id & mask) >>> spill);
+        }
+    }
+}
@@ -0,0 +1,240 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.Bukkit;
+import org.bukkit.block.data.BlockData;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.zip.CRC32;
+import java.util.zip.CheckedOutputStream;
+
+/**
+ * Versioned binary file holding one arena's terrain snapshot.
+ *
+ * Layout (big-endian): magic, version, sizeX, sizeY, sizeZ, encoding (version 2+), palette size,
+ * palette entries as length-prefixed UTF-8 BlockData strings, the block section, and finally a
+ * CRC32 of everything before it.
+ *
+ * The block section is either PACKED (entry count, bits per entry, the sorted index array and the
+ * packed palette id array) or BOXES (box count and BoxEncoder's flat box array). Writers pick
+ * whichever is smaller; version 1 files are always PACKED.
+ */
+public final class ArenaSnapshotFile {
+
+    private static final int MAGIC = 0x43504153; // "CPAS"
+    public static final int VERSION = 2;
+    private static final int HEADER_BYTES = 4 * 5;
+    private static final int CHECKSUM_BYTES = 8;
+
+    private ArenaSnapshotFile() {
+    }
+
+    /**
+     * How the block section of a snapshot file is laid out
+     */
+    public enum Encoding {
+        PACKED,
+        BOXES
+    }
+
+    /**
+     * Write the snapshot to a temp file and atomically move it over the target
+     */
+    public static void write(File file, ArenaSnapshot snapshot) throws IOException {
+        File parent = file.getParentFile();
+        if (parent != null && !parent.exists() && !parent.mkdirs()) {
+            throw new IOException("Could not create " + parent);
+        }
+
+        // Boxes win on flat, blocky builds; packed ids win on noisy terrain
+        int[] boxes = BoxEncoder.canEncode(snapshot) ? BoxEncoder.encode(snapshot) : null;
+        long packedBytes = 8L + 4L * snapshot.size() + 4L + 8L * snapshot.rawPackedIds().length;
+        boolean useBoxes = boxes != null && 4L + 4L * boxes.length < packedBytes;
+
+        File temp = new File(parent, file.getName() + ".tmp");
+        try (FileOutputStream fileOut = new FileOutputStream(temp);
+             BufferedOutputStream buffered = new BufferedOutputStream(fileOut, 1 << 16)) {
+            writeTo(buffered, snapshot, useBoxes ? Encoding.BOXES : Encoding.PACKED, boxes);
+            buffered.flush();
+            fileOut.getFD().sync();
+        }
+
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+
+    /**
+     * Encode the snapshot in memory with a specific encoding, used by the benchmark
+     */
+    public static byte[] encode(ArenaSnapshot snapshot, Encoding encoding) throws IOException {
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        writeTo(bytes, snapshot, encoding, encoding == Encoding.BOXES ? BoxEncoder.encode(snapshot) : null);
+        return bytes.toByteArray();
+    }
+
+    private static void writeTo(OutputStream stream, ArenaSnapshot snapshot, Encoding encoding, int[] boxes) throws IOException {
+        CRC32 crc = new CRC32();
+        DataOutputStream out = new DataOutputStream(new CheckedOutputStream(stream, crc));
+        out.writeInt(MAGIC);
+        out.writeInt(VERSION);
+        out.writeInt(snapshot.getSizeX());
+        out.writeInt(snapshot.getSizeY());
+        out.writeInt(snapshot.getSizeZ());
+        out.writeInt(encoding.ordinal());
+
+        BlockData[] palette = snapshot.rawPalette();
+        out.writeInt(palette.length);
+        for (BlockData data : palette) {
+            byte[] bytes = data.getAsString().getBytes(StandardCharsets.UTF_8);
+            out.writeInt(bytes.length);
+            out.write(bytes);
+        }
+
+        if (encoding == Encoding.BOXES) {
+            out.writeInt(boxes.length / BoxEncoder.INTS_PER_BOX);
+            for (int value : boxes) {
+                out.writeInt(value);
+            }
+        } else {
+            int[] indices = snapshot.rawIndices();
+            long[] packed = snapshot.rawPackedIds();
+            out.writeInt(indices.length);
+            out.writeInt(snapshot.getBitsPerEntry());
+            for (int index : indices) {
+                out.writeInt(index);
+            }
+            out.writeInt(packed.length);
+            for (long word : packed) {
+                out.writeLong(word);
+            }
+        }
+        out.flush();
+
+        // The checksum covers everything above, so it goes straight to the underlying stream
+        new DataOutputStream(stream).writeLong(crc.getValue());
+    }
+
+    /**
+     * Map a snapshot file and validate its header without decoding the block data
+     */
+    public static Mapped map(File file) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long length = channel.size();
+            if (length < HEADER_BYTES + CHECKSUM_BYTES || length > Integer.MAX_VALUE) {
+                throw new IOException("Invalid arena snapshot size " + length + ": " + file);
+            }
+
+            // The mapping stays valid after the channel is closed
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, length);
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not an arena snapshot: " + file);
+            }
+            int version = buffer.getInt(4);
+            if (version < 1 || version > VERSION) {
+                throw new IOException("Unsupported arena snapshot version " + version + ": " + file);
+            }
+            return new Mapped(file, buffer, buffer.getInt(8), buffer.getInt(12), buffer.getInt(16));
+        }
+    }
+
+    /**
+     * Verify the checksum and decode a complete snapshot file held in the buffer
+     */
+    public static ArenaSnapshot decode(ByteBuffer buffer, String source) throws IOException {
+        ByteBuffer data = buffer.duplicate();
+        int bodyLength = data.limit() - CHECKSUM_BYTES;
+        if (bodyLength < HEADER_BYTES || data.getInt(0) != MAGIC) {
+            throw new IOException("Not an arena snapshot: " + source);
+        }
+
+        CRC32 crc = new CRC32();
+        ByteBuffer body = data.duplicate();
+        body.limit(bodyLength);
+        crc.update(body);
+        if (crc.getValue() != data.getLong(bodyLength)) {
+            throw new IOException("Checksum mismatch in arena snapshot " + source);
+        }
+
+        try {
+            int version = data.getInt(4);
+            int sizeX = data.getInt(8);
+            int sizeY = data.getInt(12);
+            int sizeZ = data.getInt(16);
+            data.position(HEADER_BYTES);
+            Encoding encoding = version >= 2 ? Encoding.values()[data.getInt()] : Encoding.PACKED;
+
+            int paletteSize = data.getInt();
+            BlockData[] palette = new BlockData[paletteSize];
+            for (int i = 0; i < paletteSize; i++) {
+                byte[] bytes = new byte[data.getInt()];
+                data.get(bytes);
+                palette[i] = Bukkit.createBlockData(new String(bytes, StandardCharsets.UTF_8));
+            }
+
+            if (encoding == Encoding.BOXES) {
+                int[] boxes = new int[data.getInt() * BoxEncoder.INTS_PER_BOX];
+                data.asIntBuffer().get(boxes);
+                return BoxEncoder.decode(sizeX, sizeY, sizeZ, palette, boxes);
+            }
+
+            int count = data.getInt();
+            int bits = data.getInt();
+            int[] indices = new int[count];
+            data.asIntBuffer().get(indices);
+            data.position(data.position() + count * 4);
+
+            long[] packed = new long[data.getInt()];
+            data.asLongBuffer().get(packed);
+            return ArenaSnapshot.fromRaw(sizeX, sizeY, sizeZ, indices, palette, packed, bits);
+        } catch (RuntimeException e) {
+            throw new IOException("Corrupt arena snapshot " + source + ": " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * A mapped, header-validated snapshot file whose blocks are decoded on first use
+     */
+    public static final class Mapped {
+
+        private final File file;
+        private final ByteBuffer buffer;
+        private final int sizeX;
+        private final int sizeY;
+        private final int sizeZ;
+
+        private Mapped(File file, ByteBuffer buffer, int sizeX, int sizeY, int sizeZ) {
+            this.file = file;
+            this.buffer = buffer;
+            this.sizeX = sizeX;
+            this.sizeY = sizeY;
+            this.sizeZ = sizeZ;
+        }
+
+        public int getSizeX() {
+            return sizeX;
+        }
+
+        public int getSizeY() {
+            return sizeY;
+        }
+
+        public int getSizeZ() {
+            return sizeZ;
+        }
+
+        public ArenaSnapshot decode() throws IOException {
+            return ArenaSnapshotFile.decode(buffer, file.getName());
+        }
+    }
+}
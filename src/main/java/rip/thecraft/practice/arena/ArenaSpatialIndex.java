@@ -0,0 +1,121 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+
+import java.util.Arrays;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Predicate;
+
+/**
+ * Maps chunk coordinates to the arenas overlapping them, so finding the arena that
+ * contains a block is one hash lookup plus a box check instead of a scan of every arena.
+ *
+ * Buckets are small copy-on-write arrays, so lookups never lock and are safe from any region thread.
+ */
+public class ArenaSpatialIndex {
+
+    private static final Arena[] NONE = new Arena[0];
+
+    private final Map<UUID, Map<Long, Arena[]>> worlds = new ConcurrentHashMap<>();
+
+    /**
+     * Index an arena under every chunk its bounds touch. Arenas without bounds are ignored.
+     */
+    public void add(Arena arena) {
+        ArenaBounds bounds = arena.getBounds();
+        if (bounds == null) return;
+
+        Map<Long, Arena[]> chunks = worlds.computeIfAbsent(bounds.getWorldId(), id -> new ConcurrentHashMap<>());
+        for (int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+            for (int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                chunks.merge(chunkKey(chunkX, chunkZ), new Arena[]{arena}, (current, added) -> {
+                    for (Arena existing : current) {
+                        if (existing == arena) return current;
+                    }
+                    Arena[] grown = Arrays.copyOf(current, current.length + 1);
+                    grown[current.length] = arena;
+                    return grown;
+                });
+            }
+        }
+    }
+
+    /**
+     * Remove an arena from every chunk it was indexed under, using the bounds it was added with
+     */
+    public void remove(Arena arena, ArenaBounds bounds) {
+        if (bounds == null) return;
+
+        Map<Long, Arena[]> chunks = worlds.get(bounds.getWorldId());
+        if (chunks == null) return;
+
+        for (int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+            for (int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                chunks.computeIfPresent(chunkKey(chunkX, chunkZ), (key, current) -> {
+                    Arena[] kept = Arrays.stream(current).filter(existing -> existing != arena).toArray(Arena[]::new);
+                    return kept.length == 0 ? null : kept;
+                });
+            }
+        }
+    }
+
+    public void clear() {
+        worlds.clear();
+    }
+
+    /**
+     * Get the arena containing the block, or null if it isn't inside any arena
+     */
+    public Arena getArenaAt(World world, int x, int y, int z) {
+        Map<Long, Arena[]> chunks = worlds.get(world.getUID());
+        if (chunks == null) return null;
+
+        Arena[] candidates = chunks.getOrDefault(chunkKey(x >> 4, z >> 4), NONE);
+        for (Arena arena : candidates) {
+            ArenaBounds bounds = arena.getBounds();
+            if (bounds != null && bounds.contains(x, y, z)) {
+                return arena;
+            }
+        }
+        return null;
+    }
+
+    public Arena getArenaAt(Location location) {
+        if (location.getWorld() == null) return null;
+        return getArenaAt(location.getWorld(), location.getBlockX(), location.getBlockY(), location.getBlockZ());
+    }
+
+    /**
+     * Find any indexed arena whose bounds overlap the box, skipping arenas the filter accepts
+     */
+    public Arena findOverlapping(ArenaBounds bounds, Predicate<Arena> ignore) {
+        Map<Long, Arena[]> chunks = worlds.get(bounds.getWorldId());
+        if (chunks == null) return null;
+
+        for (int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+            for (int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                for (Arena arena : chunks.getOrDefault(chunkKey(chunkX, chunkZ), NONE)) {
+                    if (!ignore.test(arena) && arena.getBounds() != null && arena.getBounds().intersects(bounds)) {
+                        return arena;
+                    }
+                }
+            }
+        }
+        return null;
+    }
+
+    public int getIndexedChunks() {
+        int total = 0;
+        for (Map<Long, Arena[]> chunks : worlds.values()) {
+            total += chunks.size();
+        }
+        return total;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return ((long) chunkX << 32) | (chunkZ & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,13 @@
+package rip.thecraft.practice.arena;
+
+/**
+ * Where an arena is in its match lifecycle. New matches only go to FREE arenas; shared
+ * (non-build) arenas also take further matches while RESERVED or IN_MATCH.
+ */
+public enum ArenaState {
+    FREE,         // Terrain is clean and the arena is waiting in the allocator
+    RESERVED,     // Handed out by the allocator, the match hasn't started yet
+    IN_MATCH,     // At least one match is running in it
+    REGENERATING, // The last match ended and the terrain is being restored
+    WARMING       // Terrain is still being loaded and can't be pasted or played on yet
+}
@@ -0,0 +1,173 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.block.data.BlockData;
+
+import java.util.Arrays;
+
+/**
+ * Encodes a snapshot as axis-aligned boxes of identical block data.
+ *
+ * The snapshot is expanded into a dense voxel array, then every Y layer is swept once: runs
+ * along X are merged with the identical run in the previous Z row, and the resulting
+ * rectangles are merged with the identical rectangle in the previous layer. Each merge is a
+ * single array lookup, so encoding and decoding are linear in the arena's volume.
+ *
+ * Boxes are stored flat as {paletteId, minX, minY, minZ, maxX, maxY, maxZ}, relative to the min corner.
+ */
+final class BoxEncoder {
+
+    static final int INTS_PER_BOX = 7;
+
+    // Largest volume we are willing to expand into a dense array (64 MiB of ints)
+    static final int MAX_VOLUME = 16 * 1024 * 1024;
+
+    private static final int EMPTY = -1;
+
+    private BoxEncoder() {
+    }
+
+    static boolean canEncode(ArenaSnapshot snapshot) {
+        return (long) snapshot.getSizeX() * snapshot.getSizeY() * snapshot.getSizeZ() <= MAX_VOLUME;
+    }
+
+    static int[] encode(ArenaSnapshot snapshot) {
+        int sizeX = snapshot.getSizeX();
+        int sizeY = snapshot.getSizeY();
+        int sizeZ = snapshot.getSizeZ();
+        if (snapshot.isEmpty()) return new int[0];
+
+        int[] grid = new int[sizeX * sizeY * sizeZ];
+        Arrays.fill(grid, EMPTY);
+        int[] indices = snapshot.rawIndices();
+        for (int i = 0; i < indices.length; i++) {
+            grid[indices[i]] = snapshot.getPaletteId(i);
+        }
+
+        IntList boxes = new IntList(Math.max(16, indices.length / 8) * INTS_PER_BOX);
+        // Rectangles of the current layer, and which one is still open at each X start
+        IntList rects = new IntList(64 * 5);
+        int[] openAtX = new int[sizeX];
+        // Box that starts at each (x, z) origin, extended upwards while layers match
+        int[] boxAtOrigin = new int[sizeX * sizeZ];
+        Arrays.fill(boxAtOrigin, EMPTY);
+
+        for (int y = 0; y < sizeY; y++) {
+            rects.clear();
+            Arrays.fill(openAtX, EMPTY);
+            int layer = y * sizeX * sizeZ;
+
+            // Runs along X, merged with the identical run in the previous row
+            for (int z = 0; z < sizeZ; z++) {
+                int row = layer + z * sizeX;
+                int x = 0;
+                while (x < sizeX) {
+                    int id = grid[row + x];
+                    if (id == EMPTY) {
+                        x++;
+                        continue;
+                    }
+                    int start = x;
+                    while (x + 1 < sizeX && grid[row + x + 1] == id) {
+                        x++;
+                    }
+
+                    int open = openAtX[start];
+                    if (open != EMPTY && rects.get(open + 1) == x && rects.get(open + 3) == z - 1 && rects.get(open + 4) == id) {
+                        rects.set(open + 3, z);
+                    } else {
+                        openAtX[start] = rects.size();
+                        rects.add(start, x, z, z, id);
+                    }
+                    x++;
+                }
+            }
+
+            // Rectangles merged with the identical rectangle in the previous layer
+            for (int r = 0; r < rects.size(); r += 5) {
+                int minX = rects.get(r);
+                int maxX = rects.get(r + 1);
+                int minZ = rects.get(r + 2);
+                int maxZ = rects.get(r + 3);
+                int id = rects.get(r + 4);
+
+                int origin = minZ * sizeX + minX;
+                int box = boxAtOrigin[origin];
+                if (box != EMPTY && boxes.get(box) == id && boxes.get(box + 5) == y - 1
+                    && boxes.get(box + 4) == maxX && boxes.get(box + 6) == maxZ) {
+                    boxes.set(box + 5, y);
+                } else {
+                    boxAtOrigin[origin] = boxes.size();
+                    boxes.add(id, minX, y, minZ, maxX, y, maxZ);
+                }
+            }
+        }
+        return boxes.toArray();
+    }
+
+    static ArenaSnapshot decode(int sizeX, int sizeY, int sizeZ, BlockData[] palette, int[] boxes) {
+        int[] grid = new int[sizeX * sizeY * sizeZ];
+        Arrays.fill(grid, EMPTY);
+        int count = 0;
+        for (int b = 0; b < boxes.length; b += INTS_PER_BOX) {
+            int id = boxes[b];
+            for (int y = boxes[b + 2]; y <= boxes[b + 5]; y++) {
+                for (int z = boxes[b + 3]; z <= boxes[b + 6]; z++) {
+                    int row = (y * sizeZ + z) * sizeX;
+                    Arrays.fill(grid, row + boxes[b + 1], row + boxes[b + 4] + 1, id);
+                }
+            }
+            count += (boxes[b + 4] - boxes[b + 1] + 1) * (boxes[b + 5] - boxes[b + 2] + 1) * (boxes[b + 6] - boxes[b + 3] + 1);
+        }
+
+        // Walking the grid in index order yields the sorted arrays the snapshot needs
+        int[] indices = new int[count];
+        int[] ids = new int[count];
+        int entry = 0;
+        for (int index = 0; index < grid.length && entry < count; index++) {
+            if (grid[index] != EMPTY) {
+                indices[entry] = index;
+                ids[entry++] = grid[index];
+            }
+        }
+        return ArenaSnapshot.fromSorted(sizeX, sizeY, sizeZ, entry == count ? indices : Arrays.copyOf(indices, entry),
+            entry == count ? ids : Arrays.copyOf(ids, entry), palette);
+    }
+
+    // Minimal growable int array so encoding doesn't box millions of Integers
+    private static final class IntList {
+        private int[] values;
+        private int size;
+
+        private IntList(int capacity) {
+            this.values = new int[Math.max(8, capacity)];
+        }
+
+        private void add(int... added) {
+            if (size + added.length > values.length) {
+                values = Arrays.copyOf(values, Math.max(values.length * 2, size + added.length));
+            }
+            System.arraycopy(added, 0, values, size, added.length);
+            size += added.length;
+        }
+
+        private int get(int index) {
+            return values[index];
+        }
+
+        private void set(int index, int value) {
+            values[index] = value;
+        }
+
+        private int size() {
+            return size;
+        }
+
+        private void clear() {
+            size = 0;
+        }
+
+        private int[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
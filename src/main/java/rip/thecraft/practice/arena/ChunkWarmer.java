@@ -0,0 +1,92 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.plugin.Plugin;
+import rip.thecraft.practice.util.PaperAPI;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Keeps an arena's chunks resident while it hosts a match. Each chunk gets a plugin chunk
+ * ticket and is loaded asynchronously on the region that owns it, so players are only
+ * teleported in once the terrain is there.
+ */
+final class ChunkWarmer {
+
+    private ChunkWarmer() {
+    }
+
+    /**
+     * Ticket and load every chunk the arena covers
+     * @return a future completing with the load latency in milliseconds once all chunks are resident
+     */
+    static CompletableFuture<Long> warm(Plugin plugin, Arena arena) {
+        long start = System.nanoTime();
+        World world = arena.getSpawn1().getWorld();
+        List<CompletableFuture<?>> loads = new ArrayList<>();
+        for (long chunkKey : getChunkKeys(arena)) {
+            int chunkX = (int) chunkKey;
+            int chunkZ = (int) (chunkKey >> 32);
+            CompletableFuture<Void> load = new CompletableFuture<>();
+            PaperAPI.runAtLocation(plugin, new Location(world, chunkX << 4, 0, chunkZ << 4), () -> {
+                // The match may already be over, don't leave a ticket behind that nothing releases
+                if (arena.getCurrentMatches() == 0) {
+                    load.complete(null);
+                    return;
+                }
+                world.addPluginChunkTicket(chunkX, chunkZ, plugin);
+                world.getChunkAtAsync(chunkX, chunkZ).whenComplete((chunk, error) -> {
+                    if (error != null) {
+                        load.completeExceptionally(error);
+                    } else {
+                        load.complete(null);
+                    }
+                });
+            });
+            loads.add(load);
+        }
+        return CompletableFuture.allOf(loads.toArray(new CompletableFuture[0]))
+            .thenApply(ignored -> (System.nanoTime() - start) / 1_000_000L);
+    }
+
+    /**
+     * Drop the tickets added by warm so the server can unload the chunks again
+     */
+    static void release(Plugin plugin, Arena arena) {
+        World world = arena.getSpawn1().getWorld();
+        for (long chunkKey : getChunkKeys(arena)) {
+            int chunkX = (int) chunkKey;
+            int chunkZ = (int) (chunkKey >> 32);
+            PaperAPI.runAtLocation(plugin, new Location(world, chunkX << 4, 0, chunkZ << 4),
+                () -> world.removePluginChunkTicket(chunkX, chunkZ, plugin));
+        }
+    }
+
+    // Chunks under the bounds, or just the spawn chunks for arenas without bounds
+    private static long[] getChunkKeys(Arena arena) {
+        ArenaBounds bounds = arena.getBounds();
+        if (bounds == null) {
+            long spawn1 = chunkKey(arena.getSpawn1().getBlockX() >> 4, arena.getSpawn1().getBlockZ() >> 4);
+            long spawn2 = chunkKey(arena.getSpawn2().getBlockX() >> 4, arena.getSpawn2().getBlockZ() >> 4);
+            return spawn1 == spawn2 ? new long[] {spawn1} : new long[] {spawn1, spawn2};
+        }
+
+        int countX = bounds.getMaxChunkX() - bounds.getMinChunkX() + 1;
+        int countZ = bounds.getMaxChunkZ() - bounds.getMinChunkZ() + 1;
+        long[] keys = new long[countX * countZ];
+        int i = 0;
+        for (int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+            for (int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                keys[i++] = chunkKey(chunkX, chunkZ);
+            }
+        }
+        return keys;
+    }
+
+    private static long chunkKey(int chunkX, int chunkZ) {
+        return (chunkX & 0xFFFFFFFFL) | ((long) chunkZ << 32);
+    }
+}
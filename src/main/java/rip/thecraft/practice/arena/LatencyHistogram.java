@@ -0,0 +1,79 @@
+package rip.thecraft.practice.arena;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Fixed-bucket histogram of latencies in milliseconds, such as match end until the arena is FREE again.
+ * Recording is lock-free so it can be fed from any region thread.
+ */
+public final class LatencyHistogram {
+
+    // Upper bound of each bucket in milliseconds, the extra last bucket takes everything above
+    private static final long[] BOUNDS = {50, 100, 250, 500, 1000, 2500, 5000, 10000, 30000};
+
+    private final AtomicLongArray counts = new AtomicLongArray(BOUNDS.length + 1);
+    private final LongAdder totalMillis = new LongAdder();
+    private final AtomicLong maxMillis = new AtomicLong();
+
+    public void record(long millis) {
+        int bucket = 0;
+        while (bucket < BOUNDS.length && millis > BOUNDS[bucket]) {
+            bucket++;
+        }
+        counts.incrementAndGet(bucket);
+        totalMillis.add(millis);
+        maxMillis.accumulateAndGet(millis, Math::max);
+    }
+
+    public long getCount() {
+        long count = 0;
+        for (int i = 0; i < counts.length(); i++) {
+            count += counts.get(i);
+        }
+        return count;
+    }
+
+    public double getAverageMillis() {
+        long count = getCount();
+        return count == 0 ? 0 : (double) totalMillis.sum() / count;
+    }
+
+    public long getMaxMillis() {
+        return maxMillis.get();
+    }
+
+    /**
+     * Upper bound of the bucket holding the given percentile, or the max for the open last bucket
+     */
+    public long getPercentileMillis(double percentile) {
+        long count = getCount();
+        if (count == 0) return 0;
+
+        long target = (long) Math.ceil(count * percentile / 100.0);
+        long seen = 0;
+        for (int i = 0; i < BOUNDS.length; i++) {
+            seen += counts.get(i);
+            if (seen >= target) {
+                return Math.min(BOUNDS[i], getMaxMillis());
+            }
+        }
+        return getMaxMillis();
+    }
+
+    /**
+     * Non-empty buckets as "<=50ms: 3, <=100ms: 12, >30000ms: 1"
+     */
+    public String formatBuckets() {
+        StringBuilder builder = new StringBuilder();
+        for (int i = 0; i < counts.length(); i++) {
+            long count = counts.get(i);
+            if (count == 0) continue;
+
+            if (builder.length() > 0) builder.append(", ");
+            builder.append(i < BOUNDS.length ? "<=" + BOUNDS[i] : ">" + BOUNDS[BOUNDS.length - 1]).append("ms: ").append(count);
+        }
+        return builder.length() == 0 ? "none" : builder.toString();
+    }
+}
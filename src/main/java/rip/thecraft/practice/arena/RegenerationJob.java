@@ -0,0 +1,202 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.block.Block;
+import org.bukkit.block.data.BlockData;
+import rip.thecraft.practice.util.PaperAPI;
+
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.function.Function;
+
+/**
+ * A resumable list of block restores for one arena, worked through by the RegenerationScheduler.
+ * Blocks are grouped by chunk, so a slice can stay within the chunks one Folia region owns.
+ */
+public final class RegenerationJob {
+
+    // Check the clock once per this many blocks to keep System.nanoTime() overhead low
+    private static final int CLOCK_CHECK_INTERVAL = 16;
+
+    private final Arena arena;
+    private final World world;
+    private final int[] coords;
+    private final BlockData[] originals;
+    private final int total;
+    private final CompletableFuture<Void> future = new CompletableFuture<>();
+    private final long submittedAt = System.nanoTime();
+    private volatile int cursor = 0;
+    private volatile boolean dispatched = false;
+
+    RegenerationJob(Arena arena, World world, int[] coords, BlockData[] originals, int total) {
+        this.arena = arena;
+        this.world = world;
+        this.total = total;
+        this.coords = new int[total * 3];
+        this.originals = new BlockData[total];
+        if (total == 0) return;
+
+        // Counting sort by chunk, the blocks within a chunk keep their order
+        int minChunkX = Integer.MAX_VALUE, minChunkZ = Integer.MAX_VALUE;
+        int maxChunkX = Integer.MIN_VALUE, maxChunkZ = Integer.MIN_VALUE;
+        for (int i = 0; i < total; i++) {
+            minChunkX = Math.min(minChunkX, coords[i * 3] >> 4);
+            maxChunkX = Math.max(maxChunkX, coords[i * 3] >> 4);
+            minChunkZ = Math.min(minChunkZ, coords[i * 3 + 2] >> 4);
+            maxChunkZ = Math.max(maxChunkZ, coords[i * 3 + 2] >> 4);
+        }
+        int width = maxChunkX - minChunkX + 1;
+        int[] starts = new int[width * (maxChunkZ - minChunkZ + 1) + 1];
+        for (int i = 0; i < total; i++) {
+            starts[((coords[i * 3 + 2] >> 4) - minChunkZ) * width + (coords[i * 3] >> 4) - minChunkX + 1]++;
+        }
+        for (int cell = 1; cell < starts.length; cell++) {
+            starts[cell] += starts[cell - 1];
+        }
+        for (int i = 0; i < total; i++) {
+            int to = starts[((coords[i * 3 + 2] >> 4) - minChunkZ) * width + (coords[i * 3] >> 4) - minChunkX]++;
+            System.arraycopy(coords, i * 3, this.coords, to * 3, 3);
+            this.originals[to] = originals[i];
+        }
+    }
+
+    /**
+     * Restore blocks until the deadline passes or the job is finished
+     * @param ownedChunksOnly stop at the first chunk the current region doesn't own, for Folia
+     * @return true if the job is complete
+     */
+    boolean step(long deadlineNanos, boolean ownedChunksOnly) {
+        int i = cursor;
+        int chunkX = i < total ? coords[i * 3] >> 4 : 0;
+        int chunkZ = i < total ? coords[i * 3 + 2] >> 4 : 0;
+        while (i < total) {
+            int x = coords[i * 3];
+            int y = coords[i * 3 + 1];
+            int z = coords[i * 3 + 2];
+            if (ownedChunksOnly && ((x >> 4) != chunkX || (z >> 4) != chunkZ)) {
+                // The next chunk may belong to another region, which gets its own slice
+                if (!PaperAPI.isOwnedByCurrentRegion(new Location(world, x, y, z))) break;
+                chunkX = x >> 4;
+                chunkZ = z >> 4;
+            }
+
+            Block block = world.getBlockAt(x, y, z);
+            if (!block.getBlockData().equals(originals[i])) {
+                block.setBlockData(originals[i], false); // No physics update for better performance
+            }
+            i++;
+            if ((i % CLOCK_CHECK_INTERVAL) == 0 && System.nanoTime() >= deadlineNanos) {
+                break;
+            }
+        }
+        cursor = i;
+        return i >= total;
+    }
+
+    /**
+     * Location of the next block to restore, its region runs the next slice on Folia
+     * @return null if the job is complete
+     */
+    Location getNextLocation() {
+        int i = cursor;
+        if (i >= total) return null;
+        return new Location(world, coords[i * 3], coords[i * 3 + 1], coords[i * 3 + 2]);
+    }
+
+    /**
+     * Write the blocks that haven't been restored yet, each distinct block state is stored once
+     */
+    void writeRemaining(DataOutputStream out) throws IOException {
+        int start = cursor;
+        Map<BlockData, Integer> palette = new HashMap<>();
+        List<BlockData> states = new ArrayList<>();
+        for (int i = start; i < total; i++) {
+            if (palette.putIfAbsent(originals[i], states.size()) == null) {
+                states.add(originals[i]);
+            }
+        }
+
+        out.writeUTF(arena.getName());
+        out.writeInt(states.size());
+        for (BlockData state : states) {
+            out.writeUTF(state.getAsString());
+        }
+        out.writeInt(total - start);
+        for (int i = start; i < total; i++) {
+            out.writeInt(coords[i * 3]);
+            out.writeInt(coords[i * 3 + 1]);
+            out.writeInt(coords[i * 3 + 2]);
+            out.writeInt(palette.get(originals[i]));
+        }
+    }
+
+    /**
+     * Read a job written by writeRemaining
+     * @return null if its arena no longer exists, the job is skipped
+     */
+    static RegenerationJob readRemaining(DataInputStream in, Function<String, Arena> arenas) throws IOException {
+        Arena arena = arenas.apply(in.readUTF());
+        BlockData[] states = new BlockData[in.readInt()];
+        for (int i = 0; i < states.length; i++) {
+            String state = in.readUTF();
+            states[i] = arena != null ? Bukkit.createBlockData(state) : null;
+        }
+
+        int total = in.readInt();
+        int[] coords = new int[total * 3];
+        BlockData[] originals = new BlockData[total];
+        for (int i = 0; i < total; i++) {
+            coords[i * 3] = in.readInt();
+            coords[i * 3 + 1] = in.readInt();
+            coords[i * 3 + 2] = in.readInt();
+            int index = in.readInt();
+            if (index < 0 || index >= states.length) {
+                throw new IOException("Block state " + index + " is not in the palette");
+            }
+            originals[i] = states[index];
+        }
+
+        if (arena == null || arena.getBoundsPos1() == null) return null;
+        return new RegenerationJob(arena, arena.getBoundsPos1().getWorld(), coords, originals, total);
+    }
+
+    public Arena getArena() {
+        return arena;
+    }
+
+    public int getTotalBlocks() {
+        return total;
+    }
+
+    public int getRestoredBlocks() {
+        return cursor;
+    }
+
+    public double getProgress() {
+        return total == 0 ? 1.0 : (double) cursor / total;
+    }
+
+    public long getSubmittedAt() {
+        return submittedAt;
+    }
+
+    public CompletableFuture<Void> getFuture() {
+        return future;
+    }
+
+    boolean isDispatched() {
+        return dispatched;
+    }
+
+    void setDispatched(boolean dispatched) {
+        this.dispatched = dispatched;
+    }
+}
@@ -0,0 +1,236 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.Location;
+import org.bukkit.plugin.java.JavaPlugin;
+import rip.thecraft.practice.util.PaperAPI;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.IdentityHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Function;
+import java.util.function.ToIntFunction;
+
+/**
+ * Restores arena terrain a slice at a time so regeneration never takes more than a fixed
+ * number of nanoseconds per tick on any server thread, no matter how many arenas are waiting.
+ *
+ * Jobs are ordered by how many queued players could use the arena, then by submission time.
+ * The budget is per tick and per thread: on Paper every arena shares the main thread's budget,
+ * on Folia the arenas owned by one region thread share that thread's budget. There each slice is
+ * handed to the region owning the chunk it starts in and stops where that region's chunks end.
+ */
+public class RegenerationScheduler {
+
+    private static final int FILE_VERSION = 1;
+
+    private final JavaPlugin plugin;
+    private final long budgetNanos;
+    private final ToIntFunction<Arena> demand;
+    private final List<RegenerationJob> jobs = new CopyOnWriteArrayList<>();
+    private final ThreadLocal<long[]> budgets = ThreadLocal.withInitial(() -> new long[] {-1L, 0L}); // Tick and deadline
+    private volatile long ticks;
+    private volatile boolean running = true;
+
+    public RegenerationScheduler(JavaPlugin plugin, long budgetNanos, ToIntFunction<Arena> demand) {
+        this.plugin = plugin;
+        this.budgetNanos = budgetNanos;
+        this.demand = demand;
+        PaperAPI.runGlobalTimer(plugin, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Queue a job and return a future that completes once every block has been restored
+     */
+    public CompletableFuture<Void> submit(RegenerationJob job) {
+        if (!running) {
+            job.getFuture().complete(null);
+            return job.getFuture();
+        }
+        jobs.add(job);
+        return job.getFuture();
+    }
+
+    private void tick() {
+        if (!running || jobs.isEmpty()) return;
+        ticks++;
+
+        // Score each arena once per tick, then sort by waiting players and age
+        List<RegenerationJob> ordered = new ArrayList<>(jobs);
+        Map<RegenerationJob, Integer> scores = new IdentityHashMap<>();
+        for (RegenerationJob job : ordered) {
+            scores.put(job, demand.applyAsInt(job.getArena()));
+        }
+        ordered.sort(Comparator
+            .comparingInt((RegenerationJob job) -> scores.get(job)).reversed()
+            .thenComparingLong(RegenerationJob::getSubmittedAt));
+
+        if (PaperAPI.isRegionThreaded()) {
+            // Block access must happen on the owning region, the next slice goes to the region of its first chunk
+            for (RegenerationJob job : ordered) {
+                if (job.isDispatched()) continue;
+                Location next = job.getNextLocation();
+                if (next == null) {
+                    runSlice(job, Long.MAX_VALUE, false);
+                    continue;
+                }
+                job.setDispatched(true);
+                PaperAPI.runAtLocation(plugin, next, () -> {
+                    try {
+                        long deadline = deadline();
+                        if (running && System.nanoTime() < deadline) {
+                            runSlice(job, deadline, true);
+                        }
+                    } finally {
+                        job.setDispatched(false);
+                    }
+                });
+            }
+            return;
+        }
+
+        // Single main thread: every arena shares one budget, highest priority first
+        long deadline = deadline();
+        for (RegenerationJob job : ordered) {
+            runSlice(job, deadline, false);
+            if (System.nanoTime() >= deadline) break;
+        }
+    }
+
+    // The first slice a thread runs in a tick starts that thread's budget, later ones share it
+    private long deadline() {
+        long[] budget = budgets.get();
+        long tick = ticks;
+        if (budget[0] != tick) {
+            budget[0] = tick;
+            budget[1] = System.nanoTime() + budgetNanos;
+        }
+        return budget[1];
+    }
+
+    private void runSlice(RegenerationJob job, long deadline, boolean ownedChunksOnly) {
+        boolean done;
+        try {
+            done = job.step(deadline, ownedChunksOnly);
+        } catch (Exception e) {
+            plugin.getLogger().severe("Failed to regenerate arena " + job.getArena().getName() + ": " + e.getMessage());
+            jobs.remove(job);
+            job.getFuture().completeExceptionally(e);
+            return;
+        }
+
+        if (done && jobs.remove(job)) {
+            finish(job);
+        }
+    }
+
+    // Clear all items in the arena bounds once the terrain is back, on the region holding its corner
+    private void finish(RegenerationJob job) {
+        Arena arena = job.getArena();
+        Location corner = arena.getBoundsPos1();
+        if (!PaperAPI.isRegionThreaded() || corner == null || PaperAPI.isOwnedByCurrentRegion(corner)) {
+            arena.clearItemsInBounds();
+            job.getFuture().complete(null);
+            return;
+        }
+        PaperAPI.runAtLocation(plugin, corner, () -> {
+            arena.clearItemsInBounds();
+            job.getFuture().complete(null);
+        });
+    }
+
+    /**
+     * Get the pending job for an arena, or null if it isn't regenerating
+     */
+    public RegenerationJob getJob(Arena arena) {
+        for (RegenerationJob job : jobs) {
+            if (job.getArena() == arena) {
+                return job;
+            }
+        }
+        return null;
+    }
+
+    public List<RegenerationJob> getPendingJobs() {
+        return new ArrayList<>(jobs);
+    }
+
+    public long getBudgetNanos() {
+        return budgetNanos;
+    }
+
+    /**
+     * Stop regenerating. On Paper the disabling thread is the main thread, so outstanding work is
+     * finished right here and arenas aren't left half-built on disk. On Folia the blocks belong to
+     * region threads, so the unfinished jobs are written to the file and restored on the next start.
+     */
+    public void shutdown(File file) {
+        running = false;
+        List<RegenerationJob> remaining = new ArrayList<>(jobs);
+        if (!PaperAPI.isRegionThreaded()) {
+            for (RegenerationJob job : remaining) {
+                runSlice(job, Long.MAX_VALUE, false);
+            }
+            return;
+        }
+
+        remaining.removeIf(job -> job.getNextLocation() == null);
+        if (remaining.isEmpty()) return;
+
+        File temp = new File(file.getParentFile(), file.getName() + ".tmp");
+        try {
+            try (DataOutputStream out = new DataOutputStream(new BufferedOutputStream(Files.newOutputStream(temp.toPath())))) {
+                out.writeInt(FILE_VERSION);
+                out.writeInt(remaining.size());
+                for (RegenerationJob job : remaining) {
+                    job.writeRemaining(out);
+                }
+            }
+            Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+            plugin.getLogger().info("Saved unfinished regeneration of " + remaining.size() + " arenas, it resumes on the next start");
+        } catch (IOException e) {
+            plugin.getLogger().severe("Failed to save unfinished arena regeneration: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Read the jobs a Folia shutdown left in the file and delete it
+     * @return the jobs whose arenas still exist, not submitted yet
+     */
+    public List<RegenerationJob> loadUnfinished(File file, Function<String, Arena> arenas) {
+        List<RegenerationJob> loaded = new ArrayList<>();
+        if (!file.exists()) return loaded;
+
+        try (DataInputStream in = new DataInputStream(new BufferedInputStream(Files.newInputStream(file.toPath())))) {
+            int version = in.readInt();
+            if (version != FILE_VERSION) {
+                throw new IOException("Unsupported version " + version);
+            }
+            int count = in.readInt();
+            for (int i = 0; i < count; i++) {
+                RegenerationJob job = RegenerationJob.readRemaining(in, arenas);
+                if (job != null) {
+                    loaded.add(job);
+                }
+            }
+        } catch (IOException | IllegalArgumentException e) {
+            plugin.getLogger().severe("Failed to read unfinished arena regeneration from " + file.getName() + ": " + e.getMessage());
+        }
+
+        if (!file.delete()) {
+            plugin.getLogger().warning("Could not delete " + file.getName() + ", it will be replayed again on the next start");
+        }
+        return loaded;
+    }
+}
@@ -0,0 +1,122 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.ChunkSnapshot;
+import org.bukkit.Location;
+import org.bukkit.Material;
+import org.bukkit.World;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.plugin.Plugin;
+import rip.thecraft.practice.util.PaperAPI;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.IntConsumer;
+import java.util.function.Predicate;
+
+/**
+ * Captures an arena's terrain without blocking the server: every chunk in the bounds is loaded
+ * and snapshotted on its owning region thread, then scanned on the worker pool.
+ */
+final class TerrainCapture {
+
+    private TerrainCapture() {
+    }
+
+    /**
+     * Capture every block in the bounds that the filter keeps
+     * @param progress receives the completed percentage after each chunk, from any thread
+     */
+    static CompletableFuture<ArenaSnapshot> capture(Plugin plugin, World world, ArenaBounds bounds, Executor workers,
+                                                    Predicate<Material> keep, IntConsumer progress) {
+        int chunkCountX = bounds.getMaxChunkX() - bounds.getMinChunkX() + 1;
+        int chunkCountZ = bounds.getMaxChunkZ() - bounds.getMinChunkZ() + 1;
+        int totalChunks = chunkCountX * chunkCountZ;
+        AtomicInteger completed = new AtomicInteger();
+
+        List<CompletableFuture<ChunkBlocks>> chunks = new ArrayList<>(totalChunks);
+        for (int chunkX = bounds.getMinChunkX(); chunkX <= bounds.getMaxChunkX(); chunkX++) {
+            for (int chunkZ = bounds.getMinChunkZ(); chunkZ <= bounds.getMaxChunkZ(); chunkZ++) {
+                chunks.add(snapshotChunk(plugin, world, chunkX, chunkZ)
+                    .thenApplyAsync(snapshot -> {
+                        ChunkBlocks blocks = scan(snapshot, bounds, keep);
+                        progress.accept(completed.incrementAndGet() * 100 / totalChunks);
+                        return blocks;
+                    }, workers));
+            }
+        }
+
+        return CompletableFuture.allOf(chunks.toArray(new CompletableFuture[0])).thenApplyAsync(ignored -> {
+            // Chunks are scanned independently, merging them into one builder is cheap
+            ArenaSnapshot.Builder builder = ArenaSnapshot.builder(bounds.getSizeX(), bounds.getSizeY(), bounds.getSizeZ());
+            for (CompletableFuture<ChunkBlocks> chunk : chunks) {
+                ChunkBlocks blocks = chunk.join();
+                for (int i = 0; i < blocks.count; i++) {
+                    builder.add(blocks.coords[i * 3], blocks.coords[i * 3 + 1], blocks.coords[i * 3 + 2], blocks.data[i]);
+                }
+            }
+            return builder.build();
+        }, workers);
+    }
+
+    // Load the chunk and take a snapshot of it on the thread that owns it
+    private static CompletableFuture<ChunkSnapshot> snapshotChunk(Plugin plugin, World world, int chunkX, int chunkZ) {
+        CompletableFuture<ChunkSnapshot> future = new CompletableFuture<>();
+        Location location = new Location(world, chunkX << 4, 0, chunkZ << 4);
+        PaperAPI.runAtLocation(plugin, location, () -> world.getChunkAtAsync(chunkX, chunkZ).whenComplete((chunk, error) -> {
+            if (error != null) {
+                future.completeExceptionally(error);
+                return;
+            }
+            try {
+                future.complete(chunk.getChunkSnapshot(false, false, false));
+            } catch (Exception e) {
+                future.completeExceptionally(e);
+            }
+        }));
+        return future;
+    }
+
+    private static ChunkBlocks scan(ChunkSnapshot snapshot, ArenaBounds bounds, Predicate<Material> keep) {
+        int baseX = snapshot.getX() << 4;
+        int baseZ = snapshot.getZ() << 4;
+        int fromX = Math.max(bounds.getMinX(), baseX);
+        int toX = Math.min(bounds.getMaxX(), baseX + 15);
+        int fromZ = Math.max(bounds.getMinZ(), baseZ);
+        int toZ = Math.min(bounds.getMaxZ(), baseZ + 15);
+
+        ChunkBlocks blocks = new ChunkBlocks();
+        for (int y = bounds.getMinY(); y <= bounds.getMaxY(); y++) {
+            for (int z = fromZ; z <= toZ; z++) {
+                for (int x = fromX; x <= toX; x++) {
+                    Material material = snapshot.getBlockType(x - baseX, y, z - baseZ);
+                    if (material.isAir() || !keep.test(material)) continue;
+                    blocks.add(x - bounds.getMinX(), y - bounds.getMinY(), z - bounds.getMinZ(),
+                        snapshot.getBlockData(x - baseX, y, z - baseZ));
+                }
+            }
+        }
+        return blocks;
+    }
+
+    // Blocks found in one chunk, relative to the arena's min corner
+    private static final class ChunkBlocks {
+        private int[] coords = new int[96];
+        private BlockData[] data = new BlockData[32];
+        private int count = 0;
+
+        private void add(int relX, int relY, int relZ, BlockData blockData) {
+            if (count == data.length) {
+                data = Arrays.copyOf(data, count * 2);
+                coords = Arrays.copyOf(coords, count * 6);
+            }
+            coords[count * 3] = relX;
+            coords[count * 3 + 1] = relY;
+            coords[count * 3 + 2] = relZ;
+            data[count++] = blockData;
+        }
+    }
+}
@@ -7,11 +7,16 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import rip.thecraft.practice.Practice;
+import rip.thecraft.practice.arena.Arena;
+import rip.thecraft.practice.arena.LatencyHistogram;
 import rip.thecraft.practice.arena.SelectionManager;
 import rip.thecraft.practice.util.MessageManager;
+import rip.thecraft.practice.util.PaperAPI;
 
 import java.util.HashMap;
 import java.util.Map;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.atomic.AtomicInteger;
 
 public class ArenaCommand implements CommandExecutor {
 
@@ -57,6 +62,15 @@ public class ArenaCommand implements CommandExecutor {
             case "world":
                 teleportToArenaWorld(player);
                 break;
+            case "memory":
+                showMemoryReport(player);
+                break;
+            case "instances":
+                createInstances(player, args);
+                break;
+            case "stats":
+                showStats(player, args);
+                break;
             default:
                 sendHelp(player);
                 break;
@@ -110,6 +124,7 @@ public class ArenaCommand implements CommandExecutor {
             MessageManager.getInstance().sendMessage(player, "arena.notfound", errorPlaceholders);
             return;
         }
+        if (isInstance(player, arena)) return;
 
         Location spawn = player.getLocation();
         
@@ -132,7 +147,8 @@ public class ArenaCommand implements CommandExecutor {
         }
         
         // Save the arena
-        Practice.getInstance().getArenaManager().saveArenas();
+        Practice.getInstance().getArenaManager().refreshArena(arena);
+        Practice.getInstance().getArenaManager().saveArena(arena);
     }
 
     private void setBounds(Player player, String[] args) {
@@ -153,6 +169,7 @@ public class ArenaCommand implements CommandExecutor {
             MessageManager.getInstance().sendMessage(player, "arena.notfound", errorPlaceholders);
             return;
         }
+        if (isInstance(player, arena)) return;
 
         // Check if player has a selection
         var selectionManager = SelectionManager.getInstance();
@@ -181,20 +198,44 @@ public class ArenaCommand implements CommandExecutor {
         pos2Placeholders.put("location", formatLocation(pos2));
         MessageManager.getInstance().sendMessage(player, "arena.setbounds.position", pos2Placeholders);
 
-        if (Practice.getInstance().getArenaManager().setArenaBounds(name, pos1, pos2)) {
+        // Report capture progress in quarter steps, the callback runs on worker threads
+        AtomicInteger lastReported = new AtomicInteger();
+        var capture = Practice.getInstance().getArenaManager().setArenaBounds(name, pos1, pos2, percent -> {
+            int step = percent / 25 * 25;
+            if (step > 0 && step < 100 && lastReported.getAndAccumulate(step, Math::max) < step) {
+                Map<String, String> progressPlaceholder = new HashMap<>();
+                progressPlaceholder.put("arena", name);
+                progressPlaceholder.put("progress", String.valueOf(step));
+                PaperAPI.runForEntity(Practice.getInstance(), player, () -> MessageManager.getInstance().sendMessage(player, "arena.setbounds.capturing", progressPlaceholder));
+            }
+        });
+        if (capture == null) {
+            MessageManager.getInstance().sendMessage(player, "arena.setbounds.failed");
+            return;
+        }
+        selectionManager.clearSelection(player);
+
+        capture.whenComplete((snapshot, error) -> PaperAPI.runForEntity(Practice.getInstance(), player, () -> {
+            if (!player.isOnline()) return;
+            if (error != null) {
+                // Cancelled captures were superseded by a newer /arena setbounds
+                if (!(error instanceof CancellationException)) {
+                    MessageManager.getInstance().sendMessage(player, "arena.setbounds.failed");
+                }
+                return;
+            }
+
             Map<String, String> successPlaceholders = new HashMap<>();
             successPlaceholders.put("arena", name);
             MessageManager.getInstance().sendMessage(player, "arena.setbounds.success", successPlaceholders);
             
             Map<String, String> areaPlaceholders = new HashMap<>();
             areaPlaceholders.put("area", calculateVolume(pos1, pos2));
+            areaPlaceholders.put("blocks", String.valueOf(snapshot.size()));
             MessageManager.getInstance().sendMessage(player, "arena.setbounds.area", areaPlaceholders);
             
             MessageManager.getInstance().sendMessage(player, "arena.setbounds.regeneration");
-            selectionManager.clearSelection(player);
-        } else {
-            MessageManager.getInstance().sendMessage(player, "arena.setbounds.failed");
-        }
+        }));
     }
 
     private String formatLocation(Location location) {
@@ -220,8 +261,11 @@ public class ArenaCommand implements CommandExecutor {
         for (String name : arenas) {
             var arena = Practice.getInstance().getArenaManager().getArena(name);
             String statusKey;
+            var regenerationJob = Practice.getInstance().getArenaManager().getRegenerationScheduler().getJob(arena);
             if (!arena.isSetupComplete()) {
                 statusKey = "arena.list.status.incomplete";
+            } else if (regenerationJob != null) {
+                statusKey = "arena.list.status.regenerating";
             } else if (arena.isAvailable()) {
                 statusKey = "arena.list.status.available";
             } else {
@@ -230,7 +274,9 @@ public class ArenaCommand implements CommandExecutor {
             
             Map<String, String> arenaPlaceholders = new HashMap<>();
             arenaPlaceholders.put("arena", name);
-            arenaPlaceholders.put("status", MessageManager.getInstance().getMessage(statusKey));
+            Map<String, String> statusPlaceholders = new HashMap<>();
+            statusPlaceholders.put("progress", regenerationJob != null ? String.format("%.0f", regenerationJob.getProgress() * 100) : "100");
+            arenaPlaceholders.put("status", MessageManager.getInstance().getMessage(statusKey, statusPlaceholders));
             MessageManager.getInstance().sendMessage(player, "arena.list.entry", arenaPlaceholders);
         }
     }
@@ -244,6 +290,9 @@ public class ArenaCommand implements CommandExecutor {
         }
 
         String name = args[1];
+        var arena = Practice.getInstance().getArenaManager().getArena(name);
+        if (arena != null && isInstance(player, arena)) return;
+        
         if (Practice.getInstance().getArenaManager().deleteArena(name)) {
             Map<String, String> successPlaceholders = new HashMap<>();
             successPlaceholders.put("arena", name);
@@ -274,6 +323,7 @@ public class ArenaCommand implements CommandExecutor {
             MessageManager.getInstance().sendMessage(player, "arena.notfound", errorPlaceholders);
             return;
         }
+        if (isInstance(player, arena)) return;
 
         if (kitName.equalsIgnoreCase("none")) {
             if (Practice.getInstance().getArenaManager().removeArenaRestrictedKit(arenaName)) {
@@ -324,13 +374,15 @@ public class ArenaCommand implements CommandExecutor {
             MessageManager.getInstance().sendMessage(player, "arena.notfound", errorPlaceholders);
             return;
         }
+        if (isInstance(player, arena)) return;
 
         // Toggle build arena status
         boolean newBuildArenaStatus = !arena.isBuildArena();
         arena.setBuildArena(newBuildArenaStatus);
         
         // Save the arena
-        Practice.getInstance().getArenaManager().saveArenas();
+        Practice.getInstance().getArenaManager().refreshArena(arena);
+        Practice.getInstance().getArenaManager().saveArena(arena);
 
         if (newBuildArenaStatus) {
             Map<String, String> successPlaceholders = new HashMap<>();
@@ -357,6 +409,167 @@ public class ArenaCommand implements CommandExecutor {
         MessageManager.getInstance().sendMessage(player, "arena.help.delete");
         MessageManager.getInstance().sendMessage(player, "arena.help.tool");
         MessageManager.getInstance().sendMessage(player, "arena.help.world");
+        MessageManager.getInstance().sendMessage(player, "arena.help.memory");
+        MessageManager.getInstance().sendMessage(player, "arena.help.instances");
+        MessageManager.getInstance().sendMessage(player, "arena.help.stats");
+    }
+
+    private void showStats(Player player, String[] args) {
+        if (!player.hasPermission("practice.admin")) {
+            MessageManager.getInstance().sendNoPermission(player);
+            return;
+        }
+
+        var arenaManager = Practice.getInstance().getArenaManager();
+        if (args.length >= 2) {
+            var arena = arenaManager.getArena(args[1]);
+            if (arena == null) {
+                Map<String, String> errorPlaceholders = new HashMap<>();
+                errorPlaceholders.put("arena", args[1]);
+                MessageManager.getInstance().sendMessage(player, "arena.notfound", errorPlaceholders);
+                return;
+            }
+            
+            Map<String, String> arenaPlaceholders = new HashMap<>();
+            arenaPlaceholders.put("arena", arena.getName());
+            arenaPlaceholders.put("state", arena.getState().name());
+            arenaPlaceholders.put("matches", String.valueOf(arena.getCurrentMatches()));
+            MessageManager.getInstance().sendMessage(player, "arena.stats.arena", arenaPlaceholders);
+            sendHistogram(player, "arena.stats.turnaround", arena.getTurnaround());
+            return;
+        }
+
+        var allocator = arenaManager.getAllocator();
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("free", String.valueOf(allocator.getFreeCount()));
+        placeholders.put("restricted", String.valueOf(allocator.getRestrictedHits()));
+        placeholders.put("shared", String.valueOf(allocator.getSharedHits()));
+        placeholders.put("spawnonly", String.valueOf(allocator.getSpawnOnlyHits()));
+        placeholders.put("fallback", String.valueOf(allocator.getFallbackHits()));
+        placeholders.put("misses", String.valueOf(allocator.getMisses()));
+        placeholders.put("micros", String.format("%.2f", allocator.getAverageAllocationMicros()));
+        MessageManager.getInstance().sendMessage(player, "arena.stats.header");
+        MessageManager.getInstance().sendMessage(player, "arena.stats.allocator", placeholders);
+        
+        Map<String, String> statePlaceholders = new HashMap<>();
+        arenaManager.getStateCounts().forEach((state, count) -> statePlaceholders.put(state.name().toLowerCase(), String.valueOf(count)));
+        MessageManager.getInstance().sendMessage(player, "arena.stats.states", statePlaceholders);
+        
+        // Busiest region cells first, so crowded regions stand out
+        var density = arenaManager.getAllocator().getRegionDensity();
+        StringBuilder regions = new StringBuilder();
+        density.entrySet().stream()
+            .sorted(Map.Entry.<String, Integer>comparingByValue().reversed())
+            .limit(5)
+            .forEach(entry -> regions.append(regions.length() == 0 ? "" : ", ").append(entry.getKey()).append(" ").append(entry.getValue()));
+        Map<String, String> regionPlaceholders = new HashMap<>();
+        regionPlaceholders.put("count", String.valueOf(density.size()));
+        regionPlaceholders.put("regions", regions.length() == 0 ? "none" : regions.toString());
+        MessageManager.getInstance().sendMessage(player, "arena.stats.regions", regionPlaceholders);
+        
+        sendHistogram(player, "arena.stats.turnaround", arenaManager.getTurnaround());
+        sendHistogram(player, "arena.stats.warmup", arenaManager.getWarmup());
+        Map<String, String> warmupPlaceholders = new HashMap<>();
+        warmupPlaceholders.put("failed", String.valueOf(arenaManager.getWarmupFailureCount()));
+        MessageManager.getInstance().sendMessage(player, "arena.stats.warmup-failed", warmupPlaceholders);
+    }
+
+    private void sendHistogram(Player player, String key, LatencyHistogram histogram) {
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("count", String.valueOf(histogram.getCount()));
+        placeholders.put("avg", String.format("%.0f", histogram.getAverageMillis()));
+        placeholders.put("p50", String.valueOf(histogram.getPercentileMillis(50)));
+        placeholders.put("p95", String.valueOf(histogram.getPercentileMillis(95)));
+        placeholders.put("max", String.valueOf(histogram.getMaxMillis()));
+        placeholders.put("buckets", histogram.formatBuckets());
+        MessageManager.getInstance().sendMessage(player, key, placeholders);
+        MessageManager.getInstance().sendMessage(player, "arena.stats.buckets", placeholders);
+    }
+
+    // Instances follow their template, so they can't be edited on their own
+    private boolean isInstance(Player player, Arena arena) {
+        if (!arena.isInstance()) return false;
+        
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("arena", arena.getName());
+        placeholders.put("template", arena.getTemplate().getName());
+        MessageManager.getInstance().sendMessage(player, "arena.instances.managed", placeholders);
+        return true;
+    }
+
+    private void createInstances(Player player, String[] args) {
+        if (!player.hasPermission("practice.admin")) {
+            MessageManager.getInstance().sendNoPermission(player);
+            return;
+        }
+
+        if (args.length < 3) {
+            Map<String, String> usagePlaceholders = new HashMap<>();
+            usagePlaceholders.put("usage", "/arena instances <template> <count>");
+            MessageManager.getInstance().sendMessage(player, "arena.instances.usage", usagePlaceholders);
+            return;
+        }
+
+        String name = args[1];
+        var arenaManager = Practice.getInstance().getArenaManager();
+        var arena = arenaManager.getArena(name);
+        if (arena == null) {
+            Map<String, String> errorPlaceholders = new HashMap<>();
+            errorPlaceholders.put("arena", name);
+            MessageManager.getInstance().sendMessage(player, "arena.notfound", errorPlaceholders);
+            return;
+        }
+        if (isInstance(player, arena)) return;
+
+        int count;
+        try {
+            count = Integer.parseInt(args[2]);
+        } catch (NumberFormatException e) {
+            count = -1;
+        }
+        if (count < 0 || count > 64) {
+            MessageManager.getInstance().sendMessage(player, "arena.instances.invalid");
+            return;
+        }
+
+        if (!arena.isSetupComplete() || arena.getTerrainSnapshot().isEmpty()) {
+            Map<String, String> errorPlaceholders = new HashMap<>();
+            errorPlaceholders.put("arena", arena.getName());
+            MessageManager.getInstance().sendMessage(player, "arena.instances.incomplete", errorPlaceholders);
+            return;
+        }
+
+        // A count of 0 removes every instance
+        if (!arenaManager.createInstances(arena, count)) {
+            Map<String, String> errorPlaceholders = new HashMap<>();
+            errorPlaceholders.put("arena", arena.getName());
+            MessageManager.getInstance().sendMessage(player, "arena.instances.overlap", errorPlaceholders);
+            return;
+        }
+
+        Map<String, String> successPlaceholders = new HashMap<>();
+        successPlaceholders.put("arena", arena.getName());
+        successPlaceholders.put("count", String.valueOf(count));
+        MessageManager.getInstance().sendMessage(player, "arena.instances.success", successPlaceholders);
+    }
+
+    private void showMemoryReport(Player player) {
+        if (!player.hasPermission("practice.admin")) {
+            MessageManager.getInstance().sendNoPermission(player);
+            return;
+        }
+
+        var arenaManager = Practice.getInstance().getArenaManager();
+        MessageManager.getInstance().sendMessage(player, "arena.memory.header");
+        for (String name : arenaManager.getArenaNames()) {
+            var arena = arenaManager.getArena(name);
+            if (arena == null) continue;
+
+            Map<String, String> arenaPlaceholders = new HashMap<>();
+            arenaPlaceholders.put("arena", name);
+            arenaPlaceholders.put("report", arena.getTerrainSnapshot().getMemoryReport());
+            MessageManager.getInstance().sendMessage(player, "arena.memory.entry", arenaPlaceholders);
+        }
     }
 
     private void giveSelectionTool(Player player) {
@@ -5,6 +5,7 @@ import org.bukkit.command.CommandExecutor;
 import org.bukkit.command.CommandSender;
 import org.bukkit.entity.Player;
 import rip.thecraft.practice.Practice;
+import rip.thecraft.practice.match.MatchEndPipeline;
 
 import java.util.HashMap;
 import java.util.Map;
@@ -38,6 +39,12 @@ public class PracticeCommand implements CommandExecutor {
             case "debug":
                 debugMatches(player);
                 break;
+            case "cache":
+                showCacheStats(player);
+                break;
+            case "metrics":
+                showMetrics(player);
+                break;
             case "spawn":
                 teleportToSpawn(player);
                 break;
@@ -60,6 +67,8 @@ public class PracticeCommand implements CommandExecutor {
             Practice.getInstance().getMessageManager().sendMessage(player, "practice.help.commands.stats");
             Practice.getInstance().getMessageManager().sendMessage(player, "practice.help.commands.setspawn");
             Practice.getInstance().getMessageManager().sendMessage(player, "practice.help.commands.spawn");
+            Practice.getInstance().getMessageManager().sendMessage(player, "practice.help.commands.cache");
+            Practice.getInstance().getMessageManager().sendMessage(player, "practice.help.commands.metrics");
             Practice.getInstance().getMessageManager().sendMessage(player, "practice.help.commands.arena");
             Practice.getInstance().getMessageManager().sendMessage(player, "practice.help.commands.kit");
             Practice.getInstance().getMessageManager().sendMessage(player, "practice.help.commands.queue");
@@ -137,6 +146,92 @@ public class PracticeCommand implements CommandExecutor {
         }
     }
 
+    private void showCacheStats(Player player) {
+        if (!player.hasPermission("practice.admin")) {
+            Practice.getInstance().getMessageManager().sendNoPermission(player);
+            return;
+        }
+
+        var playerManager = Practice.getInstance().getPlayerManager();
+        long offlineHits = playerManager.getOfflineHitCount();
+        long offlineMisses = playerManager.getOfflineMissCount();
+        long offlineReads = offlineHits + offlineMisses;
+
+        Map<String, String> placeholders = new HashMap<>();
+        placeholders.put("online", String.valueOf(playerManager.getOnlineCachedCount()));
+        placeholders.put("online_hits", String.valueOf(playerManager.getOnlineHitCount()));
+        placeholders.put("prefetched", String.valueOf(playerManager.getPrefetchCount()));
+        placeholders.put("offline", String.valueOf(playerManager.getOfflineCachedCount()));
+        placeholders.put("size", String.valueOf(playerManager.getOfflineCacheSize()));
+        placeholders.put("max_size", String.valueOf(playerManager.getOfflineCacheMaxSize()));
+        placeholders.put("hits", String.valueOf(offlineHits));
+        placeholders.put("misses", String.valueOf(offlineMisses));
+        placeholders.put("hit_rate", String.format("%.1f%%", offlineReads == 0 ? 0 : offlineHits * 100.0 / offlineReads));
+        placeholders.put("evictions", String.valueOf(playerManager.getOfflineEvictionCount()));
+        placeholders.put("expirations", String.valueOf(playerManager.getOfflineExpirationCount()));
+        placeholders.put("main_thread", String.valueOf(playerManager.getMainThreadLoadCount()));
+
+        Practice.getInstance().getMessageManager().sendMessage(player, "practice.cache.header");
+        Practice.getInstance().getMessageManager().sendMessage(player, "practice.cache.online", placeholders);
+        Practice.getInstance().getMessageManager().sendMessage(player, "practice.cache.offline", placeholders);
+        Practice.getInstance().getMessageManager().sendMessage(player, "practice.cache.reads", placeholders);
+        Practice.getInstance().getMessageManager().sendMessage(player, "practice.cache.removals", placeholders);
+    }
+
+    private void showMetrics(Player player) {
+        if (!player.hasPermission("practice.admin")) {
+            Practice.getInstance().getMessageManager().sendNoPermission(player);
+            return;
+        }
+
+        var messages = Practice.getInstance().getMessageManager();
+        var matchManager = Practice.getInstance().getMatchManager();
+        Map<String, String> timerPlaceholders = new HashMap<>();
+        timerPlaceholders.put("timers", String.valueOf(matchManager.getLiveTimerCount()));
+        timerPlaceholders.put("wheels", String.valueOf(matchManager.getTimerWheelCount()));
+        messages.sendMessage(player, "practice.metrics.header");
+        messages.sendMessage(player, "practice.metrics.timers", timerPlaceholders);
+
+        var playerManager = Practice.getInstance().getPlayerManager();
+        Map<String, String> persistencePlaceholders = new HashMap<>();
+        persistencePlaceholders.put("results", String.valueOf(playerManager.getMatchResultCount()));
+        persistencePlaceholders.put("per_match", String.format("%.2f", playerManager.getWritesPerMatchResult()));
+        persistencePlaceholders.put("writes", String.valueOf(playerManager.getWriteCount()));
+        messages.sendMessage(player, "practice.metrics.persistence", persistencePlaceholders);
+
+        Map<String, String> writePlaceholders = new HashMap<>();
+        writePlaceholders.put("pending", String.valueOf(playerManager.getPendingWriteCount()));
+        writePlaceholders.put("queued", String.valueOf(playerManager.getQueuedWriteCount()));
+        writePlaceholders.put("coalesced", String.valueOf(playerManager.getCoalescedWriteCount()));
+        writePlaceholders.put("documents", String.valueOf(playerManager.getWrittenDocumentCount()));
+        writePlaceholders.put("failures", String.valueOf(playerManager.getFailedWriteCount()));
+        writePlaceholders.put("superseded", String.valueOf(playerManager.getSupersededWriteCount()));
+        messages.sendMessage(player, "practice.metrics.write-behind", writePlaceholders);
+
+        if (playerManager.isSpooling()) {
+            Map<String, String> spoolPlaceholders = new HashMap<>();
+            spoolPlaceholders.put("status", playerManager.isDatabaseDegraded() ? "degraded" : "online");
+            spoolPlaceholders.put("batches", String.valueOf(playerManager.getSpooledBatchCount()));
+            spoolPlaceholders.put("documents", String.valueOf(playerManager.getSpooledDocumentCount()));
+            spoolPlaceholders.put("size", String.format("%.1f", playerManager.getSpoolSize() / 1024.0));
+            spoolPlaceholders.put("segments", String.valueOf(playerManager.getSpoolSegmentCount()));
+            spoolPlaceholders.put("rejected", String.valueOf(playerManager.getRejectedWriteCount()));
+            messages.sendMessage(player, "practice.metrics.spool", spoolPlaceholders);
+        }
+
+        // How long after a match ended each of its end stages was done
+        for (var stage : MatchEndPipeline.Stage.values()) {
+            var histogram = matchManager.getEndPipeline().getLatency(stage);
+            Map<String, String> stagePlaceholders = new HashMap<>();
+            stagePlaceholders.put("stage", stage.name().toLowerCase());
+            stagePlaceholders.put("count", String.valueOf(histogram.getCount()));
+            stagePlaceholders.put("avg", String.format("%.0f", histogram.getAverageMillis()));
+            stagePlaceholders.put("p95", String.valueOf(histogram.getPercentileMillis(95)));
+            stagePlaceholders.put("max", String.valueOf(histogram.getMaxMillis()));
+            messages.sendMessage(player, "practice.metrics.end-stage", stagePlaceholders);
+        }
+    }
+
     private void teleportToSpawn(Player player) {
         // Execute the spawn command
         player.performCommand("spawn");
@@ -139,6 +139,7 @@ public class SpectateCommand implements CommandExecutor {
         // Set spectator state
         spectatorData.setState(PlayerState.SPECTATING);
         spectatorData.setSpectatingMatch(match);
+        match.addSpectator(spectator.getUniqueId());
         
         // Update scoreboard for state change
         Practice.getInstance().getScoreboardService().forceUpdatePlayerScoreboard(spectator);
@@ -179,6 +180,9 @@ public class SpectateCommand implements CommandExecutor {
     private void leaveSpectate(Player spectator, PlayerData spectatorData) {
         Match spectatingMatch = spectatorData.getSpectatingMatch();
         Tournament spectatingTournament = spectatorData.getSpectatingTournament();
+        if (spectatingMatch != null) {
+            spectatingMatch.removeSpectator(spectator.getUniqueId());
+        }
         
         // Reset player state
         spectatorData.setState(PlayerState.LOBBY);
@@ -222,59 +226,19 @@ public class SpectateCommand implements CommandExecutor {
     }
 
     private void setupSpectatorVisibility(Player spectator, Match match) {
-        Player player1 = Bukkit.getPlayer(match.getPlayer1());
-        Player player2 = Bukkit.getPlayer(match.getPlayer2());
-        
-        if (player1 == null || player2 == null) return;
-
-        // Hide spectator from all players
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            if (!onlinePlayer.equals(spectator)) {
-                onlinePlayer.hidePlayer(Practice.getInstance(), spectator);
-            }
-        }
-
-        // Show match players to spectator
-        spectator.showPlayer(Practice.getInstance(), player1);
-        spectator.showPlayer(Practice.getInstance(), player2);
-
-        // Hide all other players from spectator
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            if (!onlinePlayer.equals(player1) && !onlinePlayer.equals(player2) && !onlinePlayer.equals(spectator)) {
-                spectator.hidePlayer(Practice.getInstance(), onlinePlayer);
-            }
-        }
-
-        // Hide spectator from match players
-        player1.hidePlayer(Practice.getInstance(), spectator);
-        player2.hidePlayer(Practice.getInstance(), spectator);
+        // Spectators see the match players but are seen by nobody, and see nobody outside the match
+        Practice.getInstance().getMatchManager().getVisibility().joinSpectators(spectator, match);
     }
 
     private void restoreSpectatorVisibility(Player spectator) {
-        // Show spectator to all players
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            if (!onlinePlayer.equals(spectator)) {
-                onlinePlayer.showPlayer(Practice.getInstance(), spectator);
-            }
-        }
-
-        // Show all players to spectator
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            spectator.showPlayer(Practice.getInstance(), onlinePlayer);
-        }
+        Practice.getInstance().getMatchManager().getVisibility().joinLobby(spectator);
     }
 
     /**
      * Find the tournament that contains the given match
      */
     private Tournament findTournamentForMatch(Match match) {
-        for (Tournament tournament : Practice.getInstance().getTournamentManager().getActiveTournaments()) {
-            for (TournamentMatch tournamentMatch : tournament.getActiveMatches()) {
-                if (tournamentMatch.getMatch() != null && tournamentMatch.getMatch().equals(match)) {
-                    return tournament;
-                }
-            }
-        }
-        return null;
+        TournamentMatch tournamentMatch = match.getTournamentMatch();
+        return tournamentMatch != null ? tournamentMatch.getTournament() : null;
     }
 }
@@ -308,8 +308,8 @@ public class TournamentCommand implements CommandExecutor {
             match.getMatch().getArena().getSpectatorSpawn());
 
         // Hide spectator from players
-        p1.hidePlayer(rip.thecraft.practice.Practice.getInstance(), spectator);
-        p2.hidePlayer(rip.thecraft.practice.Practice.getInstance(), spectator);
+        match.getMatch().addSpectator(spectator.getUniqueId());
+        rip.thecraft.practice.Practice.getInstance().getMatchManager().getVisibility().joinSpectators(spectator, match.getMatch());
 
         Map<String, String> placeholders = new HashMap<>();
         placeholders.put("player1", p1.getName());
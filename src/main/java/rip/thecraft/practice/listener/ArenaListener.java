@@ -5,23 +5,35 @@ import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.block.Block;
+import org.bukkit.block.BlockState;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.entity.Item;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.BlockBreakEvent;
 import org.bukkit.event.block.BlockBurnEvent;
+import org.bukkit.event.block.BlockExplodeEvent;
 import org.bukkit.event.block.BlockFormEvent;
+import org.bukkit.event.block.BlockFromToEvent;
 import org.bukkit.event.block.BlockIgniteEvent;
+import org.bukkit.event.block.BlockMultiPlaceEvent;
 import org.bukkit.event.block.BlockPlaceEvent;
 import org.bukkit.event.entity.CreatureSpawnEvent;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
+import org.bukkit.event.entity.EntityExplodeEvent;
 import org.bukkit.event.entity.FoodLevelChangeEvent;
 import org.bukkit.event.entity.ItemSpawnEvent;
 import org.bukkit.event.inventory.InventoryClickEvent;
+import org.bukkit.event.player.PlayerBucketEmptyEvent;
+import org.bukkit.event.player.PlayerBucketFillEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import org.bukkit.event.weather.WeatherChangeEvent;
 import rip.thecraft.practice.Practice;
+import rip.thecraft.practice.arena.Arena;
 import rip.thecraft.practice.match.Match;
 import rip.thecraft.practice.player.PlayerState;
 import rip.thecraft.practice.util.VersionUtils;
@@ -56,41 +68,34 @@ public class ArenaListener implements Listener {
         Match match = matchManager.getPlayerMatch(player.getUniqueId());
         
         // Check if block is in any arena bounds
-        var arenaManager = Practice.getInstance().getArenaManager();
-        if (arenaManager == null) return;
-        
-        for (var arenaName : arenaManager.getArenaNames()) {
-            var arena = arenaManager.getArena(arenaName);
-            if (arena != null && arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
-                if (isLocationInBounds(event.getBlock().getLocation(), arena.getBoundsPos1(), arena.getBoundsPos2())) {
-                    // Block is in arena bounds - check if we should allow breaking
-                    if (match != null && match.isStarted()) {
-                        var kit = match.getKit();
-                        if (kit != null && kit.isBuildMode()) {
-                            // Check if this is a player-placed block (not part of original arena structure)
-                            if (isPlayerPlacedBlock(match, event.getBlock())) {
-                                // Allow breaking player-placed blocks during matches with build mode
-                                // Track the broken block for regeneration
-                                trackBrokenBlock(match, event.getBlock());
-                                return;
-                            } else {
-                                // Prevent breaking arena structure blocks and natural terrain
-                                event.setCancelled(true);
-                                player.sendMessage("§cYou cannot break arena blocks!");
-                                return;
-                            }
-                        } else {
-                            // Prevent block breaking in non-build mode kits
-                            event.setCancelled(true);
-                            player.sendMessage("§cYou cannot break blocks in this kit!");
-                            return;
-                        }
+        var arena = getArenaAt(event.getBlock());
+        if (arena != null) {
+            // Block is in arena bounds - check if we should allow breaking
+            if (match != null && match.isStarted()) {
+                var kit = match.getKit();
+                if (kit != null && kit.isBuildMode()) {
+                    // Check if this is a player-placed block (not part of original arena structure)
+                    if (isPlayerPlacedBlock(match, event.getBlock())) {
+                        // Allow breaking player-placed blocks during matches with build mode
+                        // Track the broken block for regeneration
+                        trackBrokenBlock(match, event.getBlock());
+                        return;
                     } else {
-                        // Prevent breaking arena blocks outside of matches
+                        // Prevent breaking arena structure blocks and natural terrain
                         event.setCancelled(true);
+                        player.sendMessage("§cYou cannot break arena blocks!");
                         return;
                     }
+                } else {
+                    // Prevent block breaking in non-build mode kits
+                    event.setCancelled(true);
+                    player.sendMessage("§cYou cannot break blocks in this kit!");
+                    return;
                 }
+            } else {
+                // Prevent breaking arena blocks outside of matches
+                event.setCancelled(true);
+                return;
             }
         }
     }
@@ -111,36 +116,29 @@ public class ArenaListener implements Listener {
         Match match = matchManager.getPlayerMatch(player.getUniqueId());
         
         // Check if block is in any arena bounds
-        var arenaManager = Practice.getInstance().getArenaManager();
-        if (arenaManager == null) return;
-        
-        for (var arenaName : arenaManager.getArenaNames()) {
-            var arena = arenaManager.getArena(arenaName);
-            if (arena != null && arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
-                if (isLocationInBounds(event.getBlock().getLocation(), arena.getBoundsPos1(), arena.getBoundsPos2())) {
-                    // Block is in arena bounds - check if we should allow placing
-                    if (match != null && match.isStarted()) {
-                        var kit = match.getKit();
-                        if (kit != null && kit.isBuildMode()) {
-                            // Allow block placing during matches with build mode
-                            // Track the placed block for regeneration
-                            trackPlacedBlock(match, event.getBlock());
-                            
-                            // Hide the placed block from the opponent
-                            hidePlacedBlockFromOpponent(match, player, event.getBlock());
-                            return;
-                        } else {
-                            // Prevent block placing in non-build mode kits
-                            event.setCancelled(true);
-                            player.sendMessage("§cYou cannot place blocks in this kit!");
-                            return;
-                        }
-                    } else {
-                        // Prevent placing arena blocks outside of matches
-                        event.setCancelled(true);
-                        return;
-                    }
+        var arena = getArenaAt(event.getBlock());
+        if (arena != null) {
+            // Block is in arena bounds - check if we should allow placing
+            if (match != null && match.isStarted()) {
+                var kit = match.getKit();
+                if (kit != null && kit.isBuildMode()) {
+                    // Allow block placing during matches with build mode
+                    // Track the placed block for regeneration
+                    trackPlacedBlock(match, event.getBlock());
+                    
+                    // Hide the placed block from the opponent
+                    hidePlacedBlockFromOpponent(match, player, event.getBlock());
+                    return;
+                } else {
+                    // Prevent block placing in non-build mode kits
+                    event.setCancelled(true);
+                    player.sendMessage("§cYou cannot place blocks in this kit!");
+                    return;
                 }
+            } else {
+                // Prevent placing arena blocks outside of matches
+                event.setCancelled(true);
+                return;
             }
         }
     }
@@ -230,9 +228,9 @@ public class ArenaListener implements Listener {
             Match spectatingMatch = playerData.getSpectatingMatch();
             if (spectatingMatch != null) {
                 var arena = spectatingMatch.getArena();
-                if (arena != null && arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
+                if (arena != null && arena.getBounds() != null) {
                     // Check if player is trying to leave arena bounds
-                    if (!isLocationInBounds(event.getTo(), arena.getBoundsPos1(), arena.getBoundsPos2())) {
+                    if (!arena.getBounds().contains(event.getTo())) {
                         // Teleport player back to center of arena
                         Location center = arena.getSpectatorSpawn();
                         event.setTo(center);
@@ -387,15 +385,10 @@ public class ArenaListener implements Listener {
         var arenaManager = Practice.getInstance().getArenaManager();
         if (arenaManager == null) return;
         
-        for (var arenaName : arenaManager.getArenaNames()) {
-            var arena = arenaManager.getArena(arenaName);
-            if (arena != null && arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
-                if (isLocationInBounds(event.getLocation(), arena.getBoundsPos1(), arena.getBoundsPos2())) {
-                    // Remove item instantly instead of setting pickup delay
-                    event.setCancelled(true);
-                    break;
-                }
-            }
+        var arena = arenaManager.getArenaAt(event.getLocation());
+        if (arena != null) {
+            // Remove item instantly instead of setting pickup delay
+            event.setCancelled(true);
         }
     }
 
@@ -451,7 +444,7 @@ public class ArenaListener implements Listener {
     }
 
     @EventHandler
-    public void onPlayerDropItem(org.bukkit.event.player.PlayerDropItemEvent event) {
+    public void onPlayerDropItem(PlayerDropItemEvent event) {
         Player player = event.getPlayer();
         var playerData = Practice.getInstance().getPlayerManager().getPlayerData(player);
         
@@ -468,18 +461,10 @@ public class ArenaListener implements Listener {
     @EventHandler
     public void onBlockForm(BlockFormEvent event) {
         // Prevent snow layers from forming in arenas
-        var arenaManager = Practice.getInstance().getArenaManager();
-        if (arenaManager == null) return;
-        
-        for (var arenaName : arenaManager.getArenaNames()) {
-            var arena = arenaManager.getArena(arenaName);
-            if (arena != null && arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
-                if (isLocationInBounds(event.getBlock().getLocation(), arena.getBoundsPos1(), arena.getBoundsPos2())) {
-                    // Cancel snow formation in arena bounds
-                    event.setCancelled(true);
-                    break;
-                }
-            }
+        var arena = getArenaAt(event.getBlock());
+        if (arena != null) {
+            // Cancel snow formation in arena bounds
+            event.setCancelled(true);
         }
     }
 
@@ -504,53 +489,129 @@ public class ArenaListener implements Listener {
     @EventHandler
     public void onBlockIgnite(BlockIgniteEvent event) {
         // Prevent fire from starting in arenas
-        var arenaManager = Practice.getInstance().getArenaManager();
-        if (arenaManager == null) return;
-        
-        for (var arenaName : arenaManager.getArenaNames()) {
-            var arena = arenaManager.getArena(arenaName);
-            if (arena != null && arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
-                if (isLocationInBounds(event.getBlock().getLocation(), arena.getBoundsPos1(), arena.getBoundsPos2())) {
-                    // Cancel fire ignition in arena bounds
-                    // This prevents flint & steel, lava, and other fire sources from creating fire
-                    event.setCancelled(true);
-                    break;
-                }
-            }
+        var arena = getArenaAt(event.getBlock());
+        if (arena != null) {
+            // Cancel fire ignition in arena bounds
+            // This prevents flint & steel, lava, and other fire sources from creating fire
+            event.setCancelled(true);
         }
     }
 
     @EventHandler
     public void onBlockBurn(BlockBurnEvent event) {
         // Prevent fire from spreading in arenas
+        var arena = getArenaAt(event.getBlock());
+        if (arena != null) {
+            // Cancel fire spread in arena bounds
+            event.setCancelled(true);
+        }
+    }
+
+    // ================================
+    // ARENA CHANGE JOURNAL
+    // ================================
+    // These run at MONITOR and skip cancelled events, so they only see changes that will
+    // actually happen. The block still holds its original state when they fire.
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockPlaceJournal(BlockPlaceEvent event) {
+        if (event instanceof BlockMultiPlaceEvent) {
+            for (BlockState replaced : ((BlockMultiPlaceEvent) event).getReplacedBlockStates()) {
+                recordChange(replaced.getBlock(), replaced.getBlockData());
+            }
+            return;
+        }
+        recordChange(event.getBlock(), event.getBlockReplacedState().getBlockData());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBreakJournal(BlockBreakEvent event) {
+        recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFromToJournal(BlockFromToEvent event) {
+        // Water and lava flowing into new blocks
+        recordChange(event.getToBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketEmptyJournal(PlayerBucketEmptyEvent event) {
+        recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBucketFillJournal(PlayerBucketFillEvent event) {
+        recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockFormJournal(BlockFormEvent event) {
+        recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockIgniteJournal(BlockIgniteEvent event) {
+        recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockBurnJournal(BlockBurnEvent event) {
+        recordChange(event.getBlock());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onEntityExplodeJournal(EntityExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            recordChange(block);
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onBlockExplodeJournal(BlockExplodeEvent event) {
+        for (Block block : event.blockList()) {
+            recordChange(block);
+        }
+    }
+
+    // ================================
+    // ARENA ITEM TRACKING
+    // ================================
+    // Natural item spawns in an arena are cancelled by onItemSpawn, so only player drops are left.
+    // The arena remembers them, so cleanup can remove them directly instead of scanning the
+    // world's entities.
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerDropItemTrack(PlayerDropItemEvent event) {
+        trackItem(event.getItemDrop());
+    }
+
+    private void trackItem(Item item) {
         var arenaManager = Practice.getInstance().getArenaManager();
         if (arenaManager == null) return;
         
-        for (var arenaName : arenaManager.getArenaNames()) {
-            var arena = arenaManager.getArena(arenaName);
-            if (arena != null && arena.getBoundsPos1() != null && arena.getBoundsPos2() != null) {
-                if (isLocationInBounds(event.getBlock().getLocation(), arena.getBoundsPos1(), arena.getBoundsPos2())) {
-                    // Cancel fire spread in arena bounds
-                    event.setCancelled(true);
-                    break;
-                }
-            }
+        var arena = arenaManager.getArenaAt(item.getLocation());
+        if (arena != null) {
+            arena.trackItem(item);
         }
     }
 
-    private boolean isLocationInBounds(Location location, Location pos1, Location pos2) {
-        if (!location.getWorld().equals(pos1.getWorld())) return false;
-        
-        double minX = Math.min(pos1.getX(), pos2.getX());
-        double maxX = Math.max(pos1.getX(), pos2.getX());
-        double minY = Math.min(pos1.getY(), pos2.getY());
-        double maxY = Math.max(pos1.getY(), pos2.getY());
-        double minZ = Math.min(pos1.getZ(), pos2.getZ());
-        double maxZ = Math.max(pos1.getZ(), pos2.getZ());
-        
-        return location.getX() >= minX && location.getX() <= maxX &&
-               location.getY() >= minY && location.getY() <= maxY &&
-               location.getZ() >= minZ && location.getZ() <= maxZ;
+    private void recordChange(Block block) {
+        recordChange(block, block.getBlockData());
+    }
+
+    private void recordChange(Block block, BlockData original) {
+        var arena = getArenaAt(block);
+        if (arena != null && arena.getJournal() != null) {
+            arena.recordChange(block.getX(), block.getY(), block.getZ(), original);
+        }
+    }
+
+    // Find the arena whose bounds contain the block through the chunk index
+    private Arena getArenaAt(Block block) {
+        var arenaManager = Practice.getInstance().getArenaManager();
+        if (arenaManager == null) return null;
+        return arenaManager.getArenaAt(block.getWorld(), block.getX(), block.getY(), block.getZ());
     }
 
     // Track a broken block for regeneration
@@ -565,92 +626,33 @@ public class ArenaListener implements Listener {
         placedBlocks.computeIfAbsent(matchKey, k -> new HashSet<>()).add(block);
     }
 
-    // Regenerate arena after match ends
+    // Clean up per-match block tracking after match ends
+    // The arena's change journal restores the terrain itself once the arena is released
     public void regenerateArena(Match match) {
         String matchKey = getMatchKey(match);
+        brokenBlocks.remove(matchKey);
+        placedBlocks.remove(matchKey);
+        blockOwners.remove(matchKey);
         
-        // Only regenerate if this was a build mode kit
+        // Only build mode kits hide blocks
         var kit = match.getKit();
         if (kit == null || !kit.isBuildMode()) {
             return;
         }
-
-        // Get the arena
-        var arena = match.getArena();
-        if (arena == null) return;
-
-        // Clean up all player-placed blocks and environmental changes
-        Set<Block> broken = brokenBlocks.remove(matchKey);
-        Set<Block> placed = placedBlocks.remove(matchKey);
-        
-        // Clean up water, lava, obsidian, and other environmental blocks
-        cleanEnvironmentalBlocks(arena);
         
         // Show all hidden blocks before regeneration
         showHiddenBlocksToOpponent(match);
-
-        // Trigger arena regeneration
-        Practice.getInstance().getArenaManager().regenerateArena(arena);
-    }
-    
-    // Clean up environmental blocks like water, lava, obsidian, etc.
-    private void cleanEnvironmentalBlocks(rip.thecraft.practice.arena.Arena arena) {
-        if (arena.getBoundsPos1() == null || arena.getBoundsPos2() == null) return;
-        
-        org.bukkit.World world = arena.getBoundsPos1().getWorld();
-        
-        int minX = Math.min(arena.getBoundsPos1().getBlockX(), arena.getBoundsPos2().getBlockX());
-        int maxX = Math.max(arena.getBoundsPos1().getBlockX(), arena.getBoundsPos2().getBlockX());
-        int minY = Math.min(arena.getBoundsPos1().getBlockY(), arena.getBoundsPos2().getBlockY());
-        int maxY = Math.max(arena.getBoundsPos1().getBlockY(), arena.getBoundsPos2().getBlockY());
-        int minZ = Math.min(arena.getBoundsPos1().getBlockZ(), arena.getBoundsPos2().getBlockZ());
-        int maxZ = Math.max(arena.getBoundsPos1().getBlockZ(), arena.getBoundsPos2().getBlockZ());
-        
-        // Clean up water, lava, obsidian, and other environmental blocks
-        for (int x = minX; x <= maxX; x++) {
-            for (int y = minY; y <= maxY; y++) {
-                for (int z = minZ; z <= maxZ; z++) {
-                    org.bukkit.block.Block block = world.getBlockAt(x, y, z);
-                    org.bukkit.Material type = block.getType();
-                    
-                    // Remove water, lava, obsidian, and other environmental blocks
-                    if (type == org.bukkit.Material.WATER || 
-                        type == org.bukkit.Material.LAVA ||
-                        type == org.bukkit.Material.OBSIDIAN ||
-                        type == org.bukkit.Material.COBBLESTONE ||
-                        type == org.bukkit.Material.STONE ||
-                        type == org.bukkit.Material.DIRT ||
-                        type == org.bukkit.Material.SAND ||
-                        type == org.bukkit.Material.GRAVEL) {
-                        // Only remove if it's not part of the original arena structure
-                        // For now, we'll remove all environmental blocks and let the arena regeneration handle it
-                        block.setType(org.bukkit.Material.AIR);
-                    }
-                }
-            }
-        }
     }
 
     // Check if a block is part of the arena structure (original terrain)
-    private boolean isArenaStructureBlock(rip.thecraft.practice.arena.Arena arena, Block block) {
+    private boolean isArenaStructureBlock(Arena arena, Block block) {
         // Check if the arena has original blocks stored
-        if (arena.getOriginalBlocks() == null || arena.getOriginalBlocks().isEmpty()) {
+        if (arena.getTerrainSnapshot().isEmpty()) {
             return false;
         }
         
-        // Check if this block's location is in the original blocks map
-        Location blockLocation = block.getLocation();
-        for (Map.Entry<Location, org.bukkit.Material> entry : arena.getOriginalBlocks().entrySet()) {
-            Location originalLocation = entry.getKey();
-            if (originalLocation.getBlockX() == blockLocation.getBlockX() &&
-                originalLocation.getBlockY() == blockLocation.getBlockY() &&
-                originalLocation.getBlockZ() == blockLocation.getBlockZ()) {
-                // This block is part of the original arena structure
-                return true;
-            }
-        }
-        
-        return false;
+        // Look the block up directly in the packed terrain snapshot
+        return arena.isOriginalBlock(block.getX(), block.getY(), block.getZ());
     }
 
     // Check if a block was placed by a player during the match
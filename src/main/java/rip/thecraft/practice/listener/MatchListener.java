@@ -1,17 +1,22 @@
 package rip.thecraft.practice.listener;
 
+import com.destroystokyo.paper.event.entity.EntityRemoveFromWorldEvent;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
 import org.bukkit.Material;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.block.Action;
 import org.bukkit.event.entity.EntityDamageByEntityEvent;
 import org.bukkit.event.entity.EntityDamageEvent;
 import org.bukkit.event.entity.FoodLevelChangeEvent;
+import org.bukkit.event.entity.ItemSpawnEvent;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.entity.ProjectileLaunchEvent;
+import org.bukkit.event.player.PlayerDropItemEvent;
 import org.bukkit.event.player.PlayerInteractEvent;
 import org.bukkit.event.player.PlayerMoveEvent;
 import rip.thecraft.practice.Practice;
@@ -23,7 +28,6 @@ import rip.thecraft.practice.match.MatchManager;
 import rip.thecraft.practice.player.PlayerData;
 import rip.thecraft.practice.player.PlayerState;
 import rip.thecraft.practice.scoreboard.ScoreboardIntegration;
-import rip.thecraft.practice.tournament.Tournament;
 import rip.thecraft.practice.tournament.TournamentMatch;
 
 import java.util.HashMap;
@@ -66,17 +70,6 @@ public class MatchListener implements Listener {
                                 // Determine winner
                                 UUID winner = match.getPlayer1().equals(player.getUniqueId()) ? match.getPlayer2() : match.getPlayer1();
                                 
-                                // Update stats BEFORE ending the match
-                                var winnerData = Practice.getInstance().getPlayerManager().getPlayerData(winner);
-                                var loserData = Practice.getInstance().getPlayerManager().getPlayerData(player.getUniqueId());
-                                
-                                winnerData.setWins(winnerData.getWins() + 1);
-                                loserData.setLosses(loserData.getLosses() + 1);
-                                
-                                // Save stats to MongoDB
-                                Practice.getInstance().getPlayerManager().savePlayerData(winnerData);
-                                Practice.getInstance().getPlayerManager().savePlayerData(loserData);
-                                
                                 // Kill the player directly
                                 player.setHealth(0);
                                 player.sendMessage(ChatColor.RED + "You died by touching water/lava/ice in sumo mode!");
@@ -214,17 +207,6 @@ public class MatchListener implements Listener {
             
             // Check for win condition
             if (hits >= 100) {
-                // Update stats BEFORE ending the match
-                var winnerData = Practice.getInstance().getPlayerManager().getPlayerData(damager.getUniqueId());
-                var loserData = Practice.getInstance().getPlayerManager().getPlayerData(target.getUniqueId());
-                
-                winnerData.setWins(winnerData.getWins() + 1);
-                loserData.setLosses(loserData.getLosses() + 1);
-                
-                // Save stats to MongoDB
-                Practice.getInstance().getPlayerManager().savePlayerData(winnerData);
-                Practice.getInstance().getPlayerManager().savePlayerData(loserData);
-                
                 // Immediately end the match before any damage can be dealt
                 matchManager.endMatch(damagerMatch, damager, target);
                 
@@ -300,33 +282,29 @@ public class MatchListener implements Listener {
      * Handle tournament match completion when a regular match ends
      */
     private void handleTournamentMatchCompletion(Match match, UUID winner) {
-        // Check if this match is part of a tournament
-        for (Tournament tournament : Practice.getInstance().getTournamentManager().getActiveTournaments()) {
-            for (TournamentMatch tournamentMatch : tournament.getActiveMatches()) {
-                if (tournamentMatch.getMatch() != null && tournamentMatch.getMatch().equals(match)) {
-                    tournamentMatch.onMatchEnd(winner);
-                    
-                    // Remove all spectators from this tournament match
-                    removeTournamentSpectators(tournamentMatch);
-                    return;
-                }
-            }
-        }
+        TournamentMatch tournamentMatch = match.getTournamentMatch();
+        if (tournamentMatch == null) return;
+        
+        tournamentMatch.onMatchEnd(winner);
+        
+        // Remove all spectators from this tournament match
+        removeTournamentSpectators(match);
     }
 
     /**
      * Remove all spectators from a tournament match when it ends
      */
-    private void removeTournamentSpectators(TournamentMatch tournamentMatch) {
-        for (Player spectator : Bukkit.getOnlinePlayers()) {
+    private void removeTournamentSpectators(Match match) {
+        for (UUID spectatorId : match.getSpectators()) {
+            Player spectator = Bukkit.getPlayer(spectatorId);
+            if (spectator == null) continue;
+            
             PlayerData spectatorData = Practice.getInstance().getPlayerManager().getPlayerData(spectator);
-            if (spectatorData != null && spectatorData.getState() == PlayerState.SPECTATING) {
-                Match spectatingMatch = spectatorData.getSpectatingMatch();
-                if (spectatingMatch != null && spectatingMatch.equals(tournamentMatch.getMatch())) {
-                    // Use the spectate command's leave method to properly handle the spectator
-                    // This will teleport them back to spawn and give them lobby items
-                    Practice.getInstance().getCommand("spec").execute(spectator, "spec", new String[0]);
-                }
+            if (spectatorData != null && spectatorData.getState() == PlayerState.SPECTATING
+                && match.equals(spectatorData.getSpectatingMatch())) {
+                // Use the spectate command's leave method to properly handle the spectator
+                // This will teleport them back to spawn and give them lobby items
+                Practice.getInstance().getCommand("spec").execute(spectator, "spec", new String[0]);
             }
         }
     }
@@ -345,18 +323,14 @@ public class MatchListener implements Listener {
         Match match = matchManager.getPlayerMatch(player.getUniqueId());
         if (match != null && match.isStarted()) {
             // Check if this is a tournament match
-            for (Tournament tournament : Practice.getInstance().getTournamentManager().getActiveTournaments()) {
-                for (TournamentMatch tournamentMatch : tournament.getActiveMatches()) {
-                    if (tournamentMatch.getMatch() != null && tournamentMatch.getMatch().equals(match)) {
-                        // This is a tournament match - determine winner
-                        UUID winner = killer != null ? killer.getUniqueId() : 
-                            (match.getPlayer1().equals(player.getUniqueId()) ? match.getPlayer2() : match.getPlayer1());
-                        
-                        // Handle tournament match completion
-                        tournamentMatch.onMatchEnd(winner);
-                        return;
-                    }
-                }
+            TournamentMatch tournamentMatch = match.getTournamentMatch();
+            if (tournamentMatch != null) {
+                // This is a tournament match - determine winner
+                UUID winner = killer != null ? killer.getUniqueId() : 
+                    (match.getPlayer1().equals(player.getUniqueId()) ? match.getPlayer2() : match.getPlayer1());
+                
+                // Handle tournament match completion
+                tournamentMatch.onMatchEnd(winner);
             }
         }
     }
@@ -379,4 +353,32 @@ public class MatchListener implements Listener {
             player.setFoodLevel(20); // Keep food level maxed
         }
     }
+
+    // ================================
+    // MATCH ENTITY OWNERSHIP
+    // ================================
+    // Projectiles and items are tagged with their owner's match when they spawn, so only that
+    // match sees them and its cleanup never has to scan the world.
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onProjectileLaunchTrack(ProjectileLaunchEvent event) {
+        if (event.getEntity().getShooter() instanceof Player) {
+            matchManager.trackMatchEntity(event.getEntity(), ((Player) event.getEntity().getShooter()).getUniqueId());
+        }
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onPlayerDropItemTrack(PlayerDropItemEvent event) {
+        matchManager.trackMatchEntity(event.getItemDrop(), event.getPlayer().getUniqueId());
+    }
+
+    @EventHandler(priority = EventPriority.MONITOR, ignoreCancelled = true)
+    public void onItemSpawnTrack(ItemSpawnEvent event) {
+        matchManager.trackMatchEntity(event.getEntity(), event.getEntity().getThrower());
+    }
+
+    @EventHandler
+    public void onEntityRemoveTrack(EntityRemoveFromWorldEvent event) {
+        matchManager.getEntities().unregister(event.getEntity());
+    }
 }
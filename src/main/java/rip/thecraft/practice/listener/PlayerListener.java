@@ -3,8 +3,10 @@ package rip.thecraft.practice.listener;
 import org.bukkit.Location;
 import org.bukkit.entity.Player;
 import org.bukkit.event.EventHandler;
+import org.bukkit.event.EventPriority;
 import org.bukkit.event.Listener;
 import org.bukkit.event.entity.PlayerDeathEvent;
+import org.bukkit.event.player.AsyncPlayerPreLoginEvent;
 import org.bukkit.event.player.PlayerJoinEvent;
 import org.bukkit.event.player.PlayerQuitEvent;
 import org.bukkit.event.player.PlayerRespawnEvent;
@@ -16,6 +18,18 @@ import java.util.UUID;
 
 public class PlayerListener implements Listener {
 
+    @EventHandler(priority = EventPriority.LOW)
+    public void onPlayerPreLogin(AsyncPlayerPreLoginEvent event) {
+        if (event.getLoginResult() != AsyncPlayerPreLoginEvent.Result.ALLOWED) return;
+        
+        // Load the profile here, so the join doesn't wait on MongoDB
+        try {
+            Practice.getInstance().getPlayerManager().prefetch(event.getUniqueId());
+        } catch (Exception e) {
+            Practice.getInstance().getLogger().warning("Failed to prefetch profile of " + event.getName() + ": " + e.getMessage());
+        }
+    }
+
     @EventHandler
     public void onPlayerJoin(PlayerJoinEvent event) {
         Player player = event.getPlayer();
@@ -27,8 +41,7 @@ public class PlayerListener implements Listener {
         var playerData = Practice.getInstance().getPlayerManager().getPlayerData(player);
         
         // Update player name in database
-        playerData.setPlayerName(player.getName());
-        Practice.getInstance().getPlayerManager().savePlayerData(playerData);
+        Practice.getInstance().getPlayerManager().updatePlayerName(playerData, player.getName());
         
         // Teleport player to practice spawn
         teleportToPracticeSpawn(player);
@@ -81,19 +94,13 @@ public class PlayerListener implements Listener {
                 // End match with opponent as winner
                 UUID winner = match.getPlayer1().equals(player.getUniqueId()) ? match.getPlayer2() : match.getPlayer1();
                 
-                // Update stats for the winner
+                // Update winner name if player is online, endMatch records and saves the result
                 var winnerData = Practice.getInstance().getPlayerManager().getPlayerData(winner);
-                winnerData.setWins(winnerData.getWins() + 1);
-                
-                // Update winner name if player is online
                 Player winnerPlayer = Practice.getInstance().getServer().getPlayer(winner);
                 if (winnerPlayer != null) {
                     winnerData.setPlayerName(winnerPlayer.getName());
                 }
                 
-                // Save winner stats to MongoDB
-                Practice.getInstance().getPlayerManager().savePlayerData(winnerData);
-                
                 // Send message to remaining player BEFORE ending match
                 Player remainingPlayer = Practice.getInstance().getServer().getPlayer(winner);
                 if (remainingPlayer != null) {
@@ -111,6 +118,11 @@ public class PlayerListener implements Listener {
             }
         }
         
+        // Drop the player from its visibility group
+        if (matchManager != null) {
+            matchManager.getVisibility().remove(player);
+        }
+        
         // Clean up scoreboard
         ScoreboardIntegration.handlePlayerQuit(player);
         
@@ -141,24 +153,15 @@ public class PlayerListener implements Listener {
             UUID winner = killer != null ? killer.getUniqueId() : 
                 (match.getPlayer1().equals(player.getUniqueId()) ? match.getPlayer2() : match.getPlayer1());
             
-            // Update stats BEFORE ending the match
+            // Update player names if players are online, endMatch records and saves the result
             var playerData = Practice.getInstance().getPlayerManager().getPlayerData(player);
             var winnerData = Practice.getInstance().getPlayerManager().getPlayerData(winner);
-            
-            playerData.setLosses(playerData.getLosses() + 1);
-            winnerData.setWins(winnerData.getWins() + 1);
-            
-            // Update player names if players are online
             playerData.setPlayerName(player.getName());
             Player winnerPlayer = Practice.getInstance().getServer().getPlayer(winner);
             if (winnerPlayer != null) {
                 winnerData.setPlayerName(winnerPlayer.getName());
             }
             
-            // Save stats to MongoDB
-            Practice.getInstance().getPlayerManager().savePlayerData(playerData);
-            Practice.getInstance().getPlayerManager().savePlayerData(winnerData);
-            
             // Prevent death message
             event.setDeathMessage(null);
             
@@ -217,25 +220,12 @@ public class PlayerListener implements Listener {
 
     /**
      * Handles player visibility when a player joins the server
-     * If there are active matches, hide the joining player from players in matches
-     * and hide players in matches from the joining player
+     * Joining players start in the lobby group, so they don't see or get seen by players in matches
      */
     private void handlePlayerJoinVisibility(Player joiningPlayer) {
         var matchManager = Practice.getInstance().getMatchManager();
         if (matchManager == null) return;
         
-        // Hide the joining player from all players in matches
-        for (Player onlinePlayer : Practice.getInstance().getServer().getOnlinePlayers()) {
-            if (matchManager.isPlayerInMatch(onlinePlayer) && !onlinePlayer.equals(joiningPlayer)) {
-                onlinePlayer.hidePlayer(Practice.getInstance(), joiningPlayer);
-            }
-        }
-        
-        // Hide all players in matches from the joining player
-        for (Player onlinePlayer : Practice.getInstance().getServer().getOnlinePlayers()) {
-            if (matchManager.isPlayerInMatch(onlinePlayer) && !onlinePlayer.equals(joiningPlayer)) {
-                joiningPlayer.hidePlayer(Practice.getInstance(), onlinePlayer);
-            }
-        }
+        matchManager.getVisibility().joinLobby(joiningPlayer);
     }
 }
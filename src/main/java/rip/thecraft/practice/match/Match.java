@@ -3,8 +3,14 @@ package rip.thecraft.practice.match;
 import rip.thecraft.practice.arena.Arena;
 import rip.thecraft.practice.kit.Kit;
 import rip.thecraft.practice.queue.QueueType;
+import rip.thecraft.practice.tournament.TournamentMatch;
 
+import java.util.Collections;
+import java.util.Queue;
+import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
 
 public class Match {
 
@@ -15,6 +21,9 @@ public class Match {
     private final Arena arena;
     private boolean started = false;
     private long startTime;
+    private final Queue<MatchTimerWheel.Timer> timers = new ConcurrentLinkedQueue<>(); // Countdown, timeout and other match timers
+    private final Set<UUID> spectators = ConcurrentHashMap.newKeySet(); // Kept in sync by the spectate and tournament commands
+    private volatile TournamentMatch tournamentMatch; // Set when the match is played for a tournament
 
     public Match(UUID player1, UUID player2, Kit kit, QueueType type, Arena arena) {
         this.player1 = player1;
@@ -60,4 +69,38 @@ public class Match {
     public long getDuration() {
         return System.currentTimeMillis() - startTime;
     }
+
+    public void addSpectator(UUID spectator) {
+        spectators.add(spectator);
+    }
+
+    public void removeSpectator(UUID spectator) {
+        spectators.remove(spectator);
+    }
+
+    public Set<UUID> getSpectators() {
+        return Collections.unmodifiableSet(spectators);
+    }
+
+    public TournamentMatch getTournamentMatch() {
+        return tournamentMatch;
+    }
+
+    public void setTournamentMatch(TournamentMatch tournamentMatch) {
+        this.tournamentMatch = tournamentMatch;
+    }
+
+    void addTimer(MatchTimerWheel.Timer timer) {
+        timers.add(timer);
+    }
+
+    /**
+     * Cancel every timer of this match that hasn't fired yet
+     */
+    void cancelTimers() {
+        MatchTimerWheel.Timer timer;
+        while ((timer = timers.poll()) != null) {
+            timer.cancel();
+        }
+    }
 }
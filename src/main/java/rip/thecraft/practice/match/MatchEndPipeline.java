@@ -0,0 +1,72 @@
+package rip.thecraft.practice.match;
+
+import org.bukkit.plugin.Plugin;
+import rip.thecraft.practice.arena.LatencyHistogram;
+import rip.thecraft.practice.util.PaperAPI;
+
+import java.util.EnumMap;
+import java.util.Map;
+import java.util.logging.Level;
+
+/**
+ * Runs the end of a match as ordered stages. Only the critical stage runs inline, it frees the
+ * players and the arena and hands the result to the player write-behind. Visibility,
+ * regeneration and UI refresh follow in that order on the global thread, so none of them delay
+ * the players' return to the lobby. Stages only do bookkeeping there, anything that touches a
+ * player is handed to that player's entity scheduler so it runs on the player's region thread.
+ * While the plugin is disabling nothing can be scheduled, so the stages run inline.
+ *
+ * Every stage records how long after the match ended it finished on the global thread.
+ */
+public class MatchEndPipeline {
+
+    public enum Stage {
+        CRITICAL,
+        VISIBILITY,
+        REGENERATION,
+        UI
+    }
+
+    private final Plugin plugin;
+    private final Map<Stage, LatencyHistogram> latencies = new EnumMap<>(Stage.class);
+
+    public MatchEndPipeline(Plugin plugin) {
+        this.plugin = plugin;
+        for (Stage stage : Stage.values()) {
+            latencies.put(stage, new LatencyHistogram());
+        }
+    }
+
+    /**
+     * Run the critical stage now and queue the others behind it
+     */
+    public void run(Runnable critical, Runnable visibility, Runnable regeneration, Runnable ui) {
+        long start = System.nanoTime();
+        runStage(Stage.CRITICAL, start, critical);
+
+        Runnable deferred = () -> {
+            runStage(Stage.VISIBILITY, start, visibility);
+            runStage(Stage.REGENERATION, start, regeneration);
+            runStage(Stage.UI, start, ui);
+        };
+        if (plugin.isEnabled()) {
+            PaperAPI.runGlobal(plugin, deferred);
+        } else {
+            deferred.run();
+        }
+    }
+
+    public LatencyHistogram getLatency(Stage stage) {
+        return latencies.get(stage);
+    }
+
+    // A failing stage is logged and doesn't stop the ones after it
+    private void runStage(Stage stage, long start, Runnable task) {
+        try {
+            task.run();
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Match end stage " + stage.name().toLowerCase() + " failed", e);
+        }
+        latencies.get(stage).record((System.nanoTime() - start) / 1_000_000L);
+    }
+}
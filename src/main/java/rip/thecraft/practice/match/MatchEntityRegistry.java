@@ -0,0 +1,109 @@
+package rip.thecraft.practice.match;
+
+import org.bukkit.entity.Entity;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import rip.thecraft.practice.util.PaperAPI;
+
+import java.util.Collection;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Tags projectiles, pearls, potions and dropped items with the match that spawned them.
+ * Tagged entities are hidden by default and only shown to the viewers of their match, so
+ * nothing has to scan the world when a match starts or ends, and cleanup only touches the
+ * entities of that one match.
+ */
+public class MatchEntityRegistry {
+
+    private final Plugin plugin;
+    private final Function<Match, Collection<Player>> viewers;
+    private final Map<UUID, Match> owners = new ConcurrentHashMap<>();
+    private final Map<Match, Set<Entity>> entities = new ConcurrentHashMap<>();
+
+    /**
+     * @param viewers players that currently see the given match, its fighters and spectators
+     */
+    public MatchEntityRegistry(Plugin plugin, Function<Match, Collection<Player>> viewers) {
+        this.plugin = plugin;
+        this.viewers = viewers;
+    }
+
+    /**
+     * Tag a freshly spawned entity with its match and show it to that match only
+     */
+    public void register(Entity entity, Match match) {
+        if (owners.putIfAbsent(entity.getUniqueId(), match) != null) return;
+
+        // Added before looking up viewers, so anyone joining the match meanwhile still gets it through showTo
+        entities.computeIfAbsent(match, k -> ConcurrentHashMap.newKeySet()).add(entity);
+        entity.setVisibleByDefault(false);
+        for (Player viewer : viewers.apply(match)) {
+            viewer.showEntity(plugin, entity);
+        }
+    }
+
+    /**
+     * Forget an entity that left the world
+     */
+    public void unregister(Entity entity) {
+        Match match = owners.remove(entity.getUniqueId());
+        if (match == null) return;
+
+        Set<Entity> matchEntities = entities.get(match);
+        if (matchEntities != null) {
+            matchEntities.remove(entity);
+        }
+    }
+
+    public Match getOwner(Entity entity) {
+        return owners.get(entity.getUniqueId());
+    }
+
+    /**
+     * Show every entity of the match to a player that started viewing it
+     */
+    public void showTo(Match match, Player player) {
+        Set<Entity> matchEntities = entities.get(match);
+        if (matchEntities == null) return;
+        for (Entity entity : matchEntities) {
+            player.showEntity(plugin, entity);
+        }
+    }
+
+    /**
+     * Hide every entity of the match again from a player that stopped viewing it
+     */
+    public void hideFrom(Match match, Player player) {
+        Set<Entity> matchEntities = entities.get(match);
+        if (matchEntities == null) return;
+        for (Entity entity : matchEntities) {
+            player.hideEntity(plugin, entity);
+        }
+    }
+
+    /**
+     * Remove whatever the match left behind, pearls in flight, arrows in walls and items on the ground
+     */
+    public void closeMatch(Match match) {
+        Set<Entity> matchEntities = entities.remove(match);
+        if (matchEntities == null) return;
+
+        for (Entity entity : matchEntities) {
+            owners.remove(entity.getUniqueId());
+            PaperAPI.runForEntity(plugin, entity, () -> {
+                if (entity.isValid()) {
+                    entity.remove();
+                }
+            });
+        }
+    }
+
+    public int getTrackedCount() {
+        return owners.size();
+    }
+}
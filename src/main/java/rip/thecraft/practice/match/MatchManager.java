@@ -3,7 +3,7 @@ package rip.thecraft.practice.match;
 import org.bukkit.Bukkit;
 import org.bukkit.ChatColor;
 import org.bukkit.Location;
-import org.bukkit.World;
+import org.bukkit.entity.Entity;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import rip.thecraft.practice.Practice;
@@ -13,18 +13,49 @@ import rip.thecraft.practice.player.PlayerData;
 import rip.thecraft.practice.player.PlayerState;
 import rip.thecraft.practice.queue.QueueType;
 import rip.thecraft.practice.scoreboard.ScoreboardIntegration;
+import rip.thecraft.practice.tournament.TournamentMatch;
+import rip.thecraft.practice.util.PaperAPI;
 
 import java.util.*;
+import java.util.concurrent.CompletionException;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeoutException;
+import java.util.logging.Level;
 
 public class MatchManager {
 
     private final JavaPlugin plugin;
     private final Map<UUID, Match> activeMatches = new ConcurrentHashMap<>();
     private final Map<UUID, UUID> playerToMatchId = new ConcurrentHashMap<>(); // Bidirectional mapping for faster lookups
+    private final Map<String, MatchTimerWheel> timerWheels = new ConcurrentHashMap<>(); // One wheel per region cell
+    private final MatchEntityRegistry entities;
+    private final VisibilityEngine visibility;
+    private final MatchEndPipeline endPipeline;
 
     public MatchManager(JavaPlugin plugin) {
         this.plugin = plugin;
+        this.endPipeline = new MatchEndPipeline(plugin);
+        this.entities = new MatchEntityRegistry(plugin, match -> getVisibility().getViewers(match));
+        this.visibility = new VisibilityEngine(plugin, this::getPracticeSpawn, entities);
+    }
+
+    public VisibilityEngine getVisibility() {
+        return visibility;
+    }
+
+    public MatchEntityRegistry getEntities() {
+        return entities;
+    }
+
+    /**
+     * Tag an entity spawned by a player with that player's match, if any
+     */
+    public void trackMatchEntity(Entity entity, UUID owner) {
+        if (owner == null) return;
+        Match match = getPlayerMatch(owner);
+        if (match != null) {
+            entities.register(entity, match);
+        }
     }
 
     public void startMatch(Player player1, Player player2, Kit kit, QueueType type) {
@@ -39,7 +70,7 @@ public class MatchManager {
         }
 
         // Find an arena that can be used with this kit
-        Arena arena = Practice.getInstance().getArenaManager().findAvailableArenaForKit(kit.getName());
+        Arena arena = Practice.getInstance().getArenaManager().findAvailableArenaForKit(kit);
         if (arena == null) {
             player1.sendMessage("§cNo available arenas for this kit!");
             player2.sendMessage("§cNo available arenas for this kit!");
@@ -60,8 +91,8 @@ public class MatchManager {
             return;
         }
 
-        // Mark arena as in use
-        Practice.getInstance().getArenaManager().useArena(arena);
+        // Mark arena as in use, this starts loading its chunks right away
+        var chunksReady = Practice.getInstance().getArenaManager().useArena(arena);
         
         Match match = new Match(player1.getUniqueId(), player2.getUniqueId(), kit, type, arena);
         UUID matchId = player1.getUniqueId(); // Use player1 UUID as match ID
@@ -81,18 +112,14 @@ public class MatchManager {
         Practice.getInstance().getScoreboardService().forceUpdatePlayerScoreboard(player1);
         Practice.getInstance().getScoreboardService().forceUpdatePlayerScoreboard(player2);
 
-        // Teleport players to arena safely
-        teleportPlayerSafely(player1, arena.getSpawn1());
-        teleportPlayerSafely(player2, arena.getSpawn2());
-
         // Hide all other players and show only opponent
         setupPlayerVisibility(match);
 
         // Apply kit using PaperAPI for Folia compatibility
-        rip.thecraft.practice.util.PaperAPI.runForEntity(plugin, player1, () -> {
+        PaperAPI.runForEntity(plugin, player1, () -> {
             Practice.getInstance().getKitManager().applyKit(player1, kit);
         });
-        rip.thecraft.practice.util.PaperAPI.runForEntity(plugin, player2, () -> {
+        PaperAPI.runForEntity(plugin, player2, () -> {
             Practice.getInstance().getKitManager().applyKit(player2, kit);
         });
         
@@ -106,8 +133,24 @@ public class MatchManager {
         player1.sendMessage("§aMatch started! vs " + player2.getName());
         player2.sendMessage("§aMatch started! vs " + player1.getName());
 
-        // Start countdown
-        startCountdown(match);
+        // Teleport players and start the countdown once the arena's chunks are resident
+        chunksReady.whenComplete((millis, error) -> PaperAPI.runGlobal(plugin, () -> {
+            if (activeMatches.get(match.getPlayer1()) != match) return; // Ended while the chunks were loading
+            
+            if (error != null) {
+                // Never teleport into terrain that isn't there, the players go back to the lobby
+                Throwable cause = error instanceof CompletionException && error.getCause() != null ? error.getCause() : error;
+                plugin.getLogger().warning("Cancelled match in arena " + arena.getName() + ", its chunks "
+                    + (cause instanceof TimeoutException ? "took too long to load" : "failed to load: " + cause.getMessage()));
+                player1.sendMessage("§cThe arena couldn't be loaded, the match was cancelled.");
+                player2.sendMessage("§cThe arena couldn't be loaded, the match was cancelled.");
+                endMatch(match, null);
+                return;
+            }
+            teleportPlayerSafely(player1, arena.getSpawn1());
+            teleportPlayerSafely(player2, arena.getSpawn2());
+            startCountdown(match);
+        }));
         
         // Start match timeout
         startMatchTimeout(match);
@@ -132,7 +175,7 @@ public class MatchManager {
     
     private void startCountdownTick(Match match, int[] countdown) {
         // Schedule next tick with 1 second delay
-        rip.thecraft.practice.util.PaperAPI.runAtLocationLater(plugin, match.getArena().getSpawn1(), () -> {
+        scheduleMatchTimer(match, 20L, () -> {
             Player player1 = Bukkit.getPlayer(match.getPlayer1());
             Player player2 = Bukkit.getPlayer(match.getPlayer2());
 
@@ -153,97 +196,97 @@ public class MatchManager {
                 player2.sendMessage("§aMatch started!");
                 match.setStarted(true);
             }
-        }, 20L); // 1 second delay
+        });
     }
 
     public void endMatch(Match match, UUID winner) {
+        // Remove from active matches first, whoever gets here second finds nothing to end
+        UUID matchId = playerToMatchId.get(match.getPlayer1());
+        if (matchId == null || !activeMatches.remove(matchId, match)) return;
+        
         Player player1 = Bukkit.getPlayer(match.getPlayer1());
         Player player2 = Bukkit.getPlayer(match.getPlayer2());
+        UUID loser = winner == null ? null : winner.equals(match.getPlayer1()) ? match.getPlayer2() : match.getPlayer1();
+        var playerManager = Practice.getInstance().getPlayerManager();
+        var winnerData = winner != null ? playerManager.getPlayerData(winner) : null;
+        var loserData = loser != null ? playerManager.getPlayerData(loser) : null;
+
+        endPipeline.run(() -> {
+            // Critical: free the players and the arena
+            playerToMatchId.remove(match.getPlayer1());
+            playerToMatchId.remove(match.getPlayer2());
+
+            // Drop the countdown and timeout timers, they'd only find an ended match
+            match.cancelTimers();
+
+            // Handle tournament match completion first
+            handleTournamentMatchCompletion(match, winner);
+
+            // Apply the result in memory, ranked matches also move the kit's ELO
+            if (winner != null) {
+                String rankedKit = match.getType() == QueueType.RANKED ? match.getKit().getName() : null;
+                int[] changes = rankedKit != null
+                    ? Practice.getInstance().getQueueManager().calculateELO(winnerData, loserData, rankedKit)
+                    : new int[2];
+                
+                // Spooled now and written by the next bulk flush, a quick rejoin still finds the updated profile in the cache
+                playerManager.commitMatchResult(winnerData, winnerData.recordResult(rankedKit, changes[0], true),
+                    loserData, loserData.recordResult(rankedKit, changes[1], false));
+            }
 
-        // Handle tournament match completion first
-        handleTournamentMatchCompletion(match, winner);
+            // Release arena
+            Practice.getInstance().getArenaManager().releaseArena(match.getArena());
 
-        // Update ELO if ranked
-        if (match.getType() == QueueType.RANKED && winner != null) {
-            UUID loser = winner.equals(match.getPlayer1()) ? match.getPlayer2() : match.getPlayer1();
-            Practice.getInstance().getQueueManager().updateELO(winner, loser, QueueType.RANKED, match.getKit().getName());
-        }
+            // Send end messages
+            sendEndMessage(player1, winner);
+            sendEndMessage(player2, winner);
 
-        // Save player data to MongoDB after match results (ranked or unranked)
-        if (winner != null) {
-            UUID loser = winner.equals(match.getPlayer1()) ? match.getPlayer2() : match.getPlayer1();
+            // Teleport players to practice spawn and restore their state
+            if (player1 != null) {
+                restorePlayerToLobby(player1);
+            }
+            if (player2 != null) {
+                restorePlayerToLobby(player2);
+            }
+        }, () -> {
+            // Restore player visibility for all players
+            restorePlayerVisibility(match);
             
-            var winnerData = Practice.getInstance().getPlayerManager().getPlayerData(winner);
-            var loserData = Practice.getInstance().getPlayerManager().getPlayerData(loser);
+            // Remove all spectators from this match
+            removeSpectatorsFromMatch(match);
+            visibility.closeMatch(match);
+        }, () -> {
+            // Regenerate arena if needed (for build mode kits)
+            Practice.getInstance().getArenaListener().regenerateArena(match);
+        }, () -> {
+            // Clear hit counts for boxing mode
+            Practice.getInstance().getMatchListener().clearHitCounts(match.getPlayer1());
+            Practice.getInstance().getMatchListener().clearHitCounts(match.getPlayer2());
             
-            // Save both players to MongoDB
-            Practice.getInstance().getPlayerManager().savePlayerData(winnerData);
-            Practice.getInstance().getPlayerManager().savePlayerData(loserData);
-        }
-
-        // Send end messages
-        if (player1 != null) {
-            if (winner == null) {
-                player1.sendMessage("§cMatch ended!");
-            } else if (winner.equals(player1.getUniqueId())) {
-                player1.sendMessage("§aYou won the match!");
-            } else {
-                player1.sendMessage("§cYou lost the match!");
+            // Update scoreboards for both players on their own threads
+            if (player1 != null) {
+                PaperAPI.runForEntity(plugin, player1, () -> ScoreboardIntegration.updateMatchScoreboard(player1));
             }
-        }
-
-        if (player2 != null) {
-            if (winner == null) {
-                player2.sendMessage("§cMatch ended!");
-            } else if (winner.equals(player2.getUniqueId())) {
-                player2.sendMessage("§aYou won the match!");
-            } else {
-                player2.sendMessage("§cYou lost the match!");
+            if (player2 != null) {
+                PaperAPI.runForEntity(plugin, player2, () -> ScoreboardIntegration.updateMatchScoreboard(player2));
             }
-        }
-
-        // Remove from active matches and player mappings
-        UUID matchId = playerToMatchId.get(match.getPlayer1());
-        if (matchId != null) {
-            activeMatches.remove(matchId);
-        }
-        playerToMatchId.remove(match.getPlayer1());
-        playerToMatchId.remove(match.getPlayer2());
-
-        // Release arena
-        Practice.getInstance().getArenaManager().releaseArena(match.getArena());
+        });
+    }
 
-        // Restore player visibility for all players
-        restorePlayerVisibility(match);
+    private void sendEndMessage(Player player, UUID winner) {
+        if (player == null) return;
         
-        // Remove all spectators from this match
-        removeSpectatorsFromMatch(match);
-
-        // Teleport players to practice spawn and restore their state
-        if (player1 != null) {
-            restorePlayerToLobby(player1);
-        }
-        if (player2 != null) {
-            restorePlayerToLobby(player2);
+        if (winner == null) {
+            player.sendMessage("§cMatch ended!");
+        } else if (winner.equals(player.getUniqueId())) {
+            player.sendMessage("§aYou won the match!");
+        } else {
+            player.sendMessage("§cYou lost the match!");
         }
+    }
 
-        // Clear hit counts for boxing mode
-        Practice.getInstance().getMatchListener().clearHitCounts(match.getPlayer1());
-        Practice.getInstance().getMatchListener().clearHitCounts(match.getPlayer2());
-        
-        // Regenerate arena if needed (for build mode kits)
-        Practice.getInstance().getArenaListener().regenerateArena(match);
-        
-        // Debug: Log match end
-        plugin.getLogger().info("Match ended: " + (player1 != null ? player1.getName() : "Player1") + " vs " + (player2 != null ? player2.getName() : "Player2") + " - Winner: " + (winner != null ? winner : "None"));
-        
-        // Update scoreboards for both players
-        if (player1 != null) {
-            ScoreboardIntegration.updateMatchScoreboard(player1);
-        }
-        if (player2 != null) {
-            ScoreboardIntegration.updateMatchScoreboard(player2);
-        }
+    public MatchEndPipeline getEndPipeline() {
+        return endPipeline;
     }
 
     public void endMatch(Match match, Player winner, Player loser) {
@@ -291,9 +334,13 @@ public class MatchManager {
     }
 
     public void shutdown() {
-        // End all active matches
+        // End all active matches, one that fails doesn't keep the others running
         for (Match match : new HashSet<>(activeMatches.values())) {
-            endMatch(match, null);
+            try {
+                endMatch(match, null);
+            } catch (Exception e) {
+                plugin.getLogger().log(Level.SEVERE, "Failed to end match in " + match.getArena().getName() + " on shutdown", e);
+            }
         }
         activeMatches.clear();
         playerToMatchId.clear();
@@ -332,7 +379,7 @@ public class MatchManager {
 
     public void clearPlayer(Player player, boolean clearInventory, boolean resetStats) {
         // Use PaperAPI for Folia compatibility - run on entity scheduler
-        rip.thecraft.practice.util.PaperAPI.runForEntity(plugin, player, () -> {
+        PaperAPI.runForEntity(plugin, player, () -> {
             if (clearInventory) {
                 player.getInventory().clear();
                 player.getInventory().setArmorContents(null);
@@ -355,38 +402,14 @@ public class MatchManager {
     }
 
     public void teleportToPracticeSpawn(Player player) {
-        var config = Practice.getInstance().getConfig();
-        Location spawnLocation;
-        
-        // Check if practice spawn is set
-        if (config.contains("spawn.world")) {
-            String worldName = config.getString("spawn.world");
-            double x = config.getDouble("spawn.x");
-            double y = config.getDouble("spawn.y");
-            double z = config.getDouble("spawn.z");
-            float yaw = (float) config.getDouble("spawn.yaw");
-            float pitch = (float) config.getDouble("spawn.pitch");
-            
-            var world = Practice.getInstance().getServer().getWorld(worldName);
-            if (world != null) {
-                spawnLocation = new Location(world, x, y, z, yaw, pitch);
-            } else {
-                // Fallback to world spawn
-                spawnLocation = Practice.getInstance().getServer().getWorlds().get(0).getSpawnLocation();
-            }
-        } else {
-            // Fallback to world spawn
-            spawnLocation = Practice.getInstance().getServer().getWorlds().get(0).getSpawnLocation();
-        }
-        
         // Use the safe teleportation system
-        teleportPlayerSafely(player, spawnLocation);
+        teleportPlayerSafely(player, getPracticeSpawn());
     }
 
     private void startMatchTimeout(Match match) {
         // Auto-end match after 10 minutes to prevent arenas being stuck
-        // Use PaperAPI for Folia compatibility with proper delay
-        rip.thecraft.practice.util.PaperAPI.runAtLocationLater(plugin, match.getArena().getSpawn1(), () -> {
+        // The timer is cancelled when the match ends, so it doesn't linger for the full 10 minutes
+        scheduleMatchTimer(match, 20L * 60 * 10, () -> { // 10 minutes
             if (isPlayerInMatch(match.getPlayer1())) {
                 // Match is still active after timeout
                 Player player1 = Bukkit.getPlayer(match.getPlayer1());
@@ -397,7 +420,43 @@ public class MatchManager {
                 
                 endMatch(match, null);
             }
-        }, 20L * 60 * 10); // 10 minutes
+        });
+    }
+    
+    /**
+     * Run a task for the match after a delay on the timing wheel of the arena's region.
+     * The timer is cancelled automatically when the match ends.
+     */
+    public MatchTimerWheel.Timer scheduleMatchTimer(Match match, long delayTicks, Runnable task) {
+        Location location = match.getArena().getSpawn1();
+        MatchTimerWheel wheel = timerWheels.computeIfAbsent(getWheelKey(location), key -> new MatchTimerWheel(plugin, location));
+        MatchTimerWheel.Timer timer = wheel.schedule(location, delayTicks, task);
+        match.addTimer(timer);
+        return timer;
+    }
+
+    // One wheel per arena region cell on Folia, a single wheel otherwise since everything shares the main thread
+    private String getWheelKey(Location location) {
+        if (!PaperAPI.isRegionThreaded()) {
+            return "global";
+        }
+        int shift = Practice.getInstance().getArenaManager().getAllocator().getRegionShift();
+        return location.getWorld().getName() + ":" + ((location.getBlockX() >> 4) >> shift) + "," + ((location.getBlockZ() >> 4) >> shift);
+    }
+
+    /**
+     * Match timers that are scheduled and haven't fired or been cancelled, across every wheel
+     */
+    public int getLiveTimerCount() {
+        int live = 0;
+        for (MatchTimerWheel wheel : timerWheels.values()) {
+            live += wheel.getLiveCount();
+        }
+        return live;
+    }
+
+    public int getTimerWheelCount() {
+        return timerWheels.size();
     }
     
     public int getActiveMatchCount() {
@@ -437,11 +496,11 @@ public class MatchManager {
         
         // Schedule teleport for next tick - this is the key fix
         // Use PaperAPI for Folia compatibility
-        rip.thecraft.practice.util.PaperAPI.runForEntity(plugin, player, () -> {
+        PaperAPI.runForEntity(plugin, player, () -> {
             if (player.isOnline()) {
                 try {
                     // Use async teleport for Folia compatibility
-                    rip.thecraft.practice.util.PaperAPI.teleportAsync(player, location);
+                    PaperAPI.teleportAsync(player, location);
                 } catch (Exception e) {
                     plugin.getLogger().warning("Teleport failed for " + player.getName() + ": " + e.getMessage());
                 }
@@ -458,85 +517,9 @@ public class MatchManager {
         
         if (player1 == null || player2 == null) return;
         
-        // Hide all players from player1 except player2
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            if (!onlinePlayer.equals(player2)) {
-                player1.hidePlayer(plugin, onlinePlayer);
-            }
-        }
-        
-        // Hide all players from player2 except player1
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            if (!onlinePlayer.equals(player1)) {
-                player2.hidePlayer(plugin, onlinePlayer);
-            }
-        }
-        
-        // Show opponents to each other
-        player1.showPlayer(plugin, player2);
-        player2.showPlayer(plugin, player1);
-        
-        // Hide all entities from players in matches (to hide pearls, arrows, etc.)
-        hideEntitiesFromPlayers(match);
-    }
-
-    /**
-     * Hides entities from players in matches to prevent seeing pearls, arrows, etc.
-     */
-    private void hideEntitiesFromPlayers(Match match) {
-        Player player1 = Bukkit.getPlayer(match.getPlayer1());
-        Player player2 = Bukkit.getPlayer(match.getPlayer2());
-        
-        if (player1 == null || player2 == null) return;
-        
-        // Get the arena world
-        World arenaWorld = match.getArena().getSpawn1().getWorld();
-        
-        // Hide all entities from both players except themselves and their opponent
-        for (org.bukkit.entity.Entity entity : arenaWorld.getEntities()) {
-            if (entity instanceof Player) {
-                // Skip players - they're handled by player visibility
-                continue;
-            }
-            
-            // Hide entity from player1 if it's not from player2
-            if (!isEntityFromPlayer(entity, player2)) {
-                player1.hideEntity(plugin, entity);
-            }
-            
-            // Hide entity from player2 if it's not from player1
-            if (!isEntityFromPlayer(entity, player1)) {
-                player2.hideEntity(plugin, entity);
-            }
-        }
-    }
-
-    /**
-     * Checks if an entity was spawned/created by a specific player
-     */
-    private boolean isEntityFromPlayer(org.bukkit.entity.Entity entity, Player player) {
-        // Check for projectiles (arrows, snowballs, eggs, etc.)
-        if (entity instanceof org.bukkit.entity.Projectile) {
-            org.bukkit.entity.Projectile projectile = (org.bukkit.entity.Projectile) entity;
-            return projectile.getShooter() instanceof Player && ((Player) projectile.getShooter()).equals(player);
-        }
-        
-        // Check for thrown items (ender pearls, etc.)
-        if (entity instanceof org.bukkit.entity.ThrownPotion || 
-            entity instanceof org.bukkit.entity.EnderPearl ||
-            entity instanceof org.bukkit.entity.ThrownExpBottle) {
-            org.bukkit.entity.Projectile projectile = (org.bukkit.entity.Projectile) entity;
-            return projectile.getShooter() instanceof Player && ((Player) projectile.getShooter()).equals(player);
-        }
-        
-        // Check for dropped items
-        if (entity instanceof org.bukkit.entity.Item) {
-            // For items, we can't easily track the source player, so hide all items
-            return false;
-        }
-        
-        // For other entities, hide them by default
-        return false;
+        // Moving both into the match's group hides everyone else in the arena world from them
+        visibility.joinMatch(player1, match);
+        visibility.joinMatch(player2, match);
     }
 
     /**
@@ -546,52 +529,15 @@ public class MatchManager {
         Player player1 = Bukkit.getPlayer(match.getPlayer1());
         Player player2 = Bukkit.getPlayer(match.getPlayer2());
         
-        // Show all players to player1
+        // Remove the match's pearls, arrows and items before anyone leaves its group
+        entities.closeMatch(match);
+        
+        // Back in the lobby group, they see and are seen by the lobby again
         if (player1 != null) {
-            for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                player1.showPlayer(plugin, onlinePlayer);
-            }
+            visibility.joinLobby(player1);
         }
-        
-        // Show all players to player2
         if (player2 != null) {
-            for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-                player2.showPlayer(plugin, onlinePlayer);
-            }
-        }
-        
-        // Show player1 and player2 to all other players
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            if (player1 != null && !onlinePlayer.equals(player1)) {
-                onlinePlayer.showPlayer(plugin, player1);
-            }
-            if (player2 != null && !onlinePlayer.equals(player2)) {
-                onlinePlayer.showPlayer(plugin, player2);
-            }
-        }
-        
-        // Show all entities to both players
-        restoreEntityVisibility(match);
-    }
-
-    /**
-     * Restores entity visibility for players after match ends
-     */
-    private void restoreEntityVisibility(Match match) {
-        Player player1 = Bukkit.getPlayer(match.getPlayer1());
-        Player player2 = Bukkit.getPlayer(match.getPlayer2());
-        
-        if (player1 == null || player2 == null) return;
-        
-        // Get the arena world
-        World arenaWorld = match.getArena().getSpawn1().getWorld();
-        
-        // Show all entities to both players
-        for (org.bukkit.entity.Entity entity : arenaWorld.getEntities()) {
-            if (!(entity instanceof Player)) {
-                player1.showEntity(plugin, entity);
-                player2.showEntity(plugin, entity);
-            }
+            visibility.joinLobby(player2);
         }
     }
 
@@ -599,14 +545,9 @@ public class MatchManager {
      * Handle tournament match completion when a regular match ends
      */
     private void handleTournamentMatchCompletion(Match match, UUID winner) {
-        // Check if this match is part of a tournament
-        for (rip.thecraft.practice.tournament.Tournament tournament : Practice.getInstance().getTournamentManager().getActiveTournaments()) {
-            for (rip.thecraft.practice.tournament.TournamentMatch tournamentMatch : tournament.getActiveMatches()) {
-                if (tournamentMatch.getMatch() != null && tournamentMatch.getMatch().equals(match)) {
-                    tournamentMatch.onMatchEnd(winner);
-                    return;
-                }
-            }
+        TournamentMatch tournamentMatch = match.getTournamentMatch();
+        if (tournamentMatch != null) {
+            tournamentMatch.onMatchEnd(winner);
         }
     }
 
@@ -618,7 +559,7 @@ public class MatchManager {
         if (player == null || !player.isOnline()) return;
         
         // Use PaperAPI for Folia compatibility - run on entity scheduler
-        rip.thecraft.practice.util.PaperAPI.runForEntity(plugin, player, () -> {
+        PaperAPI.runForEntity(plugin, player, () -> {
             if (player.isOnline()) {
                 // Update player state
                 PlayerData playerData = Practice.getInstance().getPlayerManager().getPlayerData(player);
@@ -655,102 +596,53 @@ public class MatchManager {
      * Removes all spectators from a match when it ends
      */
     private void removeSpectatorsFromMatch(Match match) {
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
-            PlayerData playerData = Practice.getInstance().getPlayerManager().getPlayerData(onlinePlayer);
-            if (playerData != null && playerData.getState() == PlayerState.SPECTATING) {
-                Match spectatingMatch = playerData.getSpectatingMatch();
-                if (spectatingMatch != null && spectatingMatch.equals(match)) {
-                    // Remove spectator from this match
-                    playerData.setState(PlayerState.LOBBY);
-                    playerData.setSpectatingMatch(null);
-                    
-                    // Reset flight
-                    onlinePlayer.setAllowFlight(false);
-                    onlinePlayer.setFlying(false);
-                    
-                    // Restore visibility
-                    for (Player otherPlayer : Bukkit.getOnlinePlayers()) {
-                        if (!otherPlayer.equals(onlinePlayer)) {
-                            otherPlayer.showPlayer(plugin, onlinePlayer);
-                        }
-                    }
-                    for (Player otherPlayer : Bukkit.getOnlinePlayers()) {
-                        onlinePlayer.showPlayer(plugin, otherPlayer);
-                    }
-                    
-                    // Teleport back to spawn
-                    teleportToPracticeSpawn(onlinePlayer);
-                    
-                    // Use PaperAPI for Folia compatibility - run on entity scheduler
-                    rip.thecraft.practice.util.PaperAPI.runForEntity(plugin, onlinePlayer, () -> {
-                        // Clear inventory and reset stats
-                        onlinePlayer.getInventory().clear();
-                        onlinePlayer.setHealth(20.0);
-                        onlinePlayer.setFoodLevel(20);
-                        
-                        // Give lobby items
-                        Practice.getInstance().getItemManager().giveSpawnItems(onlinePlayer);
-                    });
-                    
-                    // Send message
-                    onlinePlayer.sendMessage(ChatColor.YELLOW + "The match you were spectating has ended.");
-                    
-                    // Update scoreboard
-                    Practice.getInstance().getScoreboardService().updatePlayerScoreboard(onlinePlayer);
-                }
-            }
-        }
-        
-        // Also remove tournament spectators
-        for (Player onlinePlayer : Bukkit.getOnlinePlayers()) {
+        TournamentMatch tournamentMatch = match.getTournamentMatch();
+        for (UUID spectatorId : match.getSpectators()) {
+            Player onlinePlayer = Bukkit.getPlayer(spectatorId);
+            if (onlinePlayer == null) continue;
+            
+            // Skip anyone that rejoined or moved on since they started spectating
             PlayerData playerData = Practice.getInstance().getPlayerManager().getPlayerData(onlinePlayer);
-            if (playerData != null && playerData.getState() == PlayerState.SPECTATING) {
-                rip.thecraft.practice.tournament.Tournament spectatingTournament = playerData.getSpectatingTournament();
-                if (spectatingTournament != null) {
-                    // Check if this match is part of the tournament they're spectating
-                    for (rip.thecraft.practice.tournament.TournamentMatch tournamentMatch : spectatingTournament.getActiveMatches()) {
-                        if (tournamentMatch.getMatch() != null && tournamentMatch.getMatch().equals(match)) {
-                            // Remove spectator from tournament
-                            playerData.setState(PlayerState.LOBBY);
-                            playerData.setSpectatingTournament(null);
-                            
-                            // Reset flight
-                            onlinePlayer.setAllowFlight(false);
-                            onlinePlayer.setFlying(false);
-                            
-                            // Restore visibility
-                            for (Player otherPlayer : Bukkit.getOnlinePlayers()) {
-                                if (!otherPlayer.equals(onlinePlayer)) {
-                                    otherPlayer.showPlayer(plugin, onlinePlayer);
-                                }
-                            }
-                            for (Player otherPlayer : Bukkit.getOnlinePlayers()) {
-                                onlinePlayer.showPlayer(plugin, otherPlayer);
-                            }
-                            
-                            // Teleport back to spawn
-                            teleportToPracticeSpawn(onlinePlayer);
-                            
-                            // Use PaperAPI for Folia compatibility - run on entity scheduler
-                            rip.thecraft.practice.util.PaperAPI.runForEntity(plugin, onlinePlayer, () -> {
-                                // Clear inventory and reset stats
-                                onlinePlayer.getInventory().clear();
-                                onlinePlayer.setHealth(20.0);
-                                onlinePlayer.setFoodLevel(20);
-                                
-                                // Give lobby items
-                                Practice.getInstance().getItemManager().giveSpawnItems(onlinePlayer);
-                            });
-                            
-                            // Send message
-                            onlinePlayer.sendMessage(ChatColor.YELLOW + "The tournament match you were spectating has ended.");
-                            
-                            // Update scoreboard
-                            Practice.getInstance().getScoreboardService().updatePlayerScoreboard(onlinePlayer);
-                            break;
-                        }
-                    }
-                }
+            if (playerData == null || playerData.getState() != PlayerState.SPECTATING) continue;
+            
+            boolean tournamentSpectator = playerData.getSpectatingMatch() == null && tournamentMatch != null
+                && playerData.getSpectatingTournament() == tournamentMatch.getTournament();
+            if (!tournamentSpectator && !match.equals(playerData.getSpectatingMatch())) continue;
+            
+            // Remove spectator from this match
+            playerData.setState(PlayerState.LOBBY);
+            playerData.setSpectatingMatch(null);
+            playerData.setSpectatingTournament(null);
+            
+            // Restore visibility
+            visibility.joinLobby(onlinePlayer);
+            
+            // Teleport back to spawn
+            teleportToPracticeSpawn(onlinePlayer);
+            
+            // Use PaperAPI for Folia compatibility - run on entity scheduler
+            PaperAPI.runForEntity(plugin, onlinePlayer, () -> {
+                // Reset flight
+                onlinePlayer.setAllowFlight(false);
+                onlinePlayer.setFlying(false);
+                
+                // Clear inventory and reset stats
+                onlinePlayer.getInventory().clear();
+                onlinePlayer.setHealth(20.0);
+                onlinePlayer.setFoodLevel(20);
+                
+                // Give lobby items
+                Practice.getInstance().getItemManager().giveSpawnItems(onlinePlayer);
+                
+                // Update scoreboard
+                Practice.getInstance().getScoreboardService().updatePlayerScoreboard(onlinePlayer);
+            });
+            
+            // Send message
+            if (tournamentSpectator) {
+                onlinePlayer.sendMessage(ChatColor.YELLOW + "The tournament match you were spectating has ended.");
+            } else {
+                onlinePlayer.sendMessage(ChatColor.YELLOW + "The match you were spectating has ended.");
             }
         }
     }
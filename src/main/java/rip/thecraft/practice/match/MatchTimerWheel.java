@@ -0,0 +1,153 @@
+package rip.thecraft.practice.match;
+
+import org.bukkit.Location;
+import org.bukkit.plugin.Plugin;
+import rip.thecraft.practice.util.PaperAPI;
+
+import java.util.Queue;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.logging.Level;
+
+/**
+ * Hashed timing wheel that drives the per-match timers of one region from a single repeating
+ * task. Every slot is one tick, and timers further out than one revolution wait a number of
+ * rounds in their slot.
+ *
+ * Scheduling and cancelling are O(1) and safe from any thread: new timers are handed over
+ * through a queue, and a cancelled timer is only flagged and gets unlinked the next time the
+ * wheel passes its slot.
+ */
+public class MatchTimerWheel {
+
+    private static final int SLOTS = 512; // Power of two, about 25 seconds per revolution
+    private static final int MASK = SLOTS - 1;
+
+    private final Plugin plugin;
+    private final Timer[] slots = new Timer[SLOTS];
+    private final Queue<Timer> pending = new ConcurrentLinkedQueue<>();
+    private final AtomicInteger live = new AtomicInteger();
+    private long currentTick = 0; // Only touched by tick, on the region thread that owns the anchor
+
+    /**
+     * @param anchor location whose region runs the wheel
+     */
+    public MatchTimerWheel(Plugin plugin, Location anchor) {
+        this.plugin = plugin;
+        PaperAPI.runAtLocationTimer(plugin, anchor, this::tick, 1L, 1L);
+    }
+
+    /**
+     * Run the task after the given number of ticks, on the region owning the location
+     */
+    public Timer schedule(Location location, long delayTicks, Runnable task) {
+        Timer timer = new Timer(this, location, Math.max(1L, delayTicks), task);
+        live.incrementAndGet();
+        pending.add(timer);
+        return timer;
+    }
+
+    /**
+     * Timers that are scheduled and have neither fired nor been cancelled
+     */
+    public int getLiveCount() {
+        return live.get();
+    }
+
+    // Package-private so tests can drive the wheel without a scheduler
+    void tick() {
+        // Timers scheduled since the last tick count their delay from here
+        Timer added;
+        while ((added = pending.poll()) != null) {
+            if (added.isDone()) continue;
+            int slot = (int) ((currentTick + added.delayTicks) & MASK);
+            added.rounds = (added.delayTicks - 1) / SLOTS;
+            added.next = slots[slot];
+            slots[slot] = added;
+        }
+
+        currentTick++;
+        int slot = (int) (currentTick & MASK);
+        Timer previous = null;
+        Timer timer = slots[slot];
+        while (timer != null) {
+            Timer next = timer.next;
+            boolean unlink = true;
+            if (!timer.isDone()) {
+                if (timer.rounds > 0) {
+                    timer.rounds--;
+                    unlink = false;
+                } else {
+                    fire(timer);
+                }
+            }
+
+            if (unlink) {
+                if (previous == null) {
+                    slots[slot] = next;
+                } else {
+                    previous.next = next;
+                }
+                timer.next = null;
+            } else {
+                previous = timer;
+            }
+            timer = next;
+        }
+    }
+
+    private void fire(Timer timer) {
+        if (!timer.finish()) return;
+
+        // Arenas in the same cell may still sit in another Folia region, hand those over
+        if (!PaperAPI.isOwnedByCurrentRegion(timer.location)) {
+            PaperAPI.runAtLocation(plugin, timer.location, timer.task);
+            return;
+        }
+        try {
+            timer.task.run();
+        } catch (Exception e) {
+            plugin.getLogger().log(Level.SEVERE, "Match timer failed", e);
+        }
+    }
+
+    /**
+     * Handle for a scheduled timer
+     */
+    public static final class Timer {
+
+        private final MatchTimerWheel wheel;
+        private final Location location;
+        private final long delayTicks;
+        private final Runnable task;
+        private final AtomicBoolean done = new AtomicBoolean();
+        private long rounds; // Revolutions left before firing, wheel thread only
+        private Timer next; // Next timer in the same slot, wheel thread only
+
+        private Timer(MatchTimerWheel wheel, Location location, long delayTicks, Runnable task) {
+            this.wheel = wheel;
+            this.location = location;
+            this.delayTicks = delayTicks;
+            this.task = task;
+        }
+
+        /**
+         * Stop the timer from firing. Does nothing if it already fired or was cancelled.
+         */
+        public void cancel() {
+            finish();
+        }
+
+        public boolean isDone() {
+            return done.get();
+        }
+
+        // Exactly one of fire and cancel wins, and only that one releases the live count
+        private boolean finish() {
+            if (!done.compareAndSet(false, true)) return false;
+            wheel.live.decrementAndGet();
+            return true;
+        }
+    }
+}
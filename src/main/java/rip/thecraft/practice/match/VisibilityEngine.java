@@ -0,0 +1,215 @@
+package rip.thecraft.practice.match;
+
+import org.bukkit.Location;
+import org.bukkit.World;
+import org.bukkit.entity.Player;
+import org.bukkit.plugin.Plugin;
+import rip.thecraft.practice.util.PaperAPI;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.function.Supplier;
+
+/**
+ * Player visibility by group: the lobby, and one group per match holding its players and
+ * spectators. Players see everyone in their own group except spectators, and nobody in
+ * another group of the same world. Players in different worlds are never tracked by each
+ * other, so no hide or show is needed between worlds.
+ *
+ * Moving a player only visits the groups in the worlds it leaves and enters, and only calls
+ * hidePlayer/showPlayer for pairs whose visibility actually changes. Entering or leaving a match
+ * group also shows or hides the entities that match owns.
+ *
+ * Group bookkeeping happens on the calling thread. On Folia the hide and show calls are handed to
+ * the viewer's entity scheduler, which runs them in order on the viewer's region thread.
+ */
+public class VisibilityEngine {
+
+    private static final Object LOBBY = new Object();
+
+    private final Plugin plugin;
+    private final Supplier<Location> lobbySpawn;
+    private final MatchEntityRegistry entities;
+    private final Map<Object, Group> groups = new HashMap<>();
+    private final Map<World, Set<Group>> groupsByWorld = new HashMap<>();
+    private final Map<UUID, Membership> members = new HashMap<>();
+
+    public VisibilityEngine(Plugin plugin, Supplier<Location> lobbySpawn, MatchEntityRegistry entities) {
+        this.plugin = plugin;
+        this.lobbySpawn = lobbySpawn;
+        this.entities = entities;
+    }
+
+    public synchronized void joinLobby(Player player) {
+        move(player, getGroup(LOBBY, lobbySpawn.get().getWorld()), false);
+    }
+
+    public synchronized void joinMatch(Player player, Match match) {
+        move(player, getGroup(match, match.getArena().getSpawn1().getWorld()), false);
+    }
+
+    public synchronized void joinSpectators(Player player, Match match) {
+        move(player, getGroup(match, match.getArena().getSpawn1().getWorld()), true);
+    }
+
+    /**
+     * Forget a player that is leaving the server, showing them again to everyone who had them hidden
+     */
+    public synchronized void remove(Player player) {
+        move(player, null, false);
+    }
+
+    /**
+     * Drop an ended match's group, anyone still in it goes back to the lobby
+     */
+    public synchronized void closeMatch(Match match) {
+        Group group = groups.get(match);
+        if (group == null) return;
+
+        for (Player player : new ArrayList<>(group.players)) {
+            joinLobby(player);
+        }
+        removeIfEmpty(group);
+    }
+
+    /**
+     * Everyone in the match's group, fighters and spectators
+     */
+    public synchronized List<Player> getViewers(Match match) {
+        Group group = groups.get(match);
+        return group != null ? new ArrayList<>(group.players) : List.of();
+    }
+
+    public synchronized int getGroupCount() {
+        return groups.size();
+    }
+
+    private void move(Player player, Group target, boolean spectator) {
+        Membership before = members.get(player.getUniqueId());
+        Membership after = target != null ? new Membership(target, spectator) : null;
+        if (before != null && after != null && before.group == after.group && before.spectator == after.spectator) {
+            return;
+        }
+
+        // Only players in the worlds being left or entered can change how they relate to this one
+        List<Player> affected = new ArrayList<>();
+        if (before != null) collectWorld(before.group.world, affected);
+        if (after != null && (before == null || after.group.world != before.group.world)) collectWorld(after.group.world, affected);
+
+        // Switching between fighter and spectator keeps the player in the group, so it can't empty out
+        boolean sameGroup = before != null && after != null && before.group == after.group;
+        if (before != null && !sameGroup) {
+            before.group.players.remove(player);
+            removeIfEmpty(before.group);
+        }
+        if (after != null) {
+            if (!sameGroup) {
+                after.group.players.add(player);
+            }
+            members.put(player.getUniqueId(), after);
+        } else {
+            members.remove(player.getUniqueId());
+        }
+
+        for (Player other : affected) {
+            if (other.equals(player)) continue;
+            Membership otherMembership = members.get(other.getUniqueId());
+            apply(other, player, canSee(otherMembership, before), canSee(otherMembership, after));
+            apply(player, other, canSee(before, otherMembership), canSee(after, otherMembership));
+        }
+
+        // Projectiles and items of a match are only visible from inside its group
+        Group left = before != null ? before.group : null;
+        Group entered = after != null ? after.group : null;
+        if (left != entered) {
+            if (left != null && left.key instanceof Match) {
+                Match match = (Match) left.key;
+                runFor(player, () -> entities.hideFrom(match, player));
+            }
+            if (entered != null && entered.key instanceof Match) {
+                Match match = (Match) entered.key;
+                runFor(player, () -> entities.showTo(match, player));
+            }
+        }
+    }
+
+    private void collectWorld(World world, List<Player> into) {
+        Set<Group> worldGroups = groupsByWorld.get(world);
+        if (worldGroups == null) return;
+        for (Group group : worldGroups) {
+            into.addAll(group.players);
+        }
+    }
+
+    private boolean canSee(Membership viewer, Membership target) {
+        if (viewer == null || target == null || viewer.group.world != target.group.world) {
+            return true;
+        }
+        return viewer.group == target.group && !target.spectator;
+    }
+
+    private void apply(Player viewer, Player target, boolean visibleBefore, boolean visibleAfter) {
+        if (visibleBefore == visibleAfter) return;
+        if (visibleAfter) {
+            runFor(viewer, () -> viewer.showPlayer(plugin, target));
+        } else {
+            runFor(viewer, () -> viewer.hidePlayer(plugin, target));
+        }
+    }
+
+    // Without region threads the caller already owns every player, so there is no tick to wait for
+    private void runFor(Player viewer, Runnable task) {
+        if (PaperAPI.isRegionThreaded()) {
+            PaperAPI.runForEntity(plugin, viewer, task);
+        } else {
+            task.run();
+        }
+    }
+
+    private Group getGroup(Object key, World world) {
+        return groups.computeIfAbsent(key, k -> {
+            Group group = new Group(k, world);
+            groupsByWorld.computeIfAbsent(world, w -> new LinkedHashSet<>()).add(group);
+            return group;
+        });
+    }
+
+    private void removeIfEmpty(Group group) {
+        if (!group.players.isEmpty() || group.key == LOBBY) return;
+
+        groups.remove(group.key);
+        Set<Group> worldGroups = groupsByWorld.get(group.world);
+        if (worldGroups != null) {
+            worldGroups.remove(group);
+            if (worldGroups.isEmpty()) {
+                groupsByWorld.remove(group.world);
+            }
+        }
+    }
+
+    private static final class Group {
+        private final Object key;
+        private final World world;
+        private final Set<Player> players = new LinkedHashSet<>();
+
+        private Group(Object key, World world) {
+            this.key = key;
+            this.world = world;
+        }
+    }
+
+    private static final class Membership {
+        private final Group group;
+        private final boolean spectator;
+
+        private Membership(Group group, boolean spectator) {
+            this.group = group;
+            this.spectator = spectator;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package rip.thecraft.practice.player;
+
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+import java.util.function.Predicate;
+
+/**
+ * Bounded LRU tier for profiles of players that aren't online, such as leaderboard names or
+ * players who just quit. Entries are weighed by their size, one per profile plus one per kit it
+ * has stats for, and expire when they haven't been read for a while.
+ *
+ * Profiles with changes that weren't saved yet are never dropped, reloading them would read the
+ * old document.
+ */
+final class OfflineProfileCache {
+
+    private final long maxWeight;
+    private final long expireAfterMillis;
+    private final Predicate<UUID> unsaved;
+    private final LinkedHashMap<UUID, Entry> entries = new LinkedHashMap<>(64, 0.75f, true); // Least recently read first
+    private long weight;
+    private long hits;
+    private long misses;
+    private long evictions;
+    private long expirations;
+
+    OfflineProfileCache(long maxWeight, long expireAfterMillis, Predicate<UUID> unsaved) {
+        this.maxWeight = Math.max(1, maxWeight);
+        this.expireAfterMillis = Math.max(1000L, expireAfterMillis);
+        this.unsaved = unsaved;
+    }
+
+    synchronized PlayerData get(UUID playerId) {
+        Entry entry = entries.get(playerId);
+        long now = System.currentTimeMillis();
+        if (entry == null || (isExpired(entry, now) && !unsaved.test(playerId))) {
+            if (entry != null) {
+                remove(playerId);
+                expirations++;
+            }
+            misses++;
+            return null;
+        }
+        entry.lastRead = now;
+        hits++;
+        return entry.data;
+    }
+
+    /**
+     * Add a profile unless one is already cached
+     * @return the cached profile
+     */
+    synchronized PlayerData putIfAbsent(UUID playerId, PlayerData data) {
+        Entry existing = entries.get(playerId);
+        if (existing != null) return existing.data;
+
+        Entry entry = new Entry(data);
+        entries.put(playerId, entry);
+        weight += entry.weight;
+        trim();
+        return data;
+    }
+
+    /**
+     * Add a profile, replacing a cached copy of it
+     */
+    synchronized void put(UUID playerId, PlayerData data) {
+        remove(playerId);
+        putIfAbsent(playerId, data);
+    }
+
+    synchronized PlayerData remove(UUID playerId) {
+        Entry entry = entries.remove(playerId);
+        if (entry == null) return null;
+        weight -= entry.weight;
+        return entry.data;
+    }
+
+    synchronized int size() {
+        return entries.size();
+    }
+
+    synchronized long getWeight() {
+        return weight;
+    }
+
+    long getMaxWeight() {
+        return maxWeight;
+    }
+
+    synchronized long getHits() {
+        return hits;
+    }
+
+    synchronized long getMisses() {
+        return misses;
+    }
+
+    synchronized long getEvictions() {
+        return evictions;
+    }
+
+    synchronized long getExpirations() {
+        return expirations;
+    }
+
+    // Drop expired entries, then the least recently read ones until the tier fits again
+    private void trim() {
+        long now = System.currentTimeMillis();
+        Iterator<Map.Entry<UUID, Entry>> iterator = entries.entrySet().iterator();
+        while (iterator.hasNext()) {
+            Map.Entry<UUID, Entry> next = iterator.next();
+            boolean expired = isExpired(next.getValue(), now);
+            if (!expired && weight <= maxWeight) break;
+            if (unsaved.test(next.getKey())) continue;
+
+            iterator.remove();
+            weight -= next.getValue().weight;
+            if (expired) {
+                expirations++;
+            } else {
+                evictions++;
+            }
+        }
+    }
+
+    private boolean isExpired(Entry entry, long now) {
+        return now - entry.lastRead > expireAfterMillis;
+    }
+
+    private static final class Entry {
+        private final PlayerData data;
+        private final int weight;
+        private long lastRead = System.currentTimeMillis();
+
+        private Entry(PlayerData data) {
+            this.data = data;
+            this.weight = 1 + data.getKitStats().size();
+        }
+    }
+}
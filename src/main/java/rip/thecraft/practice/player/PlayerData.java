@@ -18,6 +18,7 @@ public class PlayerData {
     private Match spectatingMatch;
     private rip.thecraft.practice.tournament.Tournament spectatingTournament;
     private final Map<String, KitStats> kitStats = new java.util.concurrent.ConcurrentHashMap<>();
+    private volatile boolean legacyDocument = false; // Loaded from the old layout, the next save rewrites it whole
 
     public PlayerData(UUID playerId) {
         this.playerId = playerId;
@@ -113,6 +114,46 @@ public class PlayerData {
         updateGlobalElo();
     }
     
+    /**
+     * Apply one match result in memory. Ranked results also move the kit's ELO and stats,
+     * unranked ones only count towards the global wins and losses.
+     * @param kitName the ranked kit, or null for unranked
+     * @return the same change as an update of the player's document
+     */
+    public PlayerUpdate recordResult(String kitName, int eloChange, boolean won) {
+        PlayerUpdate update = new PlayerUpdate();
+        if (kitName != null) {
+            updateKitStats(kitName, eloChange, won);
+            String path = "kitStats." + kitName.toLowerCase() + ".";
+            update.set(path + "elo", getKitStats(kitName).getElo());
+            update.inc(path + (won ? "wins" : "losses"), 1);
+            update.set("globalElo", globalElo);
+        } else if (won) {
+            globalWins++;
+        } else {
+            globalLosses++;
+        }
+        update.inc(won ? "globalWins" : "globalLosses", 1);
+        if (playerName != null) {
+            update.set("playerName", playerName);
+        }
+
+        // Old documents keep their counters under other names, rewrite them whole once
+        if (legacyDocument) {
+            legacyDocument = false;
+            return PlayerUpdate.replace(serialize());
+        }
+        return update;
+    }
+
+    public boolean isLegacyDocument() {
+        return legacyDocument;
+    }
+
+    public void setLegacyDocument(boolean legacyDocument) {
+        this.legacyDocument = legacyDocument;
+    }
+    
     private void updateGlobalElo() {
         if (kitStats.isEmpty()) {
             globalElo = 1000; // Default if no kits
@@ -183,6 +224,9 @@ public class PlayerData {
             data.setLosses(document.getInteger("globalLosses", 0));
         }
         
+        // Partial updates only know the new field names
+        data.setLegacyDocument(document.containsKey("elo") || document.containsKey("wins") || document.containsKey("losses"));
+        
         // Deserialize kit stats
         if (document.containsKey("kitStats")) {
             Document kitStatsDocument = (Document) document.get("kitStats");
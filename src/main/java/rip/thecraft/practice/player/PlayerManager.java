@@ -2,29 +2,170 @@ package rip.thecraft.practice.player;
 
 import com.mongodb.client.MongoCollection;
 import com.mongodb.client.model.Filters;
-import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.IndexOptions;
+import com.mongodb.client.model.Indexes;
+import com.mongodb.client.model.Projections;
+import com.mongodb.client.model.Sorts;
 import org.bson.Document;
+import org.bukkit.Bukkit;
 import org.bukkit.entity.Player;
 import org.bukkit.plugin.java.JavaPlugin;
 import rip.thecraft.practice.Practice;
 
+import java.io.File;
+import java.io.IOException;
+import java.util.LinkedHashMap;
 import java.util.Map;
 import java.util.UUID;
 import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.LongAdder;
 
 public class PlayerManager {
 
     private final JavaPlugin plugin;
-    private final Map<UUID, PlayerData> playerData = new ConcurrentHashMap<>();
+    private final Map<UUID, PlayerData> playerData = new ConcurrentHashMap<>(); // Online players, never evicted
     private final MongoCollection<Document> playersCollection;
+    private final PlayerWriteBehind writeBehind;
+    private final OfflineProfileCache offlineData;
+    private final LongAdder onlineHits = new LongAdder();
+    private final LongAdder matchResults = new LongAdder();
+    private final LongAdder prefetched = new LongAdder(); // Profiles loaded during pre-login
+    private final LongAdder mainThreadLoads = new LongAdder(); // Cache misses that blocked the server thread
 
     public PlayerManager(JavaPlugin plugin) {
         this.plugin = plugin;
         this.playersCollection = Practice.getInstance().getDatabase().getCollection("players");
+
+        var config = plugin.getConfig();
+        PlayerWriteSpool spool = openSpool(plugin);
+        this.writeBehind = new PlayerWriteBehind(plugin, playersCollection, spool, openSequence(plugin, playersCollection, spool),
+            config.getLong("mongodb.write-behind.flush-interval-ms", 1000L),
+            config.getInt("mongodb.write-behind.batch-size", 500),
+            config.getInt("mongodb.write-behind.max-pending", 5000));
+        this.offlineData = new OfflineProfileCache(
+            config.getLong("players.offline-cache.max-size", 2000L),
+            config.getLong("players.offline-cache.expire-after-seconds", 300L) * 1000L,
+            writeBehind::isPending);
+    }
+
+    private static PlayerWriteSpool openSpool(JavaPlugin plugin) {
+        var config = plugin.getConfig();
+        if (!config.getBoolean("mongodb.write-behind.spool.enabled", true)) return null;
+
+        PlayerWriteSpool spool = new PlayerWriteSpool(plugin.getLogger(), new File(plugin.getDataFolder(), "spool"),
+            config.getLong("mongodb.write-behind.spool.segment-size-kb", 4096L) * 1024L);
+        try {
+            spool.open();
+            return spool;
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not open the player write spool, writing to MongoDB directly: " + e.getMessage());
+            return null;
+        }
+    }
+
+    /**
+     * Continue above every sequence handed out before: the state file's mark, the spool, and when
+     * the state file is missing or unreadable, the highest sequence stored in MongoDB
+     */
+    private static PlayerWriteSequence openSequence(JavaPlugin plugin, MongoCollection<Document> collection, PlayerWriteSpool spool) {
+        // Kept up to date by every write, so finding the highest sequence never scans the collection
+        try {
+            collection.createIndex(Indexes.descending(PlayerUpdate.SEQUENCE_FIELD), new IndexOptions().sparse(true));
+        } catch (Exception e) {
+            plugin.getLogger().warning("Could not create the player write sequence index: " + e.getMessage());
+        }
+
+        PlayerWriteSequence sequence = new PlayerWriteSequence(new File(plugin.getDataFolder(), "write-sequence"));
+        long floor = spool != null ? spool.getLastSequence() : 0;
+        long stored;
+        try {
+            stored = sequence.load();
+        } catch (IOException e) {
+            plugin.getLogger().warning("Unreadable player write sequence, continuing from MongoDB: " + e.getMessage());
+            stored = -1;
+        }
+        floor = Math.max(floor, stored >= 0 ? stored : getHighestSequence(plugin, collection));
+
+        try {
+            sequence.open(floor);
+        } catch (IOException e) {
+            plugin.getLogger().severe("Could not save the player write sequence, player writes wait in memory until it can: " + e.getMessage());
+        }
+        return sequence;
+    }
+
+    // Only needed without a state file, a covered walk of the sequence index
+    private static long getHighestSequence(JavaPlugin plugin, MongoCollection<Document> collection) {
+        try {
+            Document document = collection.find(Filters.exists(PlayerUpdate.SEQUENCE_FIELD))
+                .sort(Sorts.descending(PlayerUpdate.SEQUENCE_FIELD))
+                .projection(Projections.fields(Projections.include(PlayerUpdate.SEQUENCE_FIELD), Projections.excludeId()))
+                .first();
+            return document != null ? ((Number) document.get(PlayerUpdate.SEQUENCE_FIELD)).longValue() : 0;
+        } catch (Exception e) {
+            // Earlier versions took sequences from the clock, so it is the best guess without MongoDB
+            plugin.getLogger().warning("Could not read the highest player write sequence, starting from the clock: " + e.getMessage());
+            return System.currentTimeMillis() * 1000L;
+        }
     }
 
     public PlayerData getPlayerData(UUID playerId) {
-        return playerData.computeIfAbsent(playerId, this::loadPlayerData);
+        PlayerData data = playerData.get(playerId);
+        if (data != null) {
+            onlineHits.increment();
+            return data;
+        }
+
+        data = offlineData.get(playerId);
+        if (data != null) {
+            // Read on behalf of a player who is back online, pin it again
+            return Bukkit.getPlayer(playerId) != null ? promote(playerId, data) : data;
+        }
+
+        // Online players are prefetched before they join, so this should be rare on the server thread
+        if (Bukkit.isPrimaryThread()) {
+            mainThreadLoads.increment();
+        }
+        data = loadPlayerData(playerId);
+        if (Bukkit.getPlayer(playerId) != null) {
+            PlayerData existing = playerData.putIfAbsent(playerId, data);
+            return existing != null ? existing : data;
+        }
+        return offlineData.putIfAbsent(playerId, data);
+    }
+
+    /**
+     * Load a profile into the offline cache ahead of the join, on the async pre-login thread.
+     * The join promotes it, a login that never gets that far leaves it to expire.
+     */
+    public void prefetch(UUID playerId) {
+        // Still cached from a recent visit, that copy may hold changes that weren't saved yet
+        if (playerData.containsKey(playerId) || offlineData.get(playerId) != null) return;
+
+        PlayerData data = loadPlayerData(playerId);
+        if (offlineData.putIfAbsent(playerId, data) == data) {
+            prefetched.increment();
+        }
+    }
+
+    // Move a profile from the offline cache to the pinned online players. The copy that was just
+    // read is pinned when the entry expired or was evicted in between, so this never returns null.
+    private PlayerData promote(UUID playerId, PlayerData read) {
+        PlayerData removed = offlineData.remove(playerId);
+        PlayerData data = removed != null ? removed : read;
+
+        PlayerData existing = playerData.putIfAbsent(playerId, data);
+        return existing != null ? existing : data;
+    }
+
+    /**
+     * Record the player's current name, writing just that field with the next flush when it changed
+     */
+    public void updatePlayerName(PlayerData data, String name) {
+        if (name.equals(data.getPlayerName())) return;
+
+        data.setPlayerName(name);
+        writeBehind.queue(data.getPlayerId(), new PlayerUpdate().set("playerName", name));
     }
 
     public PlayerData getPlayerData(Player player) {
@@ -32,41 +173,214 @@ public class PlayerManager {
     }
 
     private PlayerData loadPlayerData(UUID playerId) {
+        // Spooled from before a restart, write it first so the document isn't read stale
+        if (writeBehind.isPending(playerId) && !Bukkit.isPrimaryThread()) {
+            writeBehind.flush();
+        }
+
+        // Still unsaved on the server thread or while MongoDB is down, laid over the stored document
+        // so a later whole-document save doesn't overwrite them
+        PlayerWriteBehind.Unsaved unsaved = writeBehind.getUnsaved(playerId);
         Document document = playersCollection.find(Filters.eq("_id", playerId.toString())).first();
+        if (unsaved != null) {
+            if (document == null) {
+                document = new PlayerData(playerId).serialize();
+            }
+            unsaved.applyTo(document);
+        }
         if (document != null) {
             return PlayerData.deserialize(document);
         }
-        
+
         // Create new player data - don't save to MongoDB until first match result
         return new PlayerData(playerId);
     }
 
+    /**
+     * Queue the whole document, it is written with the next flush
+     */
     public void savePlayerData(PlayerData data) {
-        Document document = data.serialize();
-        playersCollection.replaceOne(
-            Filters.eq("_id", data.getPlayerId().toString()),
-            document,
-            new ReplaceOptions().upsert(true)
-        );
+        data.setLegacyDocument(false);
+        writeBehind.queue(data.getPlayerId(), PlayerUpdate.replace(data.serialize()));
+    }
+
+    /**
+     * Queue a change of one player's document, it coalesces with other changes until the next flush
+     */
+    public void queueUpdate(PlayerData data, PlayerUpdate update) {
+        writeBehind.queue(data.getPlayerId(), update);
+    }
+
+    /**
+     * Queue both players' share of a match result, spooled before this returns so a crash before
+     * the next flush doesn't lose it
+     */
+    public void commitMatchResult(PlayerData winnerData, PlayerUpdate winnerUpdate, PlayerData loserData, PlayerUpdate loserUpdate) {
+        Map<UUID, PlayerUpdate> updates = new LinkedHashMap<>();
+        updates.put(winnerData.getPlayerId(), winnerUpdate);
+        updates.put(loserData.getPlayerId(), loserUpdate);
+        writeBehind.queueDurable(updates);
+        matchResults.increment();
+    }
+
+    public long getPrefetchCount() {
+        return prefetched.sum();
+    }
+
+    public long getMainThreadLoadCount() {
+        return mainThreadLoads.sum();
+    }
+
+    public int getOnlineCachedCount() {
+        return playerData.size();
+    }
+
+    public long getOnlineHitCount() {
+        return onlineHits.sum();
+    }
+
+    public int getOfflineCachedCount() {
+        return offlineData.size();
+    }
+
+    /**
+     * Size of the offline cache, one per profile plus one per kit with stats
+     */
+    public long getOfflineCacheSize() {
+        return offlineData.getWeight();
+    }
+
+    public long getOfflineCacheMaxSize() {
+        return offlineData.getMaxWeight();
+    }
+
+    public long getOfflineHitCount() {
+        return offlineData.getHits();
+    }
+
+    public long getOfflineMissCount() {
+        return offlineData.getMisses();
+    }
+
+    public long getOfflineEvictionCount() {
+        return offlineData.getEvictions();
+    }
+
+    public long getOfflineExpirationCount() {
+        return offlineData.getExpirations();
+    }
+
+    public long getMatchResultCount() {
+        return matchResults.sum();
+    }
+
+    /**
+     * Bulk writes sent to MongoDB, each one carries any number of players
+     */
+    public long getWriteCount() {
+        return writeBehind.getBulkWriteCount();
+    }
+
+    /**
+     * MongoDB write requests per committed match result, coalescing keeps it below 1
+     */
+    public double getWritesPerMatchResult() {
+        long results = matchResults.sum();
+        return results == 0 ? 0 : (double) writeBehind.getBulkWriteCount() / results;
+    }
+
+    public int getPendingWriteCount() {
+        return writeBehind.getPendingCount();
+    }
+
+    public long getQueuedWriteCount() {
+        return writeBehind.getQueuedCount();
+    }
+
+    public long getCoalescedWriteCount() {
+        return writeBehind.getCoalescedCount();
+    }
+
+    public long getWrittenDocumentCount() {
+        return writeBehind.getDocumentCount();
+    }
+
+    public long getFailedWriteCount() {
+        return writeBehind.getFailureCount();
+    }
+
+    public long getRejectedWriteCount() {
+        return writeBehind.getRejectedCount();
+    }
+
+    public long getSupersededWriteCount() {
+        return writeBehind.getSupersededCount();
+    }
+
+    /**
+     * Whether the last write to MongoDB failed, changes wait in the spool until it is back
+     */
+    public boolean isDatabaseDegraded() {
+        return writeBehind.isDegraded();
+    }
+
+    public boolean isSpooling() {
+        return writeBehind.isSpooling();
+    }
+
+    public int getSpooledBatchCount() {
+        return writeBehind.getSpooledBatchCount();
+    }
+
+    public int getSpooledDocumentCount() {
+        return writeBehind.getSpooledDocumentCount();
+    }
+
+    /**
+     * Bytes on disk across all spool segments
+     */
+    public long getSpoolSize() {
+        return writeBehind.getSpoolSize();
+    }
+
+    public int getSpoolSegmentCount() {
+        return writeBehind.getSpoolSegmentCount();
     }
 
     public void updateKitStats(UUID playerId, String kitName, int eloChange, boolean won) {
         // Update in-memory data first
         PlayerData playerData = getPlayerData(playerId);
         playerData.updateKitStats(kitName, eloChange, won);
-        
-        // Then save the entire player data to MongoDB
+
+        // Then queue the entire player data for MongoDB
         // This avoids MongoDB update conflicts and ensures data consistency
         savePlayerData(playerData);
     }
 
+    /**
+     * Queue every cached profile and write them out in bulk right away
+     */
     public void saveAllPlayerData() {
         for (PlayerData data : playerData.values()) {
             savePlayerData(data);
         }
+        writeBehind.flush();
     }
 
+    /**
+     * Flush everything still queued, on the calling thread
+     */
+    public void shutdown() {
+        writeBehind.shutdown();
+    }
+
+    /**
+     * Unpin a player who left, the profile stays in the offline cache for quick rejoins and lookups
+     */
     public void removePlayerData(UUID playerId) {
-        playerData.remove(playerId);
+        PlayerData data = playerData.remove(playerId);
+        if (data != null) {
+            offlineData.put(playerId, data);
+        }
     }
 }
@@ -0,0 +1,184 @@
+package rip.thecraft.practice.player;
+
+import com.mongodb.client.model.Filters;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.ReplaceOptions;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.UpdateOptions;
+import com.mongodb.client.model.Updates;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+
+/**
+ * Pending change to one player document, either field level $set/$inc changes or the whole
+ * document. Later changes fold into earlier ones, so a player changed many times between two
+ * flushes is still written once.
+ */
+public final class PlayerUpdate {
+
+    static final String SEQUENCE_FIELD = "writeSequence"; // Last spooled write applied to the document
+
+    private final Map<String, Object> sets = new LinkedHashMap<>();
+    private final Map<String, Integer> incs = new LinkedHashMap<>();
+    private Document replacement; // Whole document, takes the place of any field changes
+
+    public static PlayerUpdate replace(Document document) {
+        PlayerUpdate update = new PlayerUpdate();
+        update.replacement = document;
+        return update;
+    }
+
+    public PlayerUpdate set(String field, Object value) {
+        if (replacement != null) {
+            Document parent = getParent(replacement, field);
+            parent.put(getLeaf(field), value);
+            return this;
+        }
+        incs.remove(field);
+        sets.put(field, value);
+        return this;
+    }
+
+    public PlayerUpdate inc(String field, int amount) {
+        if (replacement != null) {
+            Document parent = getParent(replacement, field);
+            Object current = parent.get(getLeaf(field));
+            parent.put(getLeaf(field), (current instanceof Number ? ((Number) current).intValue() : 0) + amount);
+            return this;
+        }
+        Object current = sets.get(field);
+        if (current instanceof Number) {
+            sets.put(field, ((Number) current).intValue() + amount);
+        } else {
+            incs.merge(field, amount, Integer::sum);
+        }
+        return this;
+    }
+
+    /**
+     * Fold a later update into this one
+     */
+    void merge(PlayerUpdate later) {
+        if (later.replacement != null) {
+            replacement = later.replacement;
+            sets.clear();
+            incs.clear();
+            return;
+        }
+        later.sets.forEach(this::set);
+        later.incs.forEach(this::inc);
+    }
+
+    PlayerUpdate copy() {
+        PlayerUpdate copy = new PlayerUpdate();
+        copy.merge(this);
+        if (replacement != null) {
+            copy.replacement = copyOf(replacement);
+        }
+        return copy;
+    }
+
+    /**
+     * Apply the change to a document in memory, the way MongoDB would
+     */
+    void applyTo(Document document) {
+        if (replacement != null) {
+            document.clear();
+            document.putAll(copyOf(replacement));
+            return;
+        }
+        sets.forEach((field, value) -> getParent(document, field).put(getLeaf(field), value));
+        incs.forEach((field, amount) -> {
+            Document parent = getParent(document, field);
+            Object current = parent.get(getLeaf(field));
+            parent.put(getLeaf(field), (current instanceof Number ? ((Number) current).intValue() : 0) + amount);
+        });
+    }
+
+    boolean isEmpty() {
+        return replacement == null && sets.isEmpty() && incs.isEmpty();
+    }
+
+    /**
+     * Write model that only applies to documents older than the sequence, so replaying it is
+     * safe. A document that already holds it fails the upsert with a duplicate key error. Every
+     * write carries its sequence, a replacement keeps the document's guard in place.
+     */
+    WriteModel<Document> toWriteModel(UUID playerId, long sequence) {
+        Bson filter = Filters.and(Filters.eq("_id", playerId.toString()), Filters.not(Filters.gte(SEQUENCE_FIELD, sequence)));
+        if (replacement != null) {
+            Document document = new Document(replacement).append(SEQUENCE_FIELD, sequence);
+            return new ReplaceOneModel<>(filter, document, new ReplaceOptions().upsert(true));
+        }
+
+        List<Bson> updates = new ArrayList<>(sets.size() + incs.size() + 1);
+        sets.forEach((field, value) -> updates.add(Updates.set(field, value)));
+        incs.forEach((field, amount) -> updates.add(Updates.inc(field, amount)));
+        updates.add(Updates.set(SEQUENCE_FIELD, sequence));
+        return new UpdateOneModel<>(filter, Updates.combine(updates), new UpdateOptions().upsert(true));
+    }
+
+    /**
+     * Spool form, field changes are kept as lists since their dotted names can't be document keys
+     */
+    Document toDocument() {
+        if (replacement != null) {
+            return new Document("replace", replacement);
+        }
+
+        List<Document> setList = new ArrayList<>(sets.size());
+        sets.forEach((field, value) -> setList.add(new Document("field", field).append("value", value)));
+        List<Document> incList = new ArrayList<>(incs.size());
+        incs.forEach((field, amount) -> incList.add(new Document("field", field).append("value", amount)));
+        return new Document("set", setList).append("inc", incList);
+    }
+
+    @SuppressWarnings("unchecked")
+    static PlayerUpdate fromDocument(Document document) {
+        if (document.containsKey("replace")) {
+            return replace((Document) document.get("replace"));
+        }
+
+        PlayerUpdate update = new PlayerUpdate();
+        for (Document entry : (List<Document>) document.get("set")) {
+            update.set(entry.getString("field"), entry.get("value"));
+        }
+        for (Document entry : (List<Document>) document.get("inc")) {
+            update.inc(entry.getString("field"), entry.getInteger("value"));
+        }
+        return update;
+    }
+
+    // Nested document holding a dotted field, created where missing
+    private static Document getParent(Document root, String field) {
+        String[] parts = field.split("\\.");
+        Document document = root;
+        for (int i = 0; i < parts.length - 1; i++) {
+            Object child = document.get(parts[i]);
+            if (!(child instanceof Document)) {
+                child = new Document();
+                document.put(parts[i], child);
+            }
+            document = (Document) child;
+        }
+        return document;
+    }
+
+    // Nested documents are copied too, the batch this came from may still be replayed
+    private static Document copyOf(Document document) {
+        Document copy = new Document();
+        document.forEach((key, value) -> copy.put(key, value instanceof Document ? copyOf((Document) value) : value));
+        return copy;
+    }
+
+    private static String getLeaf(String field) {
+        return field.substring(field.lastIndexOf('.') + 1);
+    }
+}
@@ -0,0 +1,485 @@
+package rip.thecraft.practice.player;
+
+import com.mongodb.MongoBulkWriteException;
+import com.mongodb.bulk.BulkWriteError;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.BulkWriteOptions;
+import com.mongodb.client.model.WriteModel;
+import org.bson.Document;
+import org.bukkit.Bukkit;
+import org.bukkit.plugin.Plugin;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Write-behind buffer for player documents. Changes are queued per player and coalesce until
+ * the background flusher sends them as bulk writes, so game threads never wait on MongoDB.
+ *
+ * Each flush first appends its batches to the local spool and then replays the spool in order.
+ * While MongoDB is slow or down, batches wait on disk and the flusher retries them every
+ * interval. Without a usable spool, batches go to MongoDB directly. Direct writes take a sequence
+ * like spooled ones, so a spooled batch replayed after them can't apply a second time.
+ *
+ * The buffer holds at most one entry per player. When it passes its limit, a flush is started
+ * right away, and callers off the server thread spool on their own thread before continuing.
+ * The server thread never waits there, so a crash can lose what was queued since the last flush,
+ * at most one flush interval. Changes that must not be lost, like match results, go through
+ * queueDurable instead, which spools them before returning.
+ */
+final class PlayerWriteBehind {
+
+    private static final int DUPLICATE_KEY = 11000;
+
+    private final Plugin plugin;
+    private final MongoCollection<Document> collection;
+    private final PlayerWriteSpool spool; // Null when the spool folder can't be used
+    private final PlayerWriteSequence sequence;
+    private final int batchSize;
+    private final int maxPending;
+    private final Map<UUID, PlayerUpdate> pending = new ConcurrentHashMap<>();
+    private final ScheduledExecutorService flusher;
+    private final AtomicBoolean flushRequested = new AtomicBoolean();
+    private final Object flushLock = new Object();
+    private final Object spoolLock = new Object(); // Keeps draining and appending in queue order
+    private PlayerWriteSpool.Batch inFlight; // Direct write on its way to MongoDB, guarded by spoolLock
+    private Set<UUID> inFlightIds = Collections.emptySet(); // Its players, guarded by spoolLock
+    private final LongAdder queued = new LongAdder();
+    private final LongAdder coalesced = new LongAdder();
+    private final LongAdder bulkWrites = new LongAdder();
+    private final LongAdder documents = new LongAdder();
+    private final LongAdder failures = new LongAdder();
+    private final LongAdder rejected = new LongAdder();
+    private final LongAdder superseded = new LongAdder();
+    private volatile boolean degraded; // Last write to MongoDB failed
+
+    PlayerWriteBehind(Plugin plugin, MongoCollection<Document> collection, PlayerWriteSpool spool,
+                      PlayerWriteSequence sequence, long intervalMillis, int batchSize, int maxPending) {
+        this.plugin = plugin;
+        this.collection = collection;
+        this.spool = spool;
+        this.sequence = sequence;
+        this.batchSize = Math.max(1, batchSize);
+        this.maxPending = Math.max(1, maxPending);
+        this.flusher = Executors.newSingleThreadScheduledExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "Practice-Player-Flusher");
+            thread.setDaemon(true);
+            return thread;
+        });
+        long interval = Math.max(50L, intervalMillis);
+        flusher.scheduleWithFixedDelay(this::flushSafely, interval, interval, TimeUnit.MILLISECONDS);
+    }
+
+    void queue(UUID playerId, PlayerUpdate update) {
+        if (update.isEmpty()) return;
+
+        queued.increment();
+        pending.merge(playerId, update, (earlier, later) -> {
+            coalesced.increment();
+            earlier.merge(later);
+            return earlier;
+        });
+
+        if (pending.size() >= maxPending) {
+            if (Bukkit.isPrimaryThread()) {
+                requestFlush();
+            } else if (spool == null || !spoolPending()) {
+                // Backpressure, async producers pay for the flush themselves
+                flush();
+            }
+        }
+    }
+
+    /**
+     * Queue changes and append them to the spool right away, together with anything already queued
+     * for the same players, then start a flush. Costs one synced append on the calling thread.
+     * Without a usable spool the changes stay queued and only the flush is started.
+     */
+    void queueDurable(Map<UUID, PlayerUpdate> updates) {
+        for (Map.Entry<UUID, PlayerUpdate> entry : updates.entrySet()) {
+            queue(entry.getKey(), entry.getValue());
+        }
+
+        if (spool != null) {
+            synchronized (spoolLock) {
+                List<UUID> ids = new ArrayList<>(updates.size());
+                List<PlayerUpdate> taken = new ArrayList<>(updates.size());
+                for (UUID playerId : updates.keySet()) {
+                    if (inFlightIds.contains(playerId)) continue; // Spooled by the next flush instead
+                    PlayerUpdate update = pending.remove(playerId);
+                    if (update == null) continue; // Already spooled by a flush
+                    ids.add(playerId);
+                    taken.add(update);
+                }
+
+                if (!ids.isEmpty()) {
+                    try {
+                        spool.append(sequence.next(), ids, taken);
+                    } catch (IOException e) {
+                        restore(ids, taken);
+                        plugin.getLogger().warning("Failed to spool " + ids.size() + " player documents: " + e.getMessage());
+                    }
+                }
+            }
+        }
+        requestFlush();
+    }
+
+    /**
+     * Whether the player has changes that haven't reached MongoDB, queued or spooled
+     */
+    boolean isPending(UUID playerId) {
+        if (pending.containsKey(playerId) || (spool != null && spool.contains(playerId))) return true;
+        synchronized (spoolLock) {
+            return inFlightIds.contains(playerId);
+        }
+    }
+
+    /**
+     * Take the player's changes that haven't reached MongoDB, before reading the document
+     * @return null if there are none
+     */
+    Unsaved getUnsaved(UUID playerId) {
+        if (!isPending(playerId)) return null;
+
+        // Every drain holds the spool lock, so spool and queue are seen at the same point
+        synchronized (spoolLock) {
+            List<PlayerWriteSpool.Batch> batches = spool != null ? spool.getBatches(playerId) : new ArrayList<>();
+            if (inFlightIds.contains(playerId)) {
+                int index = inFlight.getIds().indexOf(playerId);
+                // Copied, a failed write merges newer changes into it
+                batches.add(new PlayerWriteSpool.Batch(inFlight.getSequence(),
+                    List.of(playerId), List.of(inFlight.getUpdates().get(index).copy())));
+            }
+            PlayerUpdate[] queued = new PlayerUpdate[1];
+            pending.computeIfPresent(playerId, (id, update) -> {
+                queued[0] = update.copy();
+                return update;
+            });
+            return new Unsaved(playerId, batches, queued[0], sequence.last());
+        }
+    }
+
+    boolean isDegraded() {
+        return degraded;
+    }
+
+    boolean isSpooling() {
+        return spool != null;
+    }
+
+    int getPendingCount() {
+        return pending.size();
+    }
+
+    long getQueuedCount() {
+        return queued.sum();
+    }
+
+    long getCoalescedCount() {
+        return coalesced.sum();
+    }
+
+    long getBulkWriteCount() {
+        return bulkWrites.sum();
+    }
+
+    long getDocumentCount() {
+        return documents.sum();
+    }
+
+    long getFailureCount() {
+        return failures.sum();
+    }
+
+    long getRejectedCount() {
+        return rejected.sum();
+    }
+
+    /**
+     * Writes MongoDB skipped because the document already held them or a later write
+     */
+    long getSupersededCount() {
+        return superseded.sum();
+    }
+
+    int getSpooledBatchCount() {
+        return spool == null ? 0 : spool.getBacklogCount();
+    }
+
+    int getSpooledDocumentCount() {
+        return spool == null ? 0 : spool.getBacklogDocumentCount();
+    }
+
+    long getSpoolSize() {
+        return spool == null ? 0 : spool.getSize();
+    }
+
+    int getSpoolSegmentCount() {
+        return spool == null ? 0 : spool.getSegmentCount();
+    }
+
+    /**
+     * Stop the background flusher and write whatever is left on this thread. While MongoDB is down
+     * the rest stays in the spool for the next start instead of holding up the shutdown.
+     */
+    void shutdown() {
+        flusher.shutdown();
+        try {
+            flusher.awaitTermination(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+
+        if (spool == null || !spoolPending() || !degraded) {
+            flush();
+        }
+        if (spool != null) {
+            if (spool.getBacklogCount() > 0) {
+                plugin.getLogger().warning(spool.getBacklogDocumentCount() + " player documents stay in the spool, they are written on the next start");
+            }
+            spool.close();
+        }
+        if (!pending.isEmpty()) {
+            plugin.getLogger().severe(pending.size() + " player documents could not be saved on shutdown");
+        }
+    }
+
+    private void requestFlush() {
+        if (!flushRequested.compareAndSet(false, true)) return;
+        try {
+            flusher.execute(this::flushSafely);
+        } catch (RejectedExecutionException e) {
+            flushRequested.set(false);
+        }
+    }
+
+    private void flushSafely() {
+        flushRequested.set(false);
+        try {
+            flush();
+        } catch (Exception e) {
+            plugin.getLogger().severe("Player flush failed: " + e.getMessage());
+        }
+    }
+
+    /**
+     * Spool everything pending when the flush started and replay the spool. When the spool can't
+     * be written, pending changes go out directly in bulk writes of at most batchSize, once the
+     * older spooled batches are through.
+     */
+    void flush() {
+        synchronized (flushLock) {
+            boolean spooled = spool != null && spoolPending();
+            if (spool != null) {
+                replay();
+            }
+            if (!spooled && (spool == null || spool.getBacklogCount() == 0)) {
+                writeDirect();
+            }
+        }
+    }
+
+    /**
+     * Move pending changes into the spool, synced to disk
+     * @return false if the spool couldn't be written, those changes are pending again
+     */
+    private boolean spoolPending() {
+        synchronized (spoolLock) {
+            int remaining = pending.size();
+            while (remaining > 0) {
+                List<UUID> ids = new ArrayList<>(Math.min(remaining, batchSize));
+                List<PlayerUpdate> updates = new ArrayList<>(ids.size());
+                if (!drain(ids, updates)) return true;
+                remaining -= ids.size();
+
+                try {
+                    spool.append(sequence.next(), ids, updates);
+                } catch (IOException e) {
+                    restore(ids, updates);
+                    plugin.getLogger().warning("Failed to spool " + ids.size() + " player documents: " + e.getMessage());
+                    return false;
+                }
+            }
+            return true;
+        }
+    }
+
+    // Send spooled batches oldest first, stopping at the first one MongoDB doesn't take
+    private void replay() {
+        PlayerWriteSpool.Batch batch;
+        while ((batch = spool.peek()) != null) {
+            List<WriteModel<Document>> models = new ArrayList<>(batch.getIds().size());
+            for (int i = 0; i < batch.getIds().size(); i++) {
+                models.add(batch.getUpdates().get(i).toWriteModel(batch.getIds().get(i), batch.getSequence()));
+            }
+            if (!write(batch.getIds(), models)) return;
+
+            try {
+                spool.acknowledge(batch);
+            } catch (IOException e) {
+                // Replaying it again after a restart is harmless
+                plugin.getLogger().warning("Failed to acknowledge spooled player batch: " + e.getMessage());
+            }
+        }
+    }
+
+    // Drains and takes the sequence under the spool lock, so no batch spooled meanwhile can take an
+    // older sequence for the same players. The write itself runs outside it. Meanwhile getUnsaved
+    // finds the batch in inFlight, and drains leave its players queued so a retry can't land
+    // behind a newer batch.
+    private void writeDirect() {
+        int remaining = pending.size();
+        while (remaining > 0) {
+            List<UUID> ids = new ArrayList<>(Math.min(remaining, batchSize));
+            List<PlayerUpdate> updates = new ArrayList<>(ids.size());
+            PlayerWriteSpool.Batch batch;
+            synchronized (spoolLock) {
+                if (spool != null && spool.getBacklogCount() > 0) return;
+                if (!drain(ids, updates)) return;
+
+                try {
+                    batch = new PlayerWriteSpool.Batch(sequence.next(), ids, updates);
+                } catch (IOException e) {
+                    restore(ids, updates);
+                    plugin.getLogger().warning("Failed to save the player write sequence, retrying: " + e.getMessage());
+                    return;
+                }
+                inFlight = batch;
+                inFlightIds = new HashSet<>(ids);
+            }
+            remaining -= ids.size();
+
+            List<WriteModel<Document>> models = new ArrayList<>(ids.size());
+            for (int i = 0; i < ids.size(); i++) {
+                models.add(updates.get(i).toWriteModel(ids.get(i), batch.getSequence()));
+            }
+            boolean written = write(ids, models);
+
+            synchronized (spoolLock) {
+                inFlight = null;
+                inFlightIds = Collections.emptySet();
+                if (!written) {
+                    // Retry on the next flush
+                    restore(ids, updates);
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * @return false if MongoDB couldn't be reached and the batch has to be retried
+     */
+    private boolean write(List<UUID> ids, List<WriteModel<Document>> models) {
+        try {
+            collection.bulkWrite(models, new BulkWriteOptions().ordered(false));
+            documents.add(models.size());
+        } catch (MongoBulkWriteException e) {
+            if (e.getWriteConcernError() != null) {
+                return failed(ids.size(), e);
+            }
+            // The batch arrived. Sequences only grow, so a duplicate key means the document already
+            // holds this write or a later one
+            for (BulkWriteError error : e.getWriteErrors()) {
+                if (error.getCode() == DUPLICATE_KEY) {
+                    superseded.increment();
+                    continue;
+                }
+                rejected.increment();
+                plugin.getLogger().warning("MongoDB rejected player document " + ids.get(error.getIndex()) + ": " + error.getMessage());
+            }
+            documents.add(models.size() - e.getWriteErrors().size());
+        } catch (Exception e) {
+            return failed(ids.size(), e);
+        }
+
+        bulkWrites.increment();
+        if (degraded) {
+            degraded = false;
+            plugin.getLogger().info("MongoDB is reachable again, player writes resumed");
+        }
+        return true;
+    }
+
+    // Logged once per outage, the flusher keeps retrying every interval
+    private boolean failed(int size, Exception e) {
+        failures.increment();
+        if (!degraded) {
+            degraded = true;
+            plugin.getLogger().warning("Failed to save " + size + " player documents, retrying"
+                + (spool != null ? " from the spool" : "") + ": " + e.getMessage());
+        }
+        return false;
+    }
+
+    // Take up to batchSize pending updates, false when nothing was left. Callers hold the spool lock.
+    private boolean drain(List<UUID> ids, List<PlayerUpdate> updates) {
+        Iterator<UUID> iterator = pending.keySet().iterator();
+        while (iterator.hasNext() && ids.size() < batchSize) {
+            UUID playerId = iterator.next();
+            if (inFlightIds.contains(playerId)) continue; // Waits for the direct write ahead of it
+            PlayerUpdate update = pending.remove(playerId);
+            if (update == null) continue;
+            ids.add(playerId);
+            updates.add(update);
+        }
+        return !ids.isEmpty();
+    }
+
+    // Put a batch back in front of anything queued meanwhile
+    private void restore(List<UUID> ids, List<PlayerUpdate> updates) {
+        for (int i = 0; i < ids.size(); i++) {
+            pending.merge(ids.get(i), updates.get(i), (later, failed) -> {
+                failed.merge(later);
+                return failed;
+            });
+        }
+    }
+
+    /**
+     * A player's unsaved changes, taken before the document was read. Spooled batches apply when
+     * the document is older than them. The queued change applies unless the document already
+     * holds a write taken after this snapshot, the first of those carried it.
+     */
+    static final class Unsaved {
+        private final UUID playerId;
+        private final List<PlayerWriteSpool.Batch> batches;
+        private final PlayerUpdate queued;
+        private final long lastSequence;
+
+        private Unsaved(UUID playerId, List<PlayerWriteSpool.Batch> batches, PlayerUpdate queued, long lastSequence) {
+            this.playerId = playerId;
+            this.batches = batches;
+            this.queued = queued;
+            this.lastSequence = lastSequence;
+        }
+
+        void applyTo(Document document) {
+            Object stored = document.get(PlayerUpdate.SEQUENCE_FIELD);
+            long applied = stored instanceof Number ? ((Number) stored).longValue() : 0;
+            for (PlayerWriteSpool.Batch batch : batches) {
+                if (batch.getSequence() > applied) {
+                    batch.getUpdates().get(batch.getIds().indexOf(playerId)).applyTo(document);
+                }
+            }
+            if (queued != null && applied <= lastSequence) {
+                queued.applyTo(document);
+            }
+        }
+    }
+}
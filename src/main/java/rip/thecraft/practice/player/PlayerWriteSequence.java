@@ -0,0 +1,85 @@
+package rip.thecraft.practice.player;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Source of the sequences that order player writes, see PlayerUpdate. Sequences only grow, also
+ * across restarts: a high-water mark is kept in a small state file, and every value handed out is
+ * at most that mark. The mark is raised a block at a time, so the file is synced once per RESERVE
+ * writes instead of once per write. A restart skips whatever was left of the last block.
+ */
+final class PlayerWriteSequence {
+
+    private static final long RESERVE = 1L << 16;
+
+    private final File file;
+    private long next;
+    private long reserved; // Highest sequence covered by the state file
+
+    PlayerWriteSequence(File file) {
+        this.file = file;
+    }
+
+    /**
+     * @return the stored high-water mark, or -1 when there is no state file yet
+     */
+    synchronized long load() throws IOException {
+        if (!file.exists()) return -1;
+
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(file.toPath()));
+        if (data.remaining() < 8) {
+            throw new IOException("Truncated sequence file " + file);
+        }
+        return data.getLong();
+    }
+
+    /**
+     * Start handing out sequences above the given floor and persist the first block
+     */
+    synchronized void open(long floor) throws IOException {
+        next = Math.max(0, floor) + 1;
+        reserved = next - 1;
+        reserve();
+    }
+
+    /**
+     * Highest sequence handed out so far, anything taken later is above it
+     */
+    synchronized long last() {
+        return next - 1;
+    }
+
+    synchronized long next() throws IOException {
+        if (next > reserved) {
+            reserve();
+        }
+        return next++;
+    }
+
+    // Write the new mark next to the file, sync it and move it over the old one
+    private void reserve() throws IOException {
+        long mark = next + RESERVE - 1;
+        File folder = file.getAbsoluteFile().getParentFile();
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+
+        File temp = new File(folder, file.getName() + ".tmp");
+        try (FileChannel channel = FileChannel.open(temp.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE)) {
+            ByteBuffer data = ByteBuffer.allocate(8).putLong(mark).flip();
+            while (data.hasRemaining()) {
+                channel.write(data);
+            }
+            channel.force(true);
+        }
+        Files.move(temp.toPath(), file.toPath(), StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        reserved = mark;
+    }
+}
@@ -0,0 +1,380 @@
+package rip.thecraft.practice.player;
+
+import com.mongodb.MongoClientSettings;
+import org.bson.BsonBinaryReader;
+import org.bson.BsonBinaryWriter;
+import org.bson.Document;
+import org.bson.codecs.DecoderContext;
+import org.bson.codecs.DocumentCodec;
+import org.bson.codecs.EncoderContext;
+import org.bson.io.BasicOutputBuffer;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Deque;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.logging.Logger;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only local log of player writes that haven't reached MongoDB yet. Each flush appends
+ * its batches here and syncs them before sending, so an outage or a crash doesn't lose match
+ * results. Batches are replayed in order once MongoDB answers again, also after a restart.
+ *
+ * Segment layout (big-endian): magic and version, then records of body length, CRC32 of the body
+ * and the body itself: type, sequence and, for writes, the BSON encoded batch. A torn or corrupt
+ * record ends its segment, anything after it is dropped with a warning.
+ *
+ * Acknowledgements are appended without syncing. Losing one only replays a batch that was
+ * already written, which the sequence guard in PlayerUpdate turns into a no-op. A segment is
+ * deleted once every write in it is acknowledged.
+ */
+final class PlayerWriteSpool {
+
+    private static final int MAGIC = 0x43505753; // "CPWS"
+    private static final int VERSION = 1;
+    private static final int HEADER_BYTES = 4 * 2;
+    private static final int RECORD_HEADER_BYTES = 4 + 8;
+    private static final byte WRITE = 1;
+    private static final byte ACK = 2;
+    private static final DocumentCodec CODEC = new DocumentCodec(MongoClientSettings.getDefaultCodecRegistry());
+
+    private final Logger logger;
+    private final File folder;
+    private final long maxSegmentBytes;
+    private final Map<Long, Segment> segments = new TreeMap<>();
+    private final Deque<Batch> backlog = new ArrayDeque<>(); // Oldest first
+    private final Map<UUID, Integer> spooled = new ConcurrentHashMap<>(); // Players with writes in the backlog
+    private Segment active;
+    private long lastSequence; // Highest sequence found in the segments, acknowledged or not
+    private int backlogDocuments;
+
+    PlayerWriteSpool(Logger logger, File folder, long maxSegmentBytes) {
+        this.logger = logger;
+        this.folder = folder;
+        this.maxSegmentBytes = Math.max(64 * 1024, maxSegmentBytes);
+    }
+
+    /**
+     * Recover unacknowledged batches from existing segments and open a fresh one for appends
+     */
+    synchronized void open() throws IOException {
+        if (!folder.exists() && !folder.mkdirs()) {
+            throw new IOException("Could not create " + folder);
+        }
+
+        File[] files = folder.listFiles((dir, name) -> name.startsWith("segment-") && name.endsWith(".log"));
+        Map<Long, Batch> writes = new TreeMap<>();
+        Set<Long> acks = new HashSet<>();
+        long lastSegment = 0;
+        if (files != null) {
+            for (File file : files) {
+                long id;
+                try {
+                    id = Long.parseLong(file.getName().substring(8, file.getName().length() - 4));
+                } catch (NumberFormatException e) {
+                    continue;
+                }
+                Segment segment = new Segment(id, file);
+                segments.put(id, segment);
+                lastSegment = Math.max(lastSegment, id);
+                recover(segment, writes, acks);
+            }
+        }
+
+        for (long sequence : acks) {
+            lastSequence = Math.max(lastSequence, sequence);
+        }
+        for (Batch batch : writes.values()) {
+            lastSequence = Math.max(lastSequence, batch.sequence);
+            if (acks.contains(batch.sequence)) continue;
+            batch.segment.unacknowledged++;
+            addToBacklog(batch);
+        }
+        for (Segment segment : new ArrayList<>(segments.values())) {
+            if (segment.unacknowledged == 0) {
+                delete(segment);
+            }
+        }
+        if (!backlog.isEmpty()) {
+            logger.info("Recovered " + backlog.size() + " player write batches from the spool, replaying them");
+        }
+
+        active = create(lastSegment + 1);
+    }
+
+    /**
+     * Append a batch and sync it to disk
+     * @param sequence from PlayerWriteSequence, higher than any batch appended before
+     */
+    synchronized Batch append(long sequence, List<UUID> ids, List<PlayerUpdate> updates) throws IOException {
+        if (active.size >= maxSegmentBytes) {
+            roll();
+        }
+
+        lastSequence = sequence;
+        Batch batch = new Batch(sequence, ids, updates);
+
+        List<Document> entries = new ArrayList<>(ids.size());
+        for (int i = 0; i < ids.size(); i++) {
+            entries.add(new Document("_id", ids.get(i).toString()).append("update", updates.get(i).toDocument()));
+        }
+        writeRecord(WRITE, batch.sequence, toBson(new Document("writes", entries)), true);
+
+        batch.segment = active;
+        active.unacknowledged++;
+        addToBacklog(batch);
+        return batch;
+    }
+
+    /**
+     * Oldest batch that MongoDB hasn't acknowledged yet
+     */
+    synchronized Batch peek() {
+        return backlog.peekFirst();
+    }
+
+    synchronized void acknowledge(Batch batch) throws IOException {
+        if (!backlog.remove(batch)) return;
+
+        backlogDocuments -= batch.ids.size();
+        for (UUID playerId : batch.ids) {
+            spooled.computeIfPresent(playerId, (id, count) -> count > 1 ? count - 1 : null);
+        }
+
+        batch.segment.unacknowledged--;
+        if (batch.segment != active && batch.segment.unacknowledged == 0) {
+            delete(batch.segment);
+        }
+        writeRecord(ACK, batch.sequence, new byte[0], false);
+    }
+
+    synchronized long getLastSequence() {
+        return lastSequence;
+    }
+
+    /**
+     * Unacknowledged batches holding a write for the player, oldest first
+     */
+    synchronized List<Batch> getBatches(UUID playerId) {
+        List<Batch> batches = new ArrayList<>();
+        for (Batch batch : backlog) {
+            if (batch.ids.contains(playerId)) {
+                batches.add(batch);
+            }
+        }
+        return batches;
+    }
+
+    boolean contains(UUID playerId) {
+        return spooled.containsKey(playerId);
+    }
+
+    synchronized int getBacklogCount() {
+        return backlog.size();
+    }
+
+    synchronized int getBacklogDocumentCount() {
+        return backlogDocuments;
+    }
+
+    synchronized long getSize() {
+        long size = 0;
+        for (Segment segment : segments.values()) {
+            size += segment.size;
+        }
+        return size;
+    }
+
+    synchronized int getSegmentCount() {
+        return segments.size();
+    }
+
+    synchronized void close() {
+        if (active == null) return;
+        try {
+            active.channel.close();
+            if (active.unacknowledged == 0) {
+                delete(active);
+            }
+        } catch (IOException e) {
+            logger.warning("Failed to close spool segment " + active.file.getName() + ": " + e.getMessage());
+        }
+        active = null;
+    }
+
+    private void addToBacklog(Batch batch) {
+        backlog.addLast(batch);
+        backlogDocuments += batch.ids.size();
+        for (UUID playerId : batch.ids) {
+            spooled.merge(playerId, 1, Integer::sum);
+        }
+    }
+
+    private void recover(Segment segment, Map<Long, Batch> writes, Set<Long> acks) throws IOException {
+        ByteBuffer data = ByteBuffer.wrap(Files.readAllBytes(segment.file.toPath()));
+        segment.size = data.limit();
+        if (data.limit() < HEADER_BYTES || data.getInt() != MAGIC || data.getInt() != VERSION) {
+            logger.warning("Ignoring unreadable spool segment " + segment.file.getName());
+            return;
+        }
+
+        CRC32 crc = new CRC32();
+        while (data.remaining() > 0) {
+            int start = data.position();
+            if (data.remaining() < RECORD_HEADER_BYTES) {
+                logger.warning("Dropped torn record at byte " + start + " of spool segment " + segment.file.getName());
+                return;
+            }
+            int length = data.getInt();
+            long checksum = data.getLong();
+            if (length < 9 || length > data.remaining()) {
+                logger.warning("Dropped torn record at byte " + start + " of spool segment " + segment.file.getName());
+                return;
+            }
+
+            ByteBuffer body = data.slice();
+            body.limit(length);
+            crc.reset();
+            crc.update(body.duplicate());
+            if (crc.getValue() != checksum) {
+                logger.warning("Dropped corrupt record at byte " + start + " of spool segment " + segment.file.getName());
+                return;
+            }
+            data.position(data.position() + length);
+
+            byte type = body.get();
+            long sequence = body.getLong();
+            if (type == ACK) {
+                acks.add(sequence);
+            } else if (type == WRITE) {
+                byte[] bson = new byte[body.remaining()];
+                body.get(bson);
+                Batch batch = fromBson(sequence, bson);
+                batch.segment = segment;
+                writes.put(sequence, batch);
+            }
+        }
+    }
+
+    private void writeRecord(byte type, long sequence, byte[] payload, boolean sync) throws IOException {
+        ByteBuffer body = ByteBuffer.allocate(1 + 8 + payload.length);
+        body.put(type).putLong(sequence).put(payload).flip();
+        CRC32 crc = new CRC32();
+        crc.update(body.duplicate());
+
+        ByteBuffer record = ByteBuffer.allocate(RECORD_HEADER_BYTES + body.remaining());
+        record.putInt(body.remaining()).putLong(crc.getValue()).put(body).flip();
+        while (record.hasRemaining()) {
+            active.size += active.channel.write(record);
+        }
+        if (sync) {
+            active.channel.force(false);
+        }
+    }
+
+    // Close the full segment and start the next one, a segment without pending writes is deleted right away
+    private void roll() throws IOException {
+        Segment previous = active;
+        previous.channel.close();
+        if (previous.unacknowledged == 0) {
+            delete(previous);
+        }
+        active = create(previous.id + 1);
+    }
+
+    private Segment create(long id) throws IOException {
+        Segment segment = new Segment(id, new File(folder, String.format("segment-%016d.log", id)));
+        segment.channel = FileChannel.open(segment.file.toPath(),
+            StandardOpenOption.CREATE, StandardOpenOption.TRUNCATE_EXISTING, StandardOpenOption.WRITE);
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES).putInt(MAGIC).putInt(VERSION).flip();
+        while (header.hasRemaining()) {
+            segment.size += segment.channel.write(header);
+        }
+        segment.channel.force(true);
+        segments.put(id, segment);
+        return segment;
+    }
+
+    private void delete(Segment segment) {
+        segments.remove(segment.id);
+        try {
+            Files.deleteIfExists(segment.file.toPath());
+        } catch (IOException e) {
+            logger.warning("Failed to delete spool segment " + segment.file.getName() + ": " + e.getMessage());
+        }
+    }
+
+    private static byte[] toBson(Document document) {
+        BasicOutputBuffer buffer = new BasicOutputBuffer();
+        CODEC.encode(new BsonBinaryWriter(buffer), document, EncoderContext.builder().build());
+        return buffer.toByteArray();
+    }
+
+    @SuppressWarnings("unchecked")
+    private static Batch fromBson(long sequence, byte[] bson) {
+        Document document = CODEC.decode(new BsonBinaryReader(ByteBuffer.wrap(bson)), DecoderContext.builder().build());
+        List<Document> entries = (List<Document>) document.get("writes");
+        List<UUID> ids = new ArrayList<>(entries.size());
+        List<PlayerUpdate> updates = new ArrayList<>(entries.size());
+        for (Document entry : entries) {
+            ids.add(UUID.fromString(entry.getString("_id")));
+            updates.add(PlayerUpdate.fromDocument((Document) entry.get("update")));
+        }
+        return new Batch(sequence, ids, updates);
+    }
+
+    /**
+     * One flush batch, at most one update per player
+     */
+    static final class Batch {
+        private final long sequence;
+        private final List<UUID> ids;
+        private final List<PlayerUpdate> updates;
+        private Segment segment;
+
+        Batch(long sequence, List<UUID> ids, List<PlayerUpdate> updates) {
+            this.sequence = sequence;
+            this.ids = Collections.unmodifiableList(ids);
+            this.updates = Collections.unmodifiableList(updates);
+        }
+
+        long getSequence() {
+            return sequence;
+        }
+
+        List<UUID> getIds() {
+            return ids;
+        }
+
+        List<PlayerUpdate> getUpdates() {
+            return updates;
+        }
+    }
+
+    private static final class Segment {
+        private final long id;
+        private final File file;
+        private FileChannel channel; // Only the active segment is open
+        private long size;
+        private int unacknowledged;
+
+        private Segment(long id, File file) {
+            this.id = id;
+            this.file = file;
+        }
+    }
+}
@@ -157,22 +157,32 @@ public class QueueManager {
         PlayerData loserData = Practice.getInstance().getPlayerManager().getPlayerData(loser);
 
         if (winnerData != null && loserData != null) {
-            // Get kit-specific ELO
-            int winnerELO = winnerData.getKitStats(kitName).getElo();
-            int loserELO = loserData.getKitStats(kitName).getElo();
+            int[] changes = calculateELO(winnerData, loserData, kitName);
+            
+            // Update kit-specific stats using partial MongoDB updates
+            Practice.getInstance().getPlayerManager().updateKitStats(winner, kitName, changes[0], true);
+            Practice.getInstance().getPlayerManager().updateKitStats(loser, kitName, changes[1], false);
+        }
+    }
 
-            // Simple ELO calculation
-            double expectedWinner = 1.0 / (1.0 + Math.pow(10, (loserELO - winnerELO) / 400.0));
-            double expectedLoser = 1.0 - expectedWinner;
+    /**
+     * ELO change of a ranked result for the kit, without applying it
+     * @return the winner's and the loser's change
+     */
+    public int[] calculateELO(PlayerData winnerData, PlayerData loserData, String kitName) {
+        // Get kit-specific ELO
+        int winnerELO = winnerData.getKitStats(kitName).getElo();
+        int loserELO = loserData.getKitStats(kitName).getElo();
 
-            int kFactor = 32;
-            int winnerChange = (int) (kFactor * (1 - expectedWinner));
-            int loserChange = (int) (kFactor * (0 - expectedLoser));
+        // Simple ELO calculation
+        double expectedWinner = 1.0 / (1.0 + Math.pow(10, (loserELO - winnerELO) / 400.0));
+        double expectedLoser = 1.0 - expectedWinner;
 
-            // Update kit-specific stats using partial MongoDB updates
-            Practice.getInstance().getPlayerManager().updateKitStats(winner, kitName, winnerChange, true);
-            Practice.getInstance().getPlayerManager().updateKitStats(loser, kitName, loserChange, false);
-        }
+        int kFactor = 32;
+        int winnerChange = (int) (kFactor * (1 - expectedWinner));
+        int loserChange = (int) (kFactor * (0 - expectedLoser));
+
+        return new int[] {winnerChange, loserChange};
     }
 
     // Legacy method for compatibility
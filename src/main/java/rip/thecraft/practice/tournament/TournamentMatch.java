@@ -59,6 +59,9 @@ public class TournamentMatch {
         
         // Store the match reference for tracking
         this.match = rip.thecraft.practice.Practice.getInstance().getMatchManager().getPlayerMatch(player1);
+        if (this.match != null) {
+            this.match.setTournamentMatch(this);
+        }
         
         this.started = true;
         
@@ -5,6 +5,9 @@ import org.bukkit.Bukkit;
 /**
  * Utility class for detecting Paper API features and providing fallbacks
  * for Folia compatibility on ShreddedPaper servers.
+ *
+ * Schedulers refuse tasks from a disabled plugin, so while the plugin is disabling one-off
+ * tasks run inline on the calling thread and repeating tasks are not started.
  */
 public class PaperAPI {
     
@@ -42,6 +45,26 @@ public class PaperAPI {
         return hasGlobalRegionScheduler() || hasRegionScheduler();
     }
     
+    /**
+     * Check if the server actually ticks regions on separate threads (Folia), as opposed
+     * to Paper which exposes the same scheduler API but runs everything on the main thread
+     * @return true if regionised multithreading is active
+     */
+    public static boolean isRegionThreaded() {
+        return REGION_THREADED;
+    }
+    
+    private static final boolean REGION_THREADED = detectRegionThreading();
+    
+    private static boolean detectRegionThreading() {
+        try {
+            Class.forName("io.papermc.paper.threadedregions.RegionizedServer");
+            return true;
+        } catch (ClassNotFoundException e) {
+            return false;
+        }
+    }
+    
     /**
      * Check if the server supports entity scheduler (Folia)
      * @return true if entity scheduler is available
@@ -75,6 +98,10 @@ public class PaperAPI {
      * @param task The task to run
      */
     public static void runAtLocation(org.bukkit.plugin.Plugin plugin, org.bukkit.Location location, Runnable task) {
+        if (!plugin.isEnabled()) {
+            task.run();
+            return;
+        }
         if (hasRegionScheduler()) {
             Bukkit.getRegionScheduler().run(plugin, location, scheduledTask -> task.run());
         } else {
@@ -90,6 +117,10 @@ public class PaperAPI {
      * @param delayTicks The delay in ticks
      */
     public static void runAtLocationLater(org.bukkit.plugin.Plugin plugin, org.bukkit.Location location, Runnable task, long delayTicks) {
+        if (!plugin.isEnabled()) {
+            task.run();
+            return;
+        }
         if (hasRegionScheduler()) {
             Bukkit.getRegionScheduler().runDelayed(plugin, location, scheduledTask -> task.run(), delayTicks);
         } else {
@@ -97,6 +128,64 @@ public class PaperAPI {
         }
     }
     
+    /**
+     * Execute a repeating task on the region scheduler if available, otherwise use the global scheduler
+     * @param plugin The plugin instance
+     * @param location The location whose region runs the task
+     * @param task The task to run
+     * @param delayTicks The delay before the first run in ticks (at least 1)
+     * @param periodTicks The period between runs in ticks
+     */
+    public static void runAtLocationTimer(org.bukkit.plugin.Plugin plugin, org.bukkit.Location location, Runnable task, long delayTicks, long periodTicks) {
+        if (!plugin.isEnabled()) return;
+        if (hasRegionScheduler()) {
+            Bukkit.getRegionScheduler().runAtFixedRate(plugin, location, scheduledTask -> task.run(), Math.max(1L, delayTicks), periodTicks);
+        } else {
+            Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        }
+    }
+    
+    /**
+     * Check if the current thread may touch the given location. Always true without
+     * regionised multithreading, where everything runs on the main thread.
+     */
+    public static boolean isOwnedByCurrentRegion(org.bukkit.Location location) {
+        return !isRegionThreaded() || Bukkit.isOwnedByCurrentRegion(location);
+    }
+    
+    /**
+     * Execute a task on the global region scheduler if available, otherwise use the global scheduler
+     * @param plugin The plugin instance
+     * @param task The task to run
+     */
+    public static void runGlobal(org.bukkit.plugin.Plugin plugin, Runnable task) {
+        if (!plugin.isEnabled()) {
+            task.run();
+            return;
+        }
+        if (hasGlobalRegionScheduler()) {
+            Bukkit.getGlobalRegionScheduler().execute(plugin, task);
+        } else {
+            Bukkit.getScheduler().runTask(plugin, task);
+        }
+    }
+    
+    /**
+     * Execute a repeating task on the global region scheduler if available, otherwise use the global scheduler
+     * @param plugin The plugin instance
+     * @param task The task to run
+     * @param delayTicks The delay before the first run in ticks (at least 1)
+     * @param periodTicks The period between runs in ticks
+     */
+    public static void runGlobalTimer(org.bukkit.plugin.Plugin plugin, Runnable task, long delayTicks, long periodTicks) {
+        if (!plugin.isEnabled()) return;
+        if (hasGlobalRegionScheduler()) {
+            Bukkit.getGlobalRegionScheduler().runAtFixedRate(plugin, scheduledTask -> task.run(), Math.max(1L, delayTicks), periodTicks);
+        } else {
+            Bukkit.getScheduler().runTaskTimer(plugin, task, delayTicks, periodTicks);
+        }
+    }
+    
     /**
      * Execute a task on the entity scheduler if available, otherwise use the global scheduler
      * @param plugin The plugin instance
@@ -104,6 +193,10 @@ public class PaperAPI {
      * @param task The task to run
      */
     public static void runForEntity(org.bukkit.plugin.Plugin plugin, org.bukkit.entity.Entity entity, Runnable task) {
+        if (!plugin.isEnabled()) {
+            task.run();
+            return;
+        }
         if (hasEntityScheduler()) {
             entity.getScheduler().run(plugin, scheduledTask -> task.run(), null);
         } else {
@@ -0,0 +1,91 @@
+package rip.thecraft.practice;
+
+import org.bukkit.Bukkit;
+import org.bukkit.Server;
+import org.bukkit.block.data.BlockData;
+import org.bukkit.plugin.Plugin;
+
+import java.lang.reflect.Method;
+import java.lang.reflect.Proxy;
+import java.util.logging.Logger;
+
+/**
+ * Just enough of the Bukkit API for code that handles block data and plugins without a server
+ */
+public final class TestBukkit {
+
+    private static final Logger LOGGER = Logger.getLogger("Practice-Test");
+
+    private TestBukkit() {
+    }
+
+    /**
+     * Block data that is only its state string, equal to any other block data with the same string
+     */
+    public static BlockData blockData(String state) {
+        return (BlockData) Proxy.newProxyInstance(BlockData.class.getClassLoader(), new Class<?>[] {BlockData.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getAsString":
+                    case "toString":
+                        return state;
+                    case "hashCode":
+                        return state.hashCode();
+                    case "equals":
+                        return args[0] instanceof BlockData && state.equals(((BlockData) args[0]).getAsString());
+                    default:
+                        throw new UnsupportedOperationException(method.getName());
+                }
+            });
+    }
+
+    /**
+     * Register a server whose createBlockData returns blockData, so snapshot files can be decoded
+     */
+    public static synchronized void installServer() {
+        if (Bukkit.getServer() != null) return;
+
+        Bukkit.setServer((Server) Proxy.newProxyInstance(Server.class.getClassLoader(), new Class<?>[] {Server.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "createBlockData":
+                        return args != null && args.length == 1 && args[0] instanceof String ? blockData((String) args[0]) : null;
+                    case "getLogger":
+                        return LOGGER;
+                    default:
+                        return defaultValue(method);
+                }
+            }));
+    }
+
+    /**
+     * A plugin that reports itself disabled, so PaperAPI runs its tasks inline and starts no timers
+     */
+    public static Plugin disabledPlugin() {
+        return (Plugin) Proxy.newProxyInstance(Plugin.class.getClassLoader(), new Class<?>[] {Plugin.class},
+            (proxy, method, args) -> {
+                switch (method.getName()) {
+                    case "getLogger":
+                        return LOGGER;
+                    case "isEnabled":
+                        return false;
+                    default:
+                        return defaultValue(method);
+                }
+            });
+    }
+
+    private static Object defaultValue(Method method) {
+        Class<?> type = method.getReturnType();
+        if (type == String.class) return "test";
+        if (type == boolean.class) return false;
+        if (type == int.class) return 0;
+        if (type == long.class) return 0L;
+        if (type == double.class) return 0.0;
+        if (type == float.class) return 0.0f;
+        if (type == short.class) return (short) 0;
+        if (type == byte.class) return (byte) 0;
+        if (type == char.class) return (char) 0;
+        return null;
+    }
+}
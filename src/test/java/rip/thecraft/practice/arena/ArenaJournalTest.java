@@ -0,0 +1,112 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+import rip.thecraft.practice.TestBukkit;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArenaJournalTest {
+
+    private static final BlockData STONE = TestBukkit.blockData("minecraft:stone");
+    private static final BlockData DIRT = TestBukkit.blockData("minecraft:dirt");
+
+    @Test
+    void packRoundTripsTheWholeCoordinateRange() {
+        int[][] positions = {
+            {0, 0, 0}, {1, -1, 1}, {-1, 64, -1}, {33554431, 2047, -33554432},
+            {-33554432, -2048, 33554431}, {29999999, 319, -29999999}, {-12345, -64, 67890}
+        };
+        for (int[] position : positions) {
+            long key = ArenaJournal.pack(position[0], position[1], position[2]);
+            assertEquals(position[0], ArenaJournal.unpackX(key));
+            assertEquals(position[1], ArenaJournal.unpackY(key));
+            assertEquals(position[2], ArenaJournal.unpackZ(key));
+        }
+    }
+
+    @Test
+    void keepsOnlyTheFirstOriginal() {
+        ArenaJournal journal = new ArenaJournal(bounds(0, 0, 0, 15, 15, 15));
+        journal.record(1, 2, 3, STONE);
+        journal.record(1, 2, 3, DIRT);
+        journal.record(-4, 5, 6, DIRT);
+
+        Map<Long, BlockData> visited = new HashMap<>();
+        journal.forEach((x, y, z, original) -> visited.put(ArenaJournal.pack(x, y, z), original));
+        assertEquals(2, journal.size());
+        assertEquals(STONE, visited.get(ArenaJournal.pack(1, 2, 3)));
+        assertEquals(DIRT, visited.get(ArenaJournal.pack(-4, 5, 6)));
+        assertFalse(journal.isOverflowed());
+    }
+
+    @Test
+    void marksPositionsPastTheLimitInsideTheBounds() {
+        // 65^3 positions, more than the journal keeps originals for
+        ArenaJournal journal = new ArenaJournal(bounds(-10, 0, 100, 54, 64, 164));
+        int recorded = 0;
+        outer:
+        for (int y = 0; y <= 64; y++) {
+            for (int z = 100; z <= 164; z++) {
+                for (int x = -10; x <= 54; x++) {
+                    if (recorded == ArenaJournal.MAX_ENTRIES) break outer;
+                    journal.record(x, y, z, STONE);
+                    recorded++;
+                }
+            }
+        }
+        assertFalse(journal.isOverflowed());
+
+        List<int[]> extra = new ArrayList<>();
+        extra.add(new int[] {54, 64, 164});
+        extra.add(new int[] {-10, 64, 100});
+        extra.add(new int[] {20, 63, 150});
+        for (int[] position : extra) {
+            journal.record(position[0], position[1], position[2], DIRT);
+            journal.record(position[0], position[1], position[2], DIRT); // Marked once
+        }
+        journal.record(55, 64, 164, DIRT); // Outside the bounds
+        journal.record(-10, 0, 100, DIRT); // Already has its original
+
+        assertTrue(journal.isOverflowed());
+        assertEquals(ArenaJournal.MAX_ENTRIES, journal.size());
+        assertEquals(extra.size(), journal.getOverflowCount());
+
+        Set<Long> expected = new HashSet<>();
+        for (int[] position : extra) {
+            expected.add(ArenaJournal.pack(position[0], position[1], position[2]));
+        }
+        Set<Long> visited = new HashSet<>();
+        journal.forEachOverflow((x, y, z, original) -> {
+            assertNull(original);
+            visited.add(ArenaJournal.pack(x, y, z));
+        });
+        assertEquals(expected, visited);
+    }
+
+    @Test
+    void journalWithoutBoundsDropsOverflow() {
+        ArenaJournal journal = new ArenaJournal(null);
+        for (int i = 0; i <= ArenaJournal.MAX_ENTRIES; i++) {
+            journal.record(i, 0, 0, STONE);
+        }
+        assertEquals(ArenaJournal.MAX_ENTRIES, journal.size());
+        assertFalse(journal.isOverflowed());
+        assertEquals(0, journal.getOverflowCount());
+    }
+
+    private static ArenaBounds bounds(int minX, int minY, int minZ, int maxX, int maxY, int maxZ) {
+        return new ArenaBounds(UUID.randomUUID(), minX, minY, minZ, maxX, maxY, maxZ);
+    }
+}
@@ -0,0 +1,97 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.condition.EnabledIfSystemProperty;
+import rip.thecraft.practice.TestBukkit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+
+/**
+ * Compares the snapshot file encodings on generated terrain: encode time, decode time and output size.
+ * Skipped by default, run it with: mvn test -Dtest=ArenaSnapshotBenchmark -Dbenchmark=true
+ */
+@EnabledIfSystemProperty(named = "benchmark", matches = "true")
+class ArenaSnapshotBenchmark {
+
+    private static final int ROUNDS = 5;
+
+    @BeforeAll
+    static void installServer() {
+        TestBukkit.installServer();
+    }
+
+    @Test
+    void flatTerrain() throws IOException {
+        // Layered floor with a few pillars, the kind of build boxes are meant for
+        BlockData stone = TestBukkit.blockData("minecraft:stone");
+        BlockData dirt = TestBukkit.blockData("minecraft:dirt");
+        BlockData grass = TestBukkit.blockData("minecraft:grass_block[snowy=false]");
+        BlockData log = TestBukkit.blockData("minecraft:oak_log[axis=y]");
+        ArenaSnapshot.Builder builder = ArenaSnapshot.builder(128, 48, 128);
+        for (int x = 0; x < 128; x++) {
+            for (int z = 0; z < 128; z++) {
+                for (int y = 0; y < 8; y++) {
+                    builder.add(x, y, z, y < 5 ? stone : y < 7 ? dirt : grass);
+                }
+                if (x % 16 == 0 && z % 16 == 0) {
+                    for (int y = 8; y < 20; y++) {
+                        builder.add(x, y, z, log);
+                    }
+                }
+            }
+        }
+        run("flat", builder.build());
+    }
+
+    @Test
+    void noisyTerrain() throws IOException {
+        BlockData[] palette = new BlockData[12];
+        for (int i = 0; i < palette.length; i++) {
+            palette[i] = TestBukkit.blockData("minecraft:block_" + i);
+        }
+        Random random = new Random(42);
+        ArenaSnapshot.Builder builder = ArenaSnapshot.builder(96, 48, 96);
+        for (int x = 0; x < 96; x++) {
+            for (int z = 0; z < 96; z++) {
+                int height = 10 + random.nextInt(20);
+                for (int y = 0; y < height; y++) {
+                    builder.add(x, y, z, palette[random.nextInt(palette.length)]);
+                }
+            }
+        }
+        run("noisy", builder.build());
+    }
+
+    // Run every encoding a few times and keep the best timings
+    private static void run(String name, ArenaSnapshot snapshot) throws IOException {
+        System.out.println(name + " (" + snapshot.size() + " blocks)");
+        for (ArenaSnapshotFile.Encoding encoding : ArenaSnapshotFile.Encoding.values()) {
+            if (encoding == ArenaSnapshotFile.Encoding.BOXES && !BoxEncoder.canEncode(snapshot)) {
+                System.out.println("  " + encoding + ": too large");
+                continue;
+            }
+
+            long bestEncode = Long.MAX_VALUE;
+            long bestDecode = Long.MAX_VALUE;
+            byte[] encoded = null;
+            for (int round = 0; round < ROUNDS; round++) {
+                long start = System.nanoTime();
+                encoded = ArenaSnapshotFile.encode(snapshot, encoding);
+                long encodedAt = System.nanoTime();
+                ArenaSnapshot decoded = ArenaSnapshotFile.decode(ByteBuffer.wrap(encoded), "benchmark");
+                long decodedAt = System.nanoTime();
+                assertEquals(snapshot.size(), decoded.size(), encoding + " round trip lost blocks");
+                bestEncode = Math.min(bestEncode, encodedAt - start);
+                bestDecode = Math.min(bestDecode, decodedAt - encodedAt);
+            }
+            System.out.printf("  %s: %s, encode %.2fms, decode %.2fms%n", encoding,
+                ArenaSnapshot.formatBytes(encoded.length), bestEncode / 1_000_000.0, bestDecode / 1_000_000.0);
+        }
+    }
+}
@@ -0,0 +1,138 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.Test;
+import rip.thecraft.practice.TestBukkit;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class ArenaSnapshotTest {
+
+    @BeforeAll
+    static void installServer() {
+        TestBukkit.installServer();
+    }
+
+    @Test
+    void packsEveryBlockWithItsPaletteEntry() {
+        BlockData[] palette = palette(5);
+        BlockData[][][] expected = new BlockData[10][6][7];
+        Random random = new Random(1);
+        ArenaSnapshot.Builder builder = ArenaSnapshot.builder(10, 6, 7);
+        int blocks = 0;
+        for (int x = 0; x < 10; x++) {
+            for (int y = 0; y < 6; y++) {
+                for (int z = 0; z < 7; z++) {
+                    if (random.nextInt(4) == 0) continue; // Leave gaps, like air in a real capture
+                    expected[x][y][z] = palette[random.nextInt(palette.length)];
+                    builder.add(x, y, z, expected[x][y][z]);
+                    blocks++;
+                }
+            }
+        }
+        ArenaSnapshot snapshot = builder.build();
+
+        assertEquals(blocks, snapshot.size());
+        assertEquals(5, snapshot.getPalette().size());
+        assertEquals(3, snapshot.getBitsPerEntry());
+        assertSameBlocks(expected, snapshot);
+        for (int i = 0; i < snapshot.size(); i++) {
+            assertEquals(expected[snapshot.getX(i)][snapshot.getY(i)][snapshot.getZ(i)], snapshot.getBlockData(i));
+        }
+    }
+
+    @Test
+    void ignoresBlocksOutsideTheVolume() {
+        ArenaSnapshot snapshot = ArenaSnapshot.builder(4, 4, 4)
+            .add(-1, 0, 0, TestBukkit.blockData("minecraft:stone"))
+            .add(0, 4, 0, TestBukkit.blockData("minecraft:stone"))
+            .add(3, 3, 3, TestBukkit.blockData("minecraft:dirt"))
+            .build();
+
+        assertEquals(1, snapshot.size());
+        assertEquals(TestBukkit.blockData("minecraft:dirt"), snapshot.getBlockData(3, 3, 3));
+        assertNull(snapshot.getBlockData(0, 0, 0));
+        assertFalse(snapshot.contains(-1, 0, 0));
+    }
+
+    @Test
+    void roundTripsThroughEveryFileEncoding() throws IOException {
+        BlockData[] palette = palette(40);
+        BlockData[][][] expected = new BlockData[12][9][11];
+        Random random = new Random(2);
+        ArenaSnapshot.Builder builder = ArenaSnapshot.builder(12, 9, 11);
+        for (int x = 0; x < 12; x++) {
+            for (int y = 0; y < 9; y++) {
+                for (int z = 0; z < 11; z++) {
+                    if (random.nextInt(3) == 0) continue;
+                    expected[x][y][z] = palette[random.nextInt(palette.length)];
+                    builder.add(x, y, z, expected[x][y][z]);
+                }
+            }
+        }
+        ArenaSnapshot snapshot = builder.build();
+
+        for (ArenaSnapshotFile.Encoding encoding : ArenaSnapshotFile.Encoding.values()) {
+            byte[] encoded = ArenaSnapshotFile.encode(snapshot, encoding);
+            ArenaSnapshot decoded = ArenaSnapshotFile.decode(ByteBuffer.wrap(encoded), encoding.name());
+            assertEquals(snapshot.size(), decoded.size(), encoding.name());
+            assertSameBlocks(expected, decoded);
+        }
+    }
+
+    @Test
+    void rejectsCorruptFiles() throws IOException {
+        ArenaSnapshot snapshot = ArenaSnapshot.builder(2, 2, 2)
+            .add(0, 0, 0, TestBukkit.blockData("minecraft:stone"))
+            .add(1, 1, 1, TestBukkit.blockData("minecraft:dirt"))
+            .build();
+        byte[] encoded = ArenaSnapshotFile.encode(snapshot, ArenaSnapshotFile.Encoding.PACKED);
+
+        byte[] flipped = encoded.clone();
+        flipped[flipped.length / 2] ^= 0x10;
+        assertThrows(IOException.class, () -> ArenaSnapshotFile.decode(ByteBuffer.wrap(flipped), "flipped"));
+
+        byte[] truncated = new byte[encoded.length - 3];
+        System.arraycopy(encoded, 0, truncated, 0, truncated.length);
+        assertThrows(IOException.class, () -> ArenaSnapshotFile.decode(ByteBuffer.wrap(truncated), "truncated"));
+    }
+
+    @Test
+    void emptySnapshotRoundTrips() throws IOException {
+        ArenaSnapshot snapshot = ArenaSnapshot.builder(3, 3, 3).build();
+        assertTrue(snapshot.isEmpty());
+
+        byte[] encoded = ArenaSnapshotFile.encode(snapshot, ArenaSnapshotFile.Encoding.PACKED);
+        ArenaSnapshot decoded = ArenaSnapshotFile.decode(ByteBuffer.wrap(encoded), "empty");
+        assertTrue(decoded.isEmpty());
+        assertEquals(27, decoded.getVolume());
+    }
+
+    static BlockData[] palette(int size) {
+        BlockData[] palette = new BlockData[size];
+        for (int i = 0; i < size; i++) {
+            palette[i] = TestBukkit.blockData("minecraft:block_" + i);
+        }
+        return palette;
+    }
+
+    static void assertSameBlocks(BlockData[][][] expected, ArenaSnapshot snapshot) {
+        for (int x = 0; x < expected.length; x++) {
+            for (int y = 0; y < expected[x].length; y++) {
+                for (int z = 0; z < expected[x][y].length; z++) {
+                    assertEquals(expected[x][y][z], snapshot.getBlockData(x, y, z), "block at " + x + " " + y + " " + z);
+                    assertEquals(expected[x][y][z] != null, snapshot.contains(x, y, z));
+                }
+            }
+        }
+    }
+}
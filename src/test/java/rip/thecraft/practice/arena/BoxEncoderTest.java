@@ -0,0 +1,77 @@
+package rip.thecraft.practice.arena;
+
+import org.bukkit.block.data.BlockData;
+import org.junit.jupiter.api.Test;
+import rip.thecraft.practice.TestBukkit;
+
+import java.util.Random;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class BoxEncoderTest {
+
+    @Test
+    void layeredTerrainBecomesOneBoxPerLayer() {
+        BlockData stone = TestBukkit.blockData("minecraft:stone");
+        BlockData grass = TestBukkit.blockData("minecraft:grass_block");
+        BlockData[][][] expected = new BlockData[16][8][16];
+        ArenaSnapshot.Builder builder = ArenaSnapshot.builder(16, 8, 16);
+        for (int x = 0; x < 16; x++) {
+            for (int z = 0; z < 16; z++) {
+                for (int y = 0; y < 4; y++) {
+                    expected[x][y][z] = y < 3 ? stone : grass;
+                    builder.add(x, y, z, expected[x][y][z]);
+                }
+            }
+        }
+        ArenaSnapshot snapshot = builder.build();
+
+        int[] boxes = BoxEncoder.encode(snapshot);
+        assertEquals(2, boxes.length / BoxEncoder.INTS_PER_BOX);
+        ArenaSnapshotTest.assertSameBlocks(expected, decode(snapshot, boxes));
+    }
+
+    @Test
+    void noisyTerrainRoundTrips() {
+        BlockData[] palette = ArenaSnapshotTest.palette(6);
+        BlockData[][][] expected = new BlockData[13][7][9];
+        Random random = new Random(3);
+        ArenaSnapshot.Builder builder = ArenaSnapshot.builder(13, 7, 9);
+        for (int x = 0; x < 13; x++) {
+            for (int y = 0; y < 7; y++) {
+                for (int z = 0; z < 9; z++) {
+                    // Mostly runs of the same block with holes, so boxes merge across rows and layers
+                    if (random.nextInt(5) == 0) continue;
+                    expected[x][y][z] = palette[random.nextInt(8) < 6 ? (x / 4 + z / 3) % palette.length : random.nextInt(palette.length)];
+                    builder.add(x, y, z, expected[x][y][z]);
+                }
+            }
+        }
+        ArenaSnapshot snapshot = builder.build();
+
+        int[] boxes = BoxEncoder.encode(snapshot);
+        ArenaSnapshot decoded = decode(snapshot, boxes);
+        assertEquals(snapshot.size(), decoded.size());
+        ArenaSnapshotTest.assertSameBlocks(expected, decoded);
+    }
+
+    @Test
+    void emptySnapshotHasNoBoxes() {
+        ArenaSnapshot snapshot = ArenaSnapshot.builder(5, 5, 5).build();
+        assertEquals(0, BoxEncoder.encode(snapshot).length);
+        assertTrue(decode(snapshot, new int[0]).isEmpty());
+    }
+
+    @Test
+    void refusesVolumesTooLargeToExpand() {
+        assertTrue(BoxEncoder.canEncode(ArenaSnapshot.builder(256, 256, 256).build()));
+        assertFalse(BoxEncoder.canEncode(ArenaSnapshot.builder(512, 256, 512).build()));
+    }
+
+    private static ArenaSnapshot decode(ArenaSnapshot snapshot, int[] boxes) {
+        return BoxEncoder.decode(snapshot.getSizeX(), snapshot.getSizeY(), snapshot.getSizeZ(),
+            snapshot.getPalette().toArray(new BlockData[0]), boxes);
+    }
+}
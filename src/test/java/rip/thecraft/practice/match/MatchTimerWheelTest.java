@@ -0,0 +1,115 @@
+package rip.thecraft.practice.match;
+
+import org.bukkit.Location;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import rip.thecraft.practice.TestBukkit;
+
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class MatchTimerWheelTest {
+
+    private static final Location ANCHOR = new Location(null, 0, 64, 0);
+
+    private MatchTimerWheel wheel;
+    private List<Long> fired;
+    private long ticks;
+
+    @BeforeEach
+    void setUp() {
+        // A disabled plugin doesn't start the wheel's timer, the test ticks it by hand
+        wheel = new MatchTimerWheel(TestBukkit.disabledPlugin(), ANCHOR);
+        fired = new ArrayList<>();
+        ticks = 0;
+    }
+
+    @Test
+    void firesOnTheTickItIsDue() {
+        schedule(1);
+        schedule(3);
+        schedule(3);
+        assertEquals(3, wheel.getLiveCount());
+
+        tick(1);
+        assertEquals(List.of(1L), fired);
+        tick(1);
+        assertEquals(List.of(1L), fired);
+        tick(1);
+        assertEquals(List.of(1L, 3L, 3L), fired);
+        assertEquals(0, wheel.getLiveCount());
+    }
+
+    @Test
+    void delaysAreCountedFromTheNextTick() {
+        tick(10);
+        schedule(5);
+        tick(4);
+        assertTrue(fired.isEmpty());
+        tick(1);
+        assertEquals(List.of(15L), fired);
+    }
+
+    @Test
+    void timersPastOneRevolutionWaitTheirRounds() {
+        schedule(512);
+        schedule(513);
+        schedule(1030);
+        tick(511);
+        assertTrue(fired.isEmpty());
+
+        tick(1100);
+        assertEquals(List.of(512L, 513L, 1030L), fired);
+    }
+
+    @Test
+    void cancelledTimersNeverFire() {
+        MatchTimerWheel.Timer cancelledEarly = schedule(2);
+        cancelledEarly.cancel();
+        MatchTimerWheel.Timer cancelledInSlot = schedule(600);
+        tick(1);
+        cancelledInSlot.cancel();
+        cancelledInSlot.cancel();
+        assertEquals(0, wheel.getLiveCount());
+
+        tick(700);
+        assertTrue(fired.isEmpty());
+        assertTrue(cancelledEarly.isDone());
+    }
+
+    @Test
+    void cancellingAFiredTimerChangesNothing() {
+        MatchTimerWheel.Timer timer = schedule(1);
+        schedule(5);
+        tick(1);
+        timer.cancel();
+        assertEquals(1, wheel.getLiveCount());
+        tick(4);
+        assertEquals(List.of(1L, 5L), fired);
+    }
+
+    @Test
+    void aFailingTaskDoesNotStopTheOthers() {
+        wheel.schedule(ANCHOR, 2, () -> {
+            throw new IllegalStateException("expected by the test");
+        });
+        schedule(2);
+        tick(2);
+        assertEquals(List.of(2L), fired);
+        assertEquals(0, wheel.getLiveCount());
+    }
+
+    private MatchTimerWheel.Timer schedule(long delay) {
+        return wheel.schedule(ANCHOR, delay, () -> fired.add(ticks));
+    }
+
+    private void tick(int count) {
+        for (int i = 0; i < count; i++) {
+            ticks++;
+            wheel.tick();
+        }
+    }
+}
@@ -0,0 +1,122 @@
+package rip.thecraft.practice.player;
+
+import com.mongodb.MongoClientSettings;
+import com.mongodb.client.model.ReplaceOneModel;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.BsonInt64;
+import org.bson.BsonString;
+import org.bson.Document;
+import org.bson.conversions.Bson;
+import org.junit.jupiter.api.Test;
+
+import java.util.UUID;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertInstanceOf;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerUpdateTest {
+
+    private static final UUID PLAYER = UUID.fromString("00000000-0000-0000-0000-000000000001");
+
+    @Test
+    void laterChangesFoldIntoEarlierOnes() {
+        PlayerUpdate earlier = new PlayerUpdate().set("elo.nodebuff", 1000).inc("kills", 2);
+        PlayerUpdate later = new PlayerUpdate().inc("elo.nodebuff", 16).inc("kills", 1).set("name", "later");
+        earlier.merge(later);
+
+        Document document = new Document("kills", 10);
+        earlier.applyTo(document);
+        assertEquals(1016, ((Document) document.get("elo")).get("nodebuff"));
+        assertEquals(13, document.get("kills"));
+        assertEquals("later", document.get("name"));
+    }
+
+    @Test
+    void setReplacesAnEarlierIncrement() {
+        PlayerUpdate update = new PlayerUpdate().inc("wins", 3).set("wins", 7);
+        Document document = new Document("wins", 100);
+        update.applyTo(document);
+        assertEquals(7, document.get("wins"));
+    }
+
+    @Test
+    void laterReplacementDropsFieldChanges() {
+        PlayerUpdate update = new PlayerUpdate().inc("kills", 5);
+        Document replacement = new Document("_id", PLAYER.toString()).append("kills", 1);
+        update.merge(PlayerUpdate.replace(replacement));
+        update.inc("kills", 2);
+
+        Document document = new Document("kills", 50).append("stale", true);
+        update.applyTo(document);
+        assertEquals(3, document.get("kills"));
+        assertFalse(document.containsKey("stale"));
+    }
+
+    @Test
+    void copiesDoNotShareNestedDocuments() {
+        Document replacement = new Document("elo", new Document("nodebuff", 1000));
+        PlayerUpdate update = PlayerUpdate.replace(replacement);
+        PlayerUpdate copy = update.copy();
+        update.inc("elo.nodebuff", 20);
+
+        Document document = new Document();
+        copy.applyTo(document);
+        assertEquals(1000, ((Document) document.get("elo")).get("nodebuff"));
+        assertEquals(1020, ((Document) replacement.get("elo")).get("nodebuff"));
+    }
+
+    @Test
+    void fieldChangesOnlyApplyToOlderDocuments() {
+        WriteModel<Document> model = new PlayerUpdate().set("name", "steve").inc("kills", 2).toWriteModel(PLAYER, 7);
+        UpdateOneModel<Document> update = assertInstanceOf(UpdateOneModel.class, model);
+        assertTrue(update.getOptions().isUpsert());
+
+        BsonDocument filter = render(update.getFilter());
+        assertEquals(new BsonString(PLAYER.toString()), filter.get("_id"));
+        assertEquals(new BsonDocument("$not", new BsonDocument("$gte", new BsonInt64(7))), filter.get(PlayerUpdate.SEQUENCE_FIELD));
+
+        BsonDocument changes = render(update.getUpdate());
+        assertEquals("steve", changes.getDocument("$set").getString("name").getValue());
+        assertEquals(new BsonInt64(7), changes.getDocument("$set").get(PlayerUpdate.SEQUENCE_FIELD));
+        assertEquals(2, changes.getDocument("$inc").getInt32("kills").getValue());
+    }
+
+    @Test
+    void replacementCarriesItsSequence() {
+        Document replacement = new Document("_id", PLAYER.toString()).append("kills", 4);
+        WriteModel<Document> model = PlayerUpdate.replace(replacement).toWriteModel(PLAYER, 9);
+        ReplaceOneModel<Document> replace = assertInstanceOf(ReplaceOneModel.class, model);
+
+        assertTrue(replace.getReplaceOptions().isUpsert());
+        assertEquals(9L, replace.getReplacement().get(PlayerUpdate.SEQUENCE_FIELD));
+        assertEquals(4, replace.getReplacement().get("kills"));
+        assertFalse(replacement.containsKey(PlayerUpdate.SEQUENCE_FIELD));
+        assertEquals(new BsonDocument("$not", new BsonDocument("$gte", new BsonInt64(9))),
+            render(replace.getFilter()).get(PlayerUpdate.SEQUENCE_FIELD));
+    }
+
+    @Test
+    void spoolFormRoundTrips() {
+        PlayerUpdate fields = new PlayerUpdate().set("settings.scoreboard", false).inc("elo.sumo", -12).inc("losses", 1);
+        assertSameResult(fields, PlayerUpdate.fromDocument(fields.toDocument()));
+
+        PlayerUpdate replacement = PlayerUpdate.replace(new Document("_id", PLAYER.toString()).append("wins", 3));
+        assertSameResult(replacement, PlayerUpdate.fromDocument(replacement.toDocument()));
+    }
+
+    private static void assertSameResult(PlayerUpdate expected, PlayerUpdate actual) {
+        Document expectedDocument = new Document("elo", new Document("sumo", 1000)).append("losses", 2);
+        Document actualDocument = new Document("elo", new Document("sumo", 1000)).append("losses", 2);
+        expected.applyTo(expectedDocument);
+        actual.applyTo(actualDocument);
+        assertEquals(expectedDocument, actualDocument);
+    }
+
+    private static BsonDocument render(Bson bson) {
+        return bson.toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+}
@@ -0,0 +1,198 @@
+package rip.thecraft.practice.player;
+
+import com.mongodb.MongoException;
+import com.mongodb.MongoClientSettings;
+import com.mongodb.bulk.BulkWriteResult;
+import com.mongodb.client.MongoCollection;
+import com.mongodb.client.model.UpdateOneModel;
+import com.mongodb.client.model.WriteModel;
+import org.bson.BsonDocument;
+import org.bson.Document;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import rip.thecraft.practice.TestBukkit;
+
+import java.io.File;
+import java.io.IOException;
+import java.lang.reflect.Proxy;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.UUID;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerWriteBehindTest {
+
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    @TempDir
+    File folder;
+
+    private final FakeCollection mongo = new FakeCollection();
+    private PlayerWriteSequence sequence;
+    private PlayerWriteBehind writeBehind;
+
+    @AfterEach
+    void tearDown() {
+        mongo.down = false;
+        if (writeBehind != null) {
+            writeBehind.shutdown();
+        }
+    }
+
+    @Test
+    void spooledBatchesReplayInSequenceOrder() throws IOException {
+        open(true);
+        mongo.down = true;
+        writeBehind.queue(ALICE, new PlayerUpdate().inc("kills", 1));
+        writeBehind.flush();
+        writeBehind.queue(ALICE, new PlayerUpdate().inc("kills", 2));
+        writeBehind.queue(BOB, new PlayerUpdate().inc("kills", 5));
+        writeBehind.flush();
+        assertEquals(2, writeBehind.getSpooledBatchCount());
+
+        mongo.down = false;
+        writeBehind.flush();
+        assertEquals(0, writeBehind.getSpooledBatchCount());
+        assertEquals(2, mongo.batches.size());
+        long first = sequence(mongo.batches.get(0).get(0));
+        long second = sequence(mongo.batches.get(1).get(0));
+        assertTrue(first < second, first + " then " + second);
+        assertEquals(2, mongo.batches.get(1).size());
+    }
+
+    @Test
+    void unsavedChangesApplyOnlyWhereTheDocumentIsOlder() throws IOException {
+        open(true);
+        mongo.down = true;
+        writeBehind.queue(ALICE, new PlayerUpdate().inc("kills", 1));
+        writeBehind.flush();
+        long spooled = sequence.last();
+        writeBehind.queue(ALICE, new PlayerUpdate().inc("kills", 2));
+
+        // The document predates both changes
+        Document stale = new Document("kills", 10).append(PlayerUpdate.SEQUENCE_FIELD, spooled - 1);
+        writeBehind.getUnsaved(ALICE).applyTo(stale);
+        assertEquals(13, stale.get("kills"));
+
+        // The spooled batch already reached it, only the queued change is missing
+        Document current = new Document("kills", 11).append(PlayerUpdate.SEQUENCE_FIELD, spooled);
+        writeBehind.getUnsaved(ALICE).applyTo(current);
+        assertEquals(13, current.get("kills"));
+
+        assertNull(writeBehind.getUnsaved(BOB));
+    }
+
+    @Test
+    void durableChangesAreSpooledBeforeReturning() throws IOException {
+        open(true);
+        mongo.down = true;
+        writeBehind.queue(ALICE, new PlayerUpdate().inc("kills", 1));
+        Map<UUID, PlayerUpdate> result = new LinkedHashMap<>();
+        result.put(ALICE, new PlayerUpdate().inc("wins", 1));
+        result.put(BOB, new PlayerUpdate().inc("losses", 1));
+        writeBehind.queueDurable(result);
+
+        assertEquals(0, writeBehind.getPendingCount());
+        assertTrue(writeBehind.getSpooledDocumentCount() >= 2);
+        Document alice = new Document();
+        writeBehind.getUnsaved(ALICE).applyTo(alice);
+        assertEquals(1, alice.get("kills"));
+        assertEquals(1, alice.get("wins"));
+    }
+
+    @Test
+    void directWriteInFlightStaysVisibleAndRetriesAheadOfNewerChanges() throws Exception {
+        open(false);
+        writeBehind.queue(ALICE, new PlayerUpdate().set("name", "first").inc("kills", 1));
+        mongo.block = new CountDownLatch(1);
+        mongo.down = true;
+        Thread flusher = new Thread(writeBehind::flush);
+        flusher.start();
+        assertTrue(mongo.entered.await(5, TimeUnit.SECONDS));
+
+        // The load runs while the write holds no lock and still sees the change
+        Document loaded = new Document("kills", 4);
+        writeBehind.getUnsaved(ALICE).applyTo(loaded);
+        assertEquals(5, loaded.get("kills"));
+        assertTrue(writeBehind.isPending(ALICE));
+        writeBehind.queue(ALICE, new PlayerUpdate().set("name", "second").inc("kills", 2));
+
+        mongo.block.countDown();
+        flusher.join(5000);
+
+        // The failed batch went back in front of the newer change and both go out together
+        mongo.down = false;
+        mongo.block = null;
+        writeBehind.flush();
+        assertEquals(1, mongo.batches.size());
+        BsonDocument update = render(mongo.batches.get(0).get(0));
+        assertEquals("second", update.getDocument("$set").getString("name").getValue());
+        assertEquals(3, update.getDocument("$inc").getInt32("kills").getValue());
+    }
+
+    private void open(boolean spooled) throws IOException {
+        Logger logger = Logger.getLogger("Practice-Test");
+        PlayerWriteSpool spool = null;
+        if (spooled) {
+            spool = new PlayerWriteSpool(logger, new File(folder, "spool"), 1 << 20);
+            spool.open();
+        }
+        sequence = new PlayerWriteSequence(new File(folder, "write-sequence"));
+        sequence.open(0);
+        // The timer never fires during a test, flushes are started by hand
+        writeBehind = new PlayerWriteBehind(TestBukkit.disabledPlugin(), mongo.proxy(), spool, sequence,
+            TimeUnit.HOURS.toMillis(1), 100, 1000);
+    }
+
+    private static long sequence(WriteModel<Document> model) {
+        return render(model).getDocument("$set").getInt64(PlayerUpdate.SEQUENCE_FIELD).getValue();
+    }
+
+    private static BsonDocument render(WriteModel<Document> model) {
+        return ((UpdateOneModel<Document>) model).getUpdate()
+            .toBsonDocument(BsonDocument.class, MongoClientSettings.getDefaultCodecRegistry());
+    }
+
+    /**
+     * Collection that only takes bulk writes, remembers them and can be taken down or held mid-write
+     */
+    private static final class FakeCollection {
+
+        private final List<List<WriteModel<Document>>> batches = new ArrayList<>();
+        private final CountDownLatch entered = new CountDownLatch(1);
+        private volatile boolean down;
+        private volatile CountDownLatch block;
+
+        @SuppressWarnings("unchecked")
+        MongoCollection<Document> proxy() {
+            return (MongoCollection<Document>) Proxy.newProxyInstance(MongoCollection.class.getClassLoader(),
+                new Class<?>[] {MongoCollection.class}, (proxy, method, args) -> {
+                    if (!method.getName().equals("bulkWrite")) {
+                        throw new UnsupportedOperationException(method.getName());
+                    }
+                    CountDownLatch latch = block;
+                    if (latch != null) {
+                        entered.countDown();
+                        latch.await(5, TimeUnit.SECONDS);
+                    }
+                    if (down) {
+                        throw new MongoException("MongoDB is down for the test");
+                    }
+                    synchronized (batches) {
+                        batches.add(new ArrayList<>((List<WriteModel<Document>>) args[0]));
+                    }
+                    return BulkWriteResult.unacknowledged();
+                });
+        }
+    }
+}
@@ -0,0 +1,76 @@
+package rip.thecraft.practice.player;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerWriteSequenceTest {
+
+    @TempDir
+    File folder;
+
+    @Test
+    void startsWithoutAStateFile() throws IOException {
+        PlayerWriteSequence sequence = new PlayerWriteSequence(new File(folder, "write-sequence"));
+        assertEquals(-1, sequence.load());
+
+        sequence.open(0);
+        assertEquals(0, sequence.last());
+        assertEquals(1, sequence.next());
+        assertEquals(2, sequence.next());
+        assertEquals(2, sequence.last());
+    }
+
+    @Test
+    void continuesAboveTheFloor() throws IOException {
+        PlayerWriteSequence sequence = new PlayerWriteSequence(new File(folder, "write-sequence"));
+        sequence.open(1_000);
+        assertEquals(1_001, sequence.next());
+    }
+
+    @Test
+    void neverRepeatsAcrossRestarts() throws IOException {
+        File file = new File(folder, "write-sequence");
+        PlayerWriteSequence first = new PlayerWriteSequence(file);
+        first.open(first.load());
+        long handedOut = 0;
+        for (int i = 0; i < 100; i++) {
+            handedOut = first.next();
+        }
+
+        PlayerWriteSequence second = new PlayerWriteSequence(file);
+        long mark = second.load();
+        assertTrue(mark >= handedOut, "mark " + mark + " below " + handedOut);
+        second.open(mark);
+        assertTrue(second.next() > handedOut);
+    }
+
+    @Test
+    void raisesTheMarkWhenABlockRunsOut() throws IOException {
+        File file = new File(folder, "write-sequence");
+        PlayerWriteSequence sequence = new PlayerWriteSequence(file);
+        sequence.open(0);
+        long firstMark = new PlayerWriteSequence(file).load();
+
+        long last = 0;
+        for (long i = 0; i <= firstMark; i++) {
+            last = sequence.next();
+        }
+        assertEquals(firstMark + 1, last);
+        assertTrue(new PlayerWriteSequence(file).load() > last);
+    }
+
+    @Test
+    void rejectsATruncatedStateFile() throws IOException {
+        File file = new File(folder, "write-sequence");
+        Files.write(file.toPath(), new byte[] {0, 0, 1});
+        assertThrows(IOException.class, () -> new PlayerWriteSequence(file).load());
+    }
+}
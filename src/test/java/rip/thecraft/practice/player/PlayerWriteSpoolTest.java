@@ -0,0 +1,157 @@
+package rip.thecraft.practice.player;
+
+import org.bson.Document;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.RandomAccessFile;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.logging.Logger;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+class PlayerWriteSpoolTest {
+
+    private static final Logger LOGGER = Logger.getLogger("Practice-Test");
+    private static final UUID ALICE = UUID.fromString("00000000-0000-0000-0000-00000000000a");
+    private static final UUID BOB = UUID.fromString("00000000-0000-0000-0000-00000000000b");
+
+    @TempDir
+    File folder;
+
+    @Test
+    void recoversUnacknowledgedBatchesInOrder() throws IOException {
+        PlayerWriteSpool spool = open();
+        PlayerWriteSpool.Batch first = spool.append(1, List.of(ALICE), List.of(kills(1)));
+        spool.append(2, List.of(BOB), List.of(kills(2)));
+        spool.append(3, List.of(ALICE, BOB), List.of(kills(3), kills(4)));
+        spool.acknowledge(first);
+        spool.close();
+
+        PlayerWriteSpool recovered = open();
+        assertEquals(3, recovered.getLastSequence());
+        assertEquals(List.of(2L, 3L), sequences(recovered));
+        assertEquals(3, recovered.getBacklogDocumentCount());
+        assertEquals(1, recovered.getBatches(ALICE).size());
+        assertEquals(2, recovered.getBatches(BOB).size());
+
+        // The recovered updates are the ones that were appended
+        PlayerWriteSpool.Batch last = recovered.getBatches(ALICE).get(0);
+        Document document = new Document();
+        last.getUpdates().get(last.getIds().indexOf(BOB)).applyTo(document);
+        assertEquals(4, document.get("kills"));
+        recovered.close();
+    }
+
+    @Test
+    void acknowledgedBatchesStayAcknowledgedAfterARestart() throws IOException {
+        PlayerWriteSpool spool = open();
+        spool.append(1, List.of(ALICE), List.of(kills(1)));
+        PlayerWriteSpool.Batch middle = spool.append(2, List.of(BOB), List.of(kills(2)));
+        spool.append(3, List.of(ALICE), List.of(kills(3)));
+        spool.acknowledge(middle);
+        spool.close();
+
+        PlayerWriteSpool recovered = open();
+        assertEquals(List.of(1L, 3L), sequences(recovered));
+        assertTrue(recovered.contains(ALICE));
+        assertFalse(recovered.contains(BOB));
+
+        while (recovered.peek() != null) {
+            recovered.acknowledge(recovered.peek());
+        }
+        assertFalse(recovered.contains(ALICE));
+        recovered.close();
+        assertNull(open().peek());
+    }
+
+    @Test
+    void dropsACorruptRecordAndEverythingAfterIt() throws IOException {
+        PlayerWriteSpool spool = open();
+        spool.append(1, List.of(ALICE), List.of(kills(1)));
+        spool.append(2, List.of(BOB), List.of(kills(2)));
+        spool.close();
+
+        File segment = onlySegment();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            // Inside the BSON body of the second record, the first one stays intact
+            long position = file.length() - 10;
+            file.seek(position);
+            int value = file.read();
+            file.seek(position);
+            file.write(value ^ 0xFF);
+        }
+
+        PlayerWriteSpool recovered = open();
+        assertEquals(List.of(1L), sequences(recovered));
+        recovered.close();
+    }
+
+    @Test
+    void dropsATornRecordAtTheEnd() throws IOException {
+        PlayerWriteSpool spool = open();
+        spool.append(1, List.of(ALICE), List.of(kills(1)));
+        spool.append(2, List.of(BOB), List.of(kills(2)));
+        spool.close();
+
+        File segment = onlySegment();
+        try (RandomAccessFile file = new RandomAccessFile(segment, "rw")) {
+            file.setLength(file.length() - 3);
+        }
+
+        PlayerWriteSpool recovered = open();
+        assertEquals(List.of(1L), sequences(recovered));
+        assertEquals(1, recovered.getLastSequence());
+        recovered.close();
+    }
+
+    @Test
+    void fullyAcknowledgedSegmentsAreDeleted() throws IOException {
+        PlayerWriteSpool spool = open();
+        PlayerWriteSpool.Batch batch = spool.append(1, List.of(ALICE), List.of(kills(1)));
+        spool.acknowledge(batch);
+        spool.close();
+
+        File[] segments = folder.listFiles((dir, name) -> name.endsWith(".log"));
+        assertEquals(0, segments == null ? 0 : segments.length);
+    }
+
+    private PlayerWriteSpool open() throws IOException {
+        PlayerWriteSpool spool = new PlayerWriteSpool(LOGGER, folder, 1 << 20);
+        spool.open();
+        return spool;
+    }
+
+    private File onlySegment() {
+        File[] segments = folder.listFiles((dir, name) -> name.endsWith(".log"));
+        assertEquals(1, segments == null ? 0 : segments.length);
+        return segments[0];
+    }
+
+    // Acknowledges nothing, only walks the backlog through getBatches
+    private static List<Long> sequences(PlayerWriteSpool spool) {
+        List<Long> sequences = new ArrayList<>();
+        for (UUID playerId : List.of(ALICE, BOB)) {
+            for (PlayerWriteSpool.Batch batch : spool.getBatches(playerId)) {
+                if (!sequences.contains(batch.getSequence())) {
+                    sequences.add(batch.getSequence());
+                }
+            }
+        }
+        sequences.sort(null);
+        assertEquals(sequences.isEmpty() ? null : sequences.get(0), spool.peek() == null ? null : spool.peek().getSequence());
+        assertEquals(sequences.size(), spool.getBacklogCount());
+        return sequences;
+    }
+
+    private static PlayerUpdate kills(int kills) {
+        return new PlayerUpdate().set("kills", kills);
+    }
+}